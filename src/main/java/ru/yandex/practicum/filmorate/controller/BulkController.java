@@ -0,0 +1,77 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.BulkImporter;
+import ru.yandex.practicum.filmorate.service.BulkImporter.Format;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.UserService;
+
+import java.io.InputStream;
+
+/**
+ * Bulk import of films and users from NDJSON or CSV and their export as CSV, for seeding and migrating
+ * environments. NDJSON export is served by {@link FilmController} and {@link UserController}.
+ */
+@RequiredArgsConstructor
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class BulkController {
+
+    private final FilmService filmService;
+    private final UserService userService;
+    private final BulkImporter bulkImporter;
+    private final CsvWriter csvWriter;
+
+    @PostMapping(path = "/films/import", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public ImportResponse importFilms(InputStream body) {
+        return importFilms(body, Format.NDJSON);
+    }
+
+    @PostMapping(path = "/films/import", consumes = CsvWriter.TEXT_CSV_VALUE)
+    public ImportResponse importFilmsCsv(InputStream body) {
+        return importFilms(body, Format.CSV);
+    }
+
+    @GetMapping(path = "/films", produces = CsvWriter.TEXT_CSV_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportFilmsCsv() {
+        return csvWriter.stream(Film.class, filmService::forEachFilm);
+    }
+
+    @PostMapping(path = "/users/import", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public ImportResponse importUsers(InputStream body) {
+        return importUsers(body, Format.NDJSON);
+    }
+
+    @PostMapping(path = "/users/import", consumes = CsvWriter.TEXT_CSV_VALUE)
+    public ImportResponse importUsersCsv(InputStream body) {
+        return importUsers(body, Format.CSV);
+    }
+
+    @GetMapping(path = "/users", produces = CsvWriter.TEXT_CSV_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportUsersCsv() {
+        return csvWriter.stream(User.class, userService::forEachUser);
+    }
+
+    private ImportResponse importFilms(InputStream body, Format format) {
+        return new ImportResponse(bulkImporter.importRecords(body, format, Film.class, film -> {
+            FilmController.nullValidateBody(film);
+            FilmController.generalFilmValidate(film);
+        }, filmService.importFilms()));
+    }
+
+    private ImportResponse importUsers(InputStream body, Format format) {
+        return new ImportResponse(bulkImporter.importRecords(body, format, User.class, user -> {
+            UserController.nullValidateBody(user);
+            UserController.generalUserValidate(user);
+        }, userService.importUsers()));
+    }
+}
@@ -0,0 +1,60 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.service.BulkImporter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+
+/**
+ * Writes records as CSV with a header row while they are produced, in the layout {@link BulkImporter} reads.
+ */
+@Component
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
+public class CsvWriter {
+
+    public static final String TEXT_CSV_VALUE = "text/csv";
+
+    private final CsvMapper csvMapper = CsvMapper.builder()
+            .findAndAddModules()
+            .addModule(BulkImporter.CSV_MODULE)
+            .disable(MapperFeature.SORT_PROPERTIES_ALPHABETICALLY)
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .build();
+
+    public <T> ResponseEntity<StreamingResponseBody> stream(Class<T> type, Consumer<Consumer<T>> source) {
+        CsvSchema schema = csvMapper.schemaFor(type)
+                .withHeader()
+                .withArrayElementSeparator(BulkImporter.CSV_ARRAY_SEPARATOR);
+        ObjectWriter writer = csvMapper.writer(schema).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        StreamingResponseBody body = out -> {
+            try (SequenceWriter rows = writer.writeValues(out)) {
+                source.accept(value -> write(rows, value));
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(TEXT_CSV_VALUE))
+                .body(body);
+    }
+
+    private static void write(SequenceWriter rows, Object value) {
+        try {
+            rows.write(value);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
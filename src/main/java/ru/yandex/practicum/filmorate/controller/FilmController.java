@@ -2,27 +2,58 @@ package ru.yandex.practicum.filmorate.controller;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.yandex.practicum.filmorate.exceptions.ValidationException;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.LikeOperation;
 import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.PopularFilmsCache;
 
 import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
-import java.util.Collection;
 import java.util.List;
 
 @RequiredArgsConstructor
 @RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @RequestMapping("/films")
 @Slf4j
 public class FilmController {
 
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int MAX_BATCH_SIZE = 10_000;
+    private static final int MAX_SEARCH_RESULTS = 100;
+    private static final LocalDate MIN_RELEASE_DATE = LocalDate.of(1895, 12, 28);
+
     private final FilmService filmService;
+    private final NdjsonWriter ndjsonWriter;
 
     @GetMapping
-    public Collection<Film> findAll() {
-        return filmService.findAll();
+    public ResponseEntity<byte[]> findAll() {
+        return jsonResponse(filmService.findAllJson());
+    }
+
+    @GetMapping(params = "limit")
+    public ResponseEntity<byte[]> findPage(@RequestParam(defaultValue = "0") long after,
+                                           @RequestParam int limit) {
+        validatePage(after, limit);
+        return jsonResponse(filmService.findPageJson(after, limit));
+    }
+
+    @GetMapping("/search")
+    public List<Film> search(@RequestParam String query,
+                             @RequestParam(defaultValue = "20") int limit) {
+        validateSearch(query, limit);
+        return filmService.search(query, limit);
+    }
+
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAll() {
+        return ndjsonWriter.stream(filmService::forEachFilm);
     }
 
     @PostMapping
@@ -61,22 +92,91 @@ public class FilmController {
         return filmService.removeLike(id, userId);
     }
 
-    @GetMapping("/popular")
-    public List<Film> getPopular(@RequestParam(defaultValue = "10") int count) {
+    @PutMapping("/likes")
+    public List<BatchItemResult> addLikes(@RequestBody List<LikeOperation> operations) {
+        validateLikeOperations(operations);
+        return filmService.addLikes(operations);
+    }
+
+    @DeleteMapping("/likes")
+    public List<BatchItemResult> removeLikes(@RequestBody List<LikeOperation> operations) {
+        validateLikeOperations(operations);
+        return filmService.removeLikes(operations);
+    }
+
+    /**
+     * Serves the cached JSON of the popular films. A request whose {@code If-None-Match} matches the ETag
+     * gets 304 from {@link ResponseEntity} handling, without a body. {@code genreId} and {@code year} narrow
+     * the list to the films of the genre and released in the year.
+     */
+    @GetMapping(value = "/popular", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<byte[]> getPopular(@RequestParam(defaultValue = "10") int count,
+                                             @RequestParam(required = false) Integer genreId,
+                                             @RequestParam(required = false) Integer year) {
+        validateCount(count);
+        return popularResponse(filmService.getPopularJson(count, genreId, year));
+    }
+
+    static void validateCount(int count) {
         if (count < 0) {
             throw new ValidationException("Параметр count не может быть отрицательным числом, а у Вас count = " + count);
         }
-        return filmService.getPopular(count);
     }
 
-    private static void nullValidateBody(Film film) {
+    static ResponseEntity<byte[]> popularResponse(PopularFilmsCache.Entry popular) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .eTag(popular.etag())
+                .body(popular.json());
+    }
+
+    static ResponseEntity<byte[]> jsonResponse(byte[] json) {
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(json);
+    }
+
+    static void validatePage(long after, int limit) {
+        if (after < 0) {
+            throw new ValidationException("Параметр after не может быть отрицательным числом, а у Вас after = " + after);
+        }
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new ValidationException("Параметр limit должен быть от 1 до " + MAX_PAGE_SIZE + ", а у Вас limit = "
+                    + limit);
+        }
+    }
+
+    static void validateSearch(String query, int limit) {
+        if (query.isBlank()) {
+            throw new ValidationException("Параметр query не может быть пустым");
+        }
+        if (limit < 1 || limit > MAX_SEARCH_RESULTS) {
+            throw new ValidationException("Параметр limit должен быть от 1 до " + MAX_SEARCH_RESULTS
+                    + ", а у Вас limit = " + limit);
+        }
+    }
+
+    static void validateLikeOperations(List<LikeOperation> operations) {
+        if (operations == null || operations.isEmpty() || operations.size() > MAX_BATCH_SIZE) {
+            throw new ValidationException("Пакет должен содержать от 1 до " + MAX_BATCH_SIZE + " операций");
+        }
+        for (int i = 0; i < operations.size(); i++) {
+            LikeOperation operation = operations.get(i);
+            if (operation == null || operation.getFilmId() == null || operation.getUserId() == null) {
+                log.warn("Received like operation #{} without filmId or userId", i);
+                throw new ValidationException("Операция №" + i + " должна содержать filmId и userId");
+            }
+        }
+    }
+
+    static void nullValidateBody(Film film) {
         if (film == null) {
             log.warn("Request has not contain a body of Film-class");
             throw new ValidationException("Метод PUT должен передавать объект класса Film");
         }
     }
 
-    private static void generalFilmValidate(Film film) {
+    static void generalFilmValidate(Film film) {
         if (film.getName() == null || film.getName().isBlank()) {
             log.warn("Received Film object without name");
             throw new ValidationException("Название не может быть пустым");
@@ -86,9 +186,9 @@ public class FilmController {
                     film.getDescription().length());
             throw new ValidationException("Максимальная длина описания — 200 символов");
         }
-        if (film.getReleaseDate().isBefore(LocalDate.of(1895, 12, 28))) {
+        if (film.getReleaseDate().isBefore(MIN_RELEASE_DATE)) {
             log.warn("Received Film object with release date of {}, release date should not be early than December 28, 1895",
-                    film.getReleaseDate().format(DateTimeFormatter.ofPattern("LL dd, yyyy")));
+                    film.getReleaseDate());
             throw new ValidationException("Дата релиза — не раньше 28 декабря 1895 года");
         }
         if (film.getDuration() <= 0) {
@@ -96,5 +196,14 @@ public class FilmController {
                     film.getDuration());
             throw new ValidationException("Продолжительность фильма должна быть положительным числом");
         }
+        if (film.getMpa() != null && film.getMpa().getId() == null) {
+            log.warn("Received Film object with MPA rating without id");
+            throw new ValidationException("Рейтинг MPA должен содержать id");
+        }
+        if (film.getGenres() != null
+                && film.getGenres().stream().anyMatch(genre -> genre == null || genre.getId() == null)) {
+            log.warn("Received Film object with genre without id");
+            throw new ValidationException("Каждый жанр должен содержать id");
+        }
     }
 }
@@ -0,0 +1,13 @@
+package ru.yandex.practicum.filmorate.controller;
+
+public class ImportResponse {
+    private final long imported;
+
+    public ImportResponse(long imported) {
+        this.imported = imported;
+    }
+
+    public long getImported() {
+        return imported;
+    }
+}
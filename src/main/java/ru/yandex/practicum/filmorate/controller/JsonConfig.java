@@ -0,0 +1,22 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class JsonConfig {
+
+    /**
+     * Spring Boot registers every {@link Module} bean with the application {@code ObjectMapper}, so responses,
+     * the cached film and user JSON and NDJSON streams are all written through Blackbird's generated accessors
+     * instead of reflective getter calls.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "filmorate.json.blackbird", havingValue = "true")
+    public Module blackbirdModule() {
+        return new BlackbirdModule();
+    }
+}
@@ -0,0 +1,27 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.zalando.logbook.HttpRequest;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Predicate;
+
+@Configuration
+public class LogbookConfig {
+
+    /**
+     * Replaces Logbook's default condition, which accepts every request, with a random sample of
+     * {@code filmorate.logging.http-sample-rate} of them; the {@code logbook.predicate.exclude} paths still apply
+     * on top. A request left out is neither buffered nor logged, so it costs a random number only.
+     */
+    @Bean
+    public Predicate<HttpRequest> requestCondition(
+            @Value("${filmorate.logging.http-sample-rate:1.0}") double sampleRate) {
+        if (sampleRate >= 1) {
+            return request -> true;
+        }
+        return request -> ThreadLocalRandom.current().nextDouble() < sampleRate;
+    }
+}
@@ -0,0 +1,107 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.yandex.practicum.filmorate.exceptions.ValidationException;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.LikeOperation;
+import ru.yandex.practicum.filmorate.service.ReactiveFilmService;
+
+import java.util.List;
+
+/**
+ * The {@link FilmController} API for {@code spring.main.web-application-type=reactive}.
+ */
+@RequiredArgsConstructor
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@RequestMapping("/films")
+@Slf4j
+public class ReactiveFilmController {
+
+    private final ReactiveFilmService filmService;
+
+    @GetMapping(produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Flux<Film> findAll() {
+        return filmService.findAll();
+    }
+
+    @GetMapping(params = "limit")
+    public Mono<ResponseEntity<byte[]>> findPage(@RequestParam(defaultValue = "0") long after,
+                                                 @RequestParam int limit) {
+        FilmController.validatePage(after, limit);
+        return filmService.findPageJson(after, limit).map(FilmController::jsonResponse);
+    }
+
+    @GetMapping("/search")
+    public Mono<List<Film>> search(@RequestParam String query,
+                                   @RequestParam(defaultValue = "20") int limit) {
+        FilmController.validateSearch(query, limit);
+        return filmService.search(query, limit);
+    }
+
+    @PostMapping
+    public Mono<Film> create(@RequestBody Film film) {
+        FilmController.nullValidateBody(film);
+        FilmController.generalFilmValidate(film);
+        return filmService.create(film);
+    }
+
+    @PutMapping
+    public Mono<Film> update(@RequestBody Film newFilm) {
+        FilmController.nullValidateBody(newFilm);
+        if (newFilm.getId() == null) {
+            log.warn("Received Film object for updating without id");
+            throw new ValidationException("Id должен быть указан");
+        }
+        FilmController.generalFilmValidate(newFilm);
+        return filmService.update(newFilm);
+    }
+
+    @PutMapping("/{id}/like/{userId}")
+    public Mono<Film> addLike(@PathVariable long id,
+                              @PathVariable long userId) {
+        return filmService.addLike(id, userId);
+    }
+
+    @DeleteMapping("/{id}/like/{userId}")
+    public Mono<Film> removeLike(@PathVariable long id,
+                                 @PathVariable long userId) {
+        return filmService.removeLike(id, userId);
+    }
+
+    @PutMapping("/likes")
+    public Mono<List<BatchItemResult>> addLikes(@RequestBody List<LikeOperation> operations) {
+        FilmController.validateLikeOperations(operations);
+        return filmService.addLikes(operations);
+    }
+
+    @DeleteMapping("/likes")
+    public Mono<List<BatchItemResult>> removeLikes(@RequestBody List<LikeOperation> operations) {
+        FilmController.validateLikeOperations(operations);
+        return filmService.removeLikes(operations);
+    }
+
+    @GetMapping(value = "/popular", produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<byte[]>> getPopular(@RequestParam(defaultValue = "10") int count,
+                                                   @RequestParam(required = false) Integer genreId,
+                                                   @RequestParam(required = false) Integer year) {
+        FilmController.validateCount(count);
+        return filmService.getPopularJson(count, genreId, year).map(FilmController::popularResponse);
+    }
+
+    @GetMapping(value = "/popular", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<Film> streamPopular(@RequestParam(defaultValue = "10") int count,
+                                    @RequestParam(required = false) Integer genreId,
+                                    @RequestParam(required = false) Integer year) {
+        FilmController.validateCount(count);
+        return filmService.getPopular(count, genreId, year);
+    }
+}
@@ -0,0 +1,129 @@
+package ru.yandex.practicum.filmorate.controller;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.yandex.practicum.filmorate.exceptions.ValidationException;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+import ru.yandex.practicum.filmorate.model.Event;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FriendOperation;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.ReactiveFilmService;
+import ru.yandex.practicum.filmorate.service.ReactiveUserService;
+
+import java.util.List;
+
+/**
+ * The {@link UserController} API for {@code spring.main.web-application-type=reactive}.
+ */
+@RequiredArgsConstructor
+@RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+@RequestMapping("/users")
+@Slf4j
+public class ReactiveUserController {
+
+    private final ReactiveUserService userService;
+    private final ReactiveFilmService filmService;
+
+    @Value("${filmorate.users.legacy-friend-response:false}")
+    private final boolean legacyFriendResponse;
+
+    @GetMapping(produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Flux<User> findAll() {
+        return userService.findAll();
+    }
+
+    @GetMapping(params = "limit")
+    public Mono<ResponseEntity<byte[]>> findPage(@RequestParam(defaultValue = "0") long after,
+                                                 @RequestParam int limit) {
+        UserController.validatePage(after, limit);
+        return userService.findPageJson(after, limit).map(FilmController::jsonResponse);
+    }
+
+    @PostMapping
+    public Mono<User> create(@RequestBody User user) {
+        UserController.nullValidateBody(user);
+        UserController.generalUserValidate(user);
+        return userService.create(user);
+    }
+
+    @PutMapping
+    public Mono<User> update(@RequestBody User newUser) {
+        UserController.nullValidateBody(newUser);
+        if (newUser.getId() == null) {
+            log.warn("Received User object for updating without id");
+            throw new ValidationException("Id должен быть указан");
+        }
+        UserController.generalUserValidate(newUser);
+        return userService.update(newUser);
+    }
+
+    @PutMapping("/{id}/friends/{friendId}")
+    public Flux<User> addFriend(@PathVariable long id,
+                                @PathVariable long friendId) {
+        return friendResponse(userService.addFriend(id, friendId));
+    }
+
+    @DeleteMapping("/{id}/friends/{friendId}")
+    public Flux<User> removeFriend(@PathVariable long id,
+                                   @PathVariable long friendId) {
+        return friendResponse(userService.removeFriend(id, friendId));
+    }
+
+    @PutMapping("/friends")
+    public Mono<List<BatchItemResult>> addFriends(@RequestBody List<FriendOperation> operations) {
+        UserController.validateFriendOperations(operations);
+        return userService.addFriends(operations);
+    }
+
+    @DeleteMapping("/friends")
+    public Mono<List<BatchItemResult>> removeFriends(@RequestBody List<FriendOperation> operations) {
+        UserController.validateFriendOperations(operations);
+        return userService.removeFriends(operations);
+    }
+
+    @GetMapping("/{id}/friends")
+    public Flux<User> findFriends(@PathVariable long id) {
+        return userService.findUserFriends(id);
+    }
+
+    @GetMapping("/{id}/friends/common/{otherId}")
+    public Flux<User> findCommonFriends(@PathVariable long id,
+                                        @PathVariable long otherId) {
+        return userService.findCommonFriends(id, otherId);
+    }
+
+    @GetMapping("/{id}/friends/suggestions")
+    public Mono<List<User>> findFriendSuggestions(@PathVariable long id,
+                                                  @RequestParam(defaultValue = "10") int limit) {
+        UserController.validateSuggestionLimit(limit);
+        return userService.findFriendSuggestions(id, limit);
+    }
+
+    @GetMapping("/{id}/feed")
+    public Mono<List<Event>> getFeed(@PathVariable long id,
+                                     @RequestParam(required = false) Long before,
+                                     @RequestParam(defaultValue = "20") int limit) {
+        UserController.validateFeedPage(before, limit);
+        return userService.getFeed(id, before, limit);
+    }
+
+    @GetMapping("/{id}/recommendations")
+    public Mono<List<Film>> getRecommendations(@PathVariable long id,
+                                               @RequestParam(defaultValue = "10") int limit) {
+        UserController.validateRecommendationLimit(limit);
+        return filmService.getRecommendations(id, limit);
+    }
+
+    private Flux<User> friendResponse(Mono<List<User>> affectedUsers) {
+        return affectedUsers.flatMapMany(users -> legacyFriendResponse ? userService.findAll() : Flux.fromIterable(users));
+    }
+}
@@ -2,26 +2,60 @@ package ru.yandex.practicum.filmorate.controller;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.yandex.practicum.filmorate.exceptions.ValidationException;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+import ru.yandex.practicum.filmorate.model.Event;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FriendOperation;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
 import ru.yandex.practicum.filmorate.service.UserService;
 
 import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
 import java.util.Collection;
+import java.util.List;
 
 @RequiredArgsConstructor
 @RestController
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.SERVLET)
 @RequestMapping("/users")
 @Slf4j
 public class UserController {
 
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int MAX_BATCH_SIZE = 10_000;
+
     private final UserService userService;
+    private final NdjsonWriter ndjsonWriter;
+    private final FilmService filmService;
+
+    /**
+     * Restores the former response of friend writes: the whole user list instead of the two affected users.
+     */
+    @Value("${filmorate.users.legacy-friend-response:false}")
+    private final boolean legacyFriendResponse;
 
     @GetMapping
-    public Collection<User> findAll() {
-        return userService.findAll();
+    public ResponseEntity<byte[]> findAll() {
+        return FilmController.jsonResponse(userService.findAllJson());
+    }
+
+    @GetMapping(params = "limit")
+    public ResponseEntity<byte[]> findPage(@RequestParam(defaultValue = "0") long after,
+                                           @RequestParam int limit) {
+        validatePage(after, limit);
+        return FilmController.jsonResponse(userService.findPageJson(after, limit));
+    }
+
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAll() {
+        return ndjsonWriter.stream(userService::forEachUser);
     }
 
     @PostMapping
@@ -45,13 +79,27 @@ public class UserController {
     @PutMapping("/{id}/friends/{friendId}")
     public Collection<User> addFriend(@PathVariable long id,
                                       @PathVariable long friendId) {
-        return userService.addFriend(id, friendId);
+        List<User> affectedUsers = userService.addFriend(id, friendId);
+        return legacyFriendResponse ? userService.findAll() : affectedUsers;
     }
 
     @DeleteMapping("/{id}/friends/{friendId}")
     public Collection<User> removeFriend(@PathVariable long id,
                                          @PathVariable long friendId) {
-        return userService.removeFriend(id, friendId);
+        List<User> affectedUsers = userService.removeFriend(id, friendId);
+        return legacyFriendResponse ? userService.findAll() : affectedUsers;
+    }
+
+    @PutMapping("/friends")
+    public List<BatchItemResult> addFriends(@RequestBody List<FriendOperation> operations) {
+        validateFriendOperations(operations);
+        return userService.addFriends(operations);
+    }
+
+    @DeleteMapping("/friends")
+    public List<BatchItemResult> removeFriends(@RequestBody List<FriendOperation> operations) {
+        validateFriendOperations(operations);
+        return userService.removeFriends(operations);
     }
 
     @GetMapping("/{id}/friends")
@@ -65,14 +113,84 @@ public class UserController {
         return userService.findCommonFriends(id, otherId);
     }
 
-    private static void nullValidateBody(User user) {
+    @GetMapping("/{id}/friends/suggestions")
+    public List<User> findFriendSuggestions(@PathVariable long id,
+                                            @RequestParam(defaultValue = "10") int limit) {
+        validateSuggestionLimit(limit);
+        return userService.findFriendSuggestions(id, limit);
+    }
+
+    @GetMapping("/{id}/recommendations")
+    public List<Film> getRecommendations(@PathVariable long id,
+                                         @RequestParam(defaultValue = "10") int limit) {
+        validateRecommendationLimit(limit);
+        return filmService.getRecommendations(id, limit);
+    }
+
+    @GetMapping("/{id}/feed")
+    public List<Event> getFeed(@PathVariable long id,
+                               @RequestParam(required = false) Long before,
+                               @RequestParam(defaultValue = "20") int limit) {
+        validateFeedPage(before, limit);
+        return userService.getFeed(id, before, limit);
+    }
+
+    static void validatePage(long after, int limit) {
+        if (after < 0) {
+            throw new ValidationException("Параметр after не может быть отрицательным числом, а у Вас after = " + after);
+        }
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new ValidationException("Параметр limit должен быть от 1 до " + MAX_PAGE_SIZE + ", а у Вас limit = "
+                    + limit);
+        }
+    }
+
+    static void validateFeedPage(Long before, int limit) {
+        if (before != null && before < 1) {
+            throw new ValidationException("Параметр before должен быть положительным числом, а у Вас before = "
+                    + before);
+        }
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new ValidationException("Параметр limit должен быть от 1 до " + MAX_PAGE_SIZE + ", а у Вас limit = "
+                    + limit);
+        }
+    }
+
+    static void validateSuggestionLimit(int limit) {
+        if (limit < 1 || limit > UserService.MAX_SUGGESTIONS) {
+            throw new ValidationException("Параметр limit должен быть от 1 до " + UserService.MAX_SUGGESTIONS
+                    + ", а у Вас limit = " + limit);
+        }
+    }
+
+    static void validateRecommendationLimit(int limit) {
+        if (limit < 1 || limit > FilmService.MAX_RECOMMENDATIONS) {
+            throw new ValidationException("Параметр limit должен быть от 1 до " + FilmService.MAX_RECOMMENDATIONS
+                    + ", а у Вас limit = " + limit);
+        }
+    }
+
+    static void validateFriendOperations(List<FriendOperation> operations) {
+        if (operations == null || operations.isEmpty() || operations.size() > MAX_BATCH_SIZE) {
+            throw new ValidationException("Пакет должен содержать от 1 до " + MAX_BATCH_SIZE + " операций");
+        }
+        for (int i = 0; i < operations.size(); i++) {
+            FriendOperation operation = operations.get(i);
+            if (operation == null || operation.getUserId() == null || operation.getFriendId() == null) {
+                log.warn("Received friend operation #{} without userId or friendId", i);
+                throw new ValidationException("Операция №" + i + " должна содержать userId и friendId");
+            }
+        }
+    }
+
+    static void nullValidateBody(User user) {
         if (user == null) {
             log.warn("Request has not contain a body of User-class");
             throw new ValidationException("Метод PUT должен передавать объект класса User");
         }
     }
 
-    private static void generalUserValidate(User user) {
+    static void generalUserValidate(User user) {
         if (user.getEmail() == null || user.getEmail().isBlank()) {
             log.warn("Received User object without email");
             throw new ValidationException("Электронная почта не может быть пустой");
@@ -85,11 +203,10 @@ public class UserController {
             log.warn("Received User object without login or login contains char ' '");
             throw new ValidationException("Логин не может быть пустым и содержать пробелы");
         }
-        if (user.getBirthday().isAfter(LocalDate.now())) {
+        LocalDate today = LocalDate.now();
+        if (user.getBirthday().isAfter(today)) {
 
-            log.warn("Received User object with birthday {} later than date now {}",
-                    user.getBirthday().format(DateTimeFormatter.ofPattern("dd.MM.yyyy")),
-                    LocalDate.now().format(DateTimeFormatter.ofPattern("dd.MM.yyyy")));
+            log.warn("Received User object with birthday {} later than date now {}", user.getBirthday(), today);
             throw new ValidationException("Дата рождения не может быть в будущем");
         }
     }
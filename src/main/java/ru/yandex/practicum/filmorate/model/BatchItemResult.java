@@ -0,0 +1,24 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.Value;
+
+/**
+ * Outcome of one operation of a batch request, reported in the position of the operation: {@code status}
+ * is the HTTP status the operation would have got on its own, {@code error} is set if it was not applied.
+ */
+@Value
+public class BatchItemResult {
+
+    private static final BatchItemResult APPLIED = new BatchItemResult(200, null);
+
+    int status;
+    String error;
+
+    public static BatchItemResult applied() {
+        return APPLIED;
+    }
+
+    public static BatchItemResult notFound(String error) {
+        return new BatchItemResult(404, error);
+    }
+}
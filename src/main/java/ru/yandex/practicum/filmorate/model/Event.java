@@ -0,0 +1,29 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One entry of a user's feed: the user liked or unliked the film {@code entityId}, or made or ended the
+ * friendship with the user {@code entityId}. Ids grow with time across all users.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class Event {
+    private Long eventId;
+    private Long timestamp;
+    private Long userId;
+    private EventType eventType;
+    private Operation operation;
+    private Long entityId;
+
+    public enum EventType {
+        LIKE, FRIEND
+    }
+
+    public enum Operation {
+        ADD, REMOVE
+    }
+}
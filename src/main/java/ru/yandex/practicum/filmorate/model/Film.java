@@ -3,6 +3,7 @@ package ru.yandex.practicum.filmorate.model;
 import lombok.Data;
 
 import java.time.LocalDate;
+import java.util.List;
 import java.util.Set;
 
 /**
@@ -15,5 +16,10 @@ public class Film {
     private String description;
     private LocalDate releaseDate;
     private Long duration;
+    private Mpa mpa;
+    /**
+     * Ordered by id, without repeats.
+     */
+    private List<Genre> genres;
     private Set<Long> userLikes;
 }
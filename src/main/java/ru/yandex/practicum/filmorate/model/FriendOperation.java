@@ -0,0 +1,16 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One friend addition or removal of a batch request.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FriendOperation {
+    private Long userId;
+    private Long friendId;
+}
@@ -0,0 +1,16 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Film genre. Requests may give the id only; responses carry the name too.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class Genre {
+    private Integer id;
+    private String name;
+}
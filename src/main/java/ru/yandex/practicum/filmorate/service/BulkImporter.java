@@ -0,0 +1,206 @@
+package ru.yandex.practicum.filmorate.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.Module;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.exceptions.ValidationException;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.storage.BulkImport;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+/**
+ * Streams records from NDJSON or CSV into a {@link BulkImport}. Records are parsed one at a time on the
+ * calling thread and validated; full chunks are stored by a pool of workers while parsing goes on. At most
+ * two chunks per worker are in flight, so a large upload never sits in memory as a whole.
+ */
+@Service
+@Slf4j
+public class BulkImporter {
+
+    public enum Format {
+        NDJSON, CSV
+    }
+
+    private static final int CHUNK_SIZE = 10_000;
+
+    /**
+     * Separates the values of list columns such as {@code userLikes} or {@code friends} in CSV.
+     */
+    public static final String CSV_ARRAY_SEPARATOR = ";";
+
+    /**
+     * Writes the MPA rating and genres of films in CSV as their ids, and reads them back; names are not stored.
+     */
+    public static final Module CSV_MODULE = new SimpleModule("filmorate-csv")
+            .addSerializer(Mpa.class, new IdSerializer<>(Mpa::getId))
+            .addSerializer(Genre.class, new IdSerializer<>(Genre::getId))
+            .addDeserializer(Mpa.class, new IdDeserializer<>(id -> new Mpa(id, null)))
+            .addDeserializer(Genre.class, new IdDeserializer<>(id -> new Genre(id, null)));
+
+    private final ObjectMapper objectMapper;
+    private final CsvMapper csvMapper;
+    private final int parallelism;
+    private final ExecutorService workers;
+
+    public BulkImporter(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+        this.csvMapper = CsvMapper.builder()
+                .findAndAddModules()
+                .addModule(CSV_MODULE)
+                .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+                .build();
+        this.parallelism = Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(parallelism, task -> {
+            Thread thread = new Thread(task, "bulk-import-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Imports every record of {@code in}; {@code validator} rejects a record by throwing
+     * {@link ValidationException}. On the first invalid record the import stops: the chunks stored before it
+     * stay imported and the target is finished either way.
+     *
+     * @return the number of imported records
+     */
+    public <T> long importRecords(InputStream in, Format format, Class<T> type, Consumer<T> validator,
+                                  BulkImport<T> target) {
+        Semaphore inFlight = new Semaphore(2 * parallelism);
+        AtomicReference<RuntimeException> failure = new AtomicReference<>();
+        long parsed = 0;
+        try (MappingIterator<T> records = reader(format, type).readValues(in)) {
+            List<T> chunk = new ArrayList<>(CHUNK_SIZE);
+            while (failure.get() == null && records.hasNextValue()) {
+                T record = records.nextValue();
+                parsed++;
+                try {
+                    validator.accept(record);
+                } catch (ValidationException e) {
+                    throw new ValidationException("Запись №" + parsed + ": " + e.getMessage());
+                }
+                chunk.add(record);
+                if (chunk.size() == CHUNK_SIZE) {
+                    submit(chunk, target, inFlight, failure);
+                    chunk = new ArrayList<>(CHUNK_SIZE);
+                }
+            }
+            if (!chunk.isEmpty()) {
+                submit(chunk, target, inFlight, failure);
+            }
+        } catch (IOException e) {
+            String reason = e instanceof JsonProcessingException parseError ? parseError.getOriginalMessage()
+                    : e.getMessage();
+            throw new ValidationException("Не удалось прочитать запись №" + (parsed + 1) + ": " + reason);
+        } finally {
+            inFlight.acquireUninterruptibly(2 * parallelism);
+            target.finish();
+        }
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+        log.info("Imported {} records of {}", parsed, type.getSimpleName());
+        return parsed;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        workers.shutdown();
+    }
+
+    private <T> void submit(List<T> chunk, BulkImport<T> target, Semaphore inFlight,
+                            AtomicReference<RuntimeException> failure) {
+        inFlight.acquireUninterruptibly();
+        workers.execute(() -> {
+            try {
+                if (failure.get() == null) {
+                    target.add(chunk);
+                }
+            } catch (RuntimeException e) {
+                failure.compareAndSet(null, e);
+            } finally {
+                inFlight.release();
+            }
+        });
+    }
+
+    private ObjectReader reader(Format format, Class<?> type) {
+        if (format == Format.CSV) {
+            return csvMapper.readerFor(type).with(CsvSchema.emptySchema()
+                    .withHeader()
+                    .withArrayElementSeparator(CSV_ARRAY_SEPARATOR));
+        }
+        return objectMapper.readerFor(type);
+    }
+
+    private static class IdSerializer<T> extends StdSerializer<T> {
+
+        private final Function<T, Integer> id;
+
+        @SuppressWarnings("unchecked")
+        IdSerializer(Function<T, Integer> id) {
+            super((Class<T>) Object.class);
+            this.id = id;
+        }
+
+        @Override
+        public void serialize(T value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            Integer valueId = id.apply(value);
+            if (valueId == null) {
+                gen.writeNull();
+            } else {
+                gen.writeNumber(valueId);
+            }
+        }
+    }
+
+    private static class IdDeserializer<T> extends StdDeserializer<T> {
+
+        private final IntFunction<T> factory;
+
+        IdDeserializer(IntFunction<T> factory) {
+            super(Object.class);
+            this.factory = factory;
+        }
+
+        @Override
+        public T deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            String text = p.getValueAsString();
+            if (text == null || text.isBlank()) {
+                return null;
+            }
+            try {
+                return factory.apply(Integer.parseInt(text.trim()));
+            } catch (NumberFormatException e) {
+                throw ctxt.weirdStringException(text, handledType(), "not an id");
+            }
+        }
+    }
+}
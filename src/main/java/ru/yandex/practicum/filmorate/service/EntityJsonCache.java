@@ -0,0 +1,186 @@
+package ru.yandex.practicum.filmorate.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.util.unit.DataSize;
+
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The serialized JSON of single entities by id, from which list responses are put together without reading and
+ * serializing the entities again. Every change of an entity must be reported with {@link #changed} once it is
+ * applied.
+ * <p>
+ * A fragment carries the change count of its id stripe read before the entity was read, and is only served while
+ * the count stays the same: a fragment read before a change can be put after it, but is never served. Once the
+ * fragments take {@code maxSize}, new ones are served but not kept until changes free room.
+ */
+public abstract class EntityJsonCache<T> {
+
+    private static final int STRIPES = 1 << 14;
+
+    private final ObjectWriter objectWriter;
+    private final long maxBytes;
+
+    private final Map<Long, Fragment> fragments = new ConcurrentHashMap<>();
+    private final AtomicLongArray changes = new AtomicLongArray(STRIPES);
+    private final AtomicLong bytes = new AtomicLong();
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter invalidations;
+
+    protected EntityJsonCache(Class<T> type, String entity, ObjectMapper objectMapper, MeterRegistry meterRegistry,
+                              DataSize maxSize) {
+        this.objectWriter = objectMapper.writerFor(type);
+        this.maxBytes = maxSize.toBytes();
+        this.hits = Counter.builder("filmorate.json.cache.requests").tag("entity", entity).tag("result", "hit")
+                .register(meterRegistry);
+        this.misses = Counter.builder("filmorate.json.cache.requests").tag("entity", entity).tag("result", "miss")
+                .register(meterRegistry);
+        this.invalidations = Counter.builder("filmorate.json.cache.invalidations").tag("entity", entity)
+                .register(meterRegistry);
+        Gauge.builder("filmorate.json.cache.bytes", bytes, AtomicLong::get).tag("entity", entity)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Returns the JSON array of the entities with the given ids in the order of {@code ids}, skipping unknown ids.
+     * Only the entities without a cached fragment are read, with one {@link #load} call.
+     */
+    public byte[] write(long[] ids) {
+        byte[][] parts = new byte[ids.length][];
+        int missing = 0;
+        for (int i = 0; i < ids.length; i++) {
+            Fragment fragment = fragments.get(ids[i]);
+            if (fragment != null && fragment.stamp() == changes.get(stripe(ids[i]))) {
+                parts[i] = fragment.json();
+            } else {
+                missing++;
+            }
+        }
+        hits.increment(ids.length - missing);
+        if (missing > 0) {
+            misses.increment(missing);
+            serializeMissing(ids, parts, missing);
+        }
+        return join(parts);
+    }
+
+    public void changed(long id) {
+        changes.incrementAndGet(stripe(id));
+        remove(id);
+    }
+
+    public void clear() {
+        for (int stripe = 0; stripe < STRIPES; stripe++) {
+            changes.incrementAndGet(stripe);
+        }
+        fragments.keySet().forEach(this::remove);
+    }
+
+    /**
+     * Reads the entities with the given ids in the order of {@code ids}, skipping unknown ids.
+     */
+    protected abstract List<T> load(long[] ids);
+
+    protected abstract long idOf(T entity);
+
+    private void serializeMissing(long[] ids, byte[][] parts, int missing) {
+        long[] missingIds = new long[missing];
+        long[] stamps = new long[missing];
+        int[] positions = new int[missing];
+        for (int i = 0, j = 0; i < ids.length; i++) {
+            if (parts[i] == null) {
+                missingIds[j] = ids[i];
+                stamps[j] = changes.get(stripe(ids[i]));
+                positions[j++] = i;
+            }
+        }
+
+        int j = 0;
+        for (T entity : load(missingIds)) {
+            long id = idOf(entity);
+            while (missingIds[j] != id) {
+                j++;
+            }
+            byte[] json = serialize(entity);
+            parts[positions[j]] = json;
+            keep(id, stamps[j], json);
+            j++;
+        }
+    }
+
+    /**
+     * Puts the fragment unless it is already outdated, the cache is full, or a racing request put a newer one.
+     */
+    private void keep(long id, long stamp, byte[] json) {
+        if (changes.get(stripe(id)) != stamp || bytes.get() + json.length > maxBytes) {
+            return;
+        }
+        fragments.compute(id, (key, previous) -> {
+            if (previous != null && previous.stamp() > stamp) {
+                return previous;
+            }
+            bytes.addAndGet(json.length - (previous == null ? 0 : previous.json().length));
+            return new Fragment(json, stamp);
+        });
+    }
+
+    private void remove(long id) {
+        Fragment removed = fragments.remove(id);
+        if (removed != null) {
+            bytes.addAndGet(-removed.json().length);
+            invalidations.increment();
+        }
+    }
+
+    private byte[] serialize(T entity) {
+        try {
+            return objectWriter.writeValueAsBytes(entity);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static byte[] join(byte[][] parts) {
+        int length = 2;
+        int count = 0;
+        for (byte[] part : parts) {
+            if (part != null) {
+                length += part.length;
+                count++;
+            }
+        }
+        byte[] json = new byte[length + Math.max(count - 1, 0)];
+        json[0] = '[';
+        int offset = 1;
+        for (byte[] part : parts) {
+            if (part != null) {
+                if (offset > 1) {
+                    json[offset++] = ',';
+                }
+                System.arraycopy(part, 0, json, offset, part.length);
+                offset += part.length;
+            }
+        }
+        json[offset] = ']';
+        return json;
+    }
+
+    private static int stripe(long id) {
+        return (int) (id ^ id >>> 32) & (STRIPES - 1);
+    }
+
+    private record Fragment(byte[] json, long stamp) {
+    }
+}
@@ -0,0 +1,33 @@
+package ru.yandex.practicum.filmorate.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+
+import java.util.List;
+
+@Component
+public class FilmJsonCache extends EntityJsonCache<Film> {
+
+    private final FilmStorage filmStorage;
+
+    public FilmJsonCache(FilmStorage filmStorage, ObjectMapper objectMapper, MeterRegistry meterRegistry,
+                         @Value("${filmorate.json.cache-size:64MB}") DataSize maxSize) {
+        super(Film.class, "film", objectMapper, meterRegistry, maxSize);
+        this.filmStorage = filmStorage;
+    }
+
+    @Override
+    protected List<Film> load(long[] ids) {
+        return filmStorage.findByIds(ids);
+    }
+
+    @Override
+    protected long idOf(Film film) {
+        return film.getId();
+    }
+}
@@ -1,44 +1,192 @@
 package ru.yandex.practicum.filmorate.service;
 
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.LikeOperation;
+import ru.yandex.practicum.filmorate.storage.BulkImport;
 import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
 
 @RequiredArgsConstructor
 @Service
 public class FilmService {
 
+    static final int STREAM_CHUNK_SIZE = 500;
+    public static final int MAX_RECOMMENDATIONS = 100;
+
     public final FilmStorage inMemoryFilmStorage;
+    private final PopularFilmsCache popularFilmsCache;
+    private final RecommendationsCache recommendationsCache;
+    private final FilmJsonCache filmJsonCache;
 
+    @Timed(MetricsConfig.FILM_SERVICE_TIMER)
     public Collection<Film> findAll() {
         return inMemoryFilmStorage.findAll();
     }
 
+    @Timed(MetricsConfig.FILM_SERVICE_TIMER)
+    public List<Film> findPage(long afterId, int limit) {
+        return inMemoryFilmStorage.findPage(afterId, limit);
+    }
+
+    /**
+     * Returns {@link #findAll} as JSON, put together from the cached JSON of every film.
+     */
+    @Timed(MetricsConfig.FILM_SERVICE_TIMER)
+    public byte[] findAllJson() {
+        return filmJsonCache.write(inMemoryFilmStorage.findIds(0, Integer.MAX_VALUE));
+    }
+
+    /**
+     * Returns {@link #findPage} as JSON, put together from the cached JSON of every film.
+     */
+    @Timed(MetricsConfig.FILM_SERVICE_TIMER)
+    public byte[] findPageJson(long afterId, int limit) {
+        return filmJsonCache.write(inMemoryFilmStorage.findIds(afterId, limit));
+    }
+
+    /**
+     * Passes every film to {@code action} in id order, reading the storage page by page
+     * instead of materializing the whole collection.
+     */
+    @Timed(MetricsConfig.FILM_SERVICE_TIMER)
+    public void forEachFilm(Consumer<Film> action) {
+        long afterId = 0;
+        List<Film> page;
+        do {
+            page = inMemoryFilmStorage.findPage(afterId, STREAM_CHUNK_SIZE);
+            page.forEach(action);
+            if (!page.isEmpty()) {
+                afterId = page.getLast().getId();
+            }
+        } while (page.size() == STREAM_CHUNK_SIZE);
+    }
+
+    @Timed(MetricsConfig.FILM_SERVICE_TIMER)
     public Film create(Film film) {
-        return inMemoryFilmStorage.create(film);
+        return changed(inMemoryFilmStorage.create(film));
     }
 
+    @Timed(MetricsConfig.FILM_SERVICE_TIMER)
     public Film update(Film newFilm) {
-        return inMemoryFilmStorage.update(newFilm);
+        return changed(inMemoryFilmStorage.update(newFilm));
     }
 
+    @Timed(MetricsConfig.FILM_SERVICE_TIMER)
     public Film addLike(long id, long userId) throws NotFoundException {
 
-        return inMemoryFilmStorage.addLike(id, userId);
+        return likesChanged(userId, changed(inMemoryFilmStorage.addLike(id, userId)));
     }
 
+    @Timed(MetricsConfig.FILM_SERVICE_TIMER)
     public Film removeLike(long id, long userId) throws NotFoundException {
 
-        return inMemoryFilmStorage.removeLike(id, userId);
+        return likesChanged(userId, changed(inMemoryFilmStorage.removeLike(id, userId)));
+    }
+
+    @Timed(MetricsConfig.FILM_SERVICE_TIMER)
+    public List<BatchItemResult> addLikes(List<LikeOperation> operations) {
+        return changed(operations, inMemoryFilmStorage.addLikes(operations));
+    }
+
+    @Timed(MetricsConfig.FILM_SERVICE_TIMER)
+    public List<BatchItemResult> removeLikes(List<LikeOperation> operations) {
+        return changed(operations, inMemoryFilmStorage.removeLikes(operations));
+    }
+
+    @Timed(value = MetricsConfig.POPULAR_TIMER, histogram = true, percentiles = {0.5, 0.95, 0.99})
+    public List<Film> getPopular(int count, Integer genreId, Integer year) {
+
+        return inMemoryFilmStorage.getPopular(count, genreId, year);
+    }
+
+    /**
+     * Returns the serialized {@link #getPopular} response, cached until a like or an edit changes it.
+     */
+    @Timed(value = MetricsConfig.POPULAR_TIMER, histogram = true, percentiles = {0.5, 0.95, 0.99})
+    public PopularFilmsCache.Entry getPopularJson(int count, Integer genreId, Integer year) {
+        return popularFilmsCache.get(count, genreId, year);
+    }
+
+    @Timed(MetricsConfig.FILM_SERVICE_TIMER)
+    public List<Film> search(String query, int limit) {
+        return inMemoryFilmStorage.search(query, limit);
+    }
+
+    /**
+     * Returns up to {@code limit} films liked by the users whose likes are the most like the user's, cached
+     * until the user's likes change.
+     */
+    @Timed(MetricsConfig.FILM_SERVICE_TIMER)
+    public List<Film> getRecommendations(long userId, int limit) throws NotFoundException {
+        long[] filmIds = recommendationsCache.get(userId);
+        return inMemoryFilmStorage.findByIds(filmIds.length > limit ? Arrays.copyOf(filmIds, limit) : filmIds);
+    }
+
+    @Timed(MetricsConfig.FILM_SERVICE_TIMER)
+    public BulkImport<Film> importFilms() {
+        BulkImport<Film> target = inMemoryFilmStorage.importFilms();
+        return new BulkImport<>() {
+            @Override
+            public void add(List<Film> chunk) {
+                target.add(chunk);
+            }
+
+            @Override
+            public void finish() {
+                try {
+                    target.finish();
+                } finally {
+                    filmJsonCache.clear();
+                    popularFilmsCache.clear();
+                    recommendationsCache.clear();
+                }
+            }
+        };
     }
 
-    public List<Film> getPopular(int count) {
+    /**
+     * The film JSON goes first: popular lists rebuilt after the film left them are put together from it.
+     */
+    private Film changed(Film film) {
+        filmJsonCache.changed(film.getId());
+        popularFilmsCache.filmChanged(film);
+        return film;
+    }
+
+    private Film likesChanged(long userId, Film film) {
+        recommendationsCache.likesChanged(userId);
+        return film;
+    }
 
-        return inMemoryFilmStorage.getPopular(count);
+    /**
+     * Re-reads the films the applied operations touched, with one query, to pass their new like counts
+     * to the cache, and drops the recommendations of the users who liked or unliked them.
+     */
+    private List<BatchItemResult> changed(List<LikeOperation> operations, List<BatchItemResult> results) {
+        long[] filmIds = IntStream.range(0, results.size())
+                .filter(i -> results.get(i).getError() == null)
+                .mapToLong(i -> operations.get(i).getFilmId())
+                .distinct()
+                .toArray();
+        if (filmIds.length > 0) {
+            Arrays.stream(filmIds).forEach(filmJsonCache::changed);
+            inMemoryFilmStorage.findByIds(filmIds).forEach(popularFilmsCache::filmChanged);
+        }
+        IntStream.range(0, results.size())
+                .filter(i -> results.get(i).getError() == null)
+                .mapToLong(i -> operations.get(i).getUserId())
+                .distinct()
+                .forEach(recommendationsCache::likesChanged);
+        return results;
     }
 }
@@ -0,0 +1,124 @@
+package ru.yandex.practicum.filmorate.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Ranked friend suggestion ids per user, the least recently used evicted first. Every entry holds the
+ * {@link UserService#MAX_SUGGESTIONS} best ids, so requests with any {@code limit} share it.
+ * <p>
+ * A friendship between two users changes the suggestions of exactly these two and of their friends, so only
+ * their entries are dropped. They are dropped rather than updated: an entry keeps only the best ids, not the
+ * mutual friend counts of every candidate, so it cannot tell whether a candidate gaining or losing one mutual
+ * friend enters or leaves it. A popular user's friendship therefore drops the entries of all its friends, which
+ * may be most of the cache; they are all stale, and the walk is bounded by the cache, not by the number of
+ * friends. As in {@link PopularFilmsCache}, an entry built while friendships change is served but not kept.
+ */
+@Component
+public class FriendSuggestionsCache {
+
+    static final int MAX_ENTRIES = 4096;
+
+    private final UserStorage userStorage;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<Long, long[]> entries = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, long[]> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+    private final AtomicLong changes = new AtomicLong();
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter invalidations;
+
+    public FriendSuggestionsCache(UserStorage userStorage, MeterRegistry meterRegistry) {
+        this.userStorage = userStorage;
+        this.hits = Counter.builder("filmorate.friend.suggestions.cache.requests").tag("result", "hit")
+                .register(meterRegistry);
+        this.misses = Counter.builder("filmorate.friend.suggestions.cache.requests").tag("result", "miss")
+                .register(meterRegistry);
+        this.invalidations = Counter.builder("filmorate.friend.suggestions.cache.invalidations")
+                .register(meterRegistry);
+    }
+
+    public long[] get(long userId) {
+        long[] cached;
+        lock.lock();
+        try {
+            cached = entries.get(userId);
+        } finally {
+            lock.unlock();
+        }
+        if (cached != null) {
+            hits.increment();
+            return cached;
+        }
+        misses.increment();
+
+        long changesBefore = changes.get();
+        long[] built = userStorage.findFriendSuggestions(userId, UserService.MAX_SUGGESTIONS);
+        lock.lock();
+        try {
+            if (changes.get() == changesBefore) {
+                entries.put(userId, built);
+            }
+        } finally {
+            lock.unlock();
+        }
+        return built;
+    }
+
+    /**
+     * Drops the entries of the users whose friendships changed and of their friends. Must be called with the
+     * users as read after the change. When they have more friends than there are entries, the entries are
+     * walked instead of the friends, so the lock is held for at most {@link #MAX_ENTRIES} steps.
+     */
+    public void friendsChanged(Collection<User> users) {
+        changes.incrementAndGet();
+        lock.lock();
+        try {
+            int before = entries.size();
+            long fanOut = 0;
+            for (User user : users) {
+                fanOut += 1 + (user.getFriends() == null ? 0 : user.getFriends().size());
+            }
+            if (fanOut > before) {
+                entries.keySet().removeIf(id -> users.stream().anyMatch(user -> user.getId().equals(id)
+                        || user.getFriends() != null && user.getFriends().contains(id)));
+            } else {
+                for (User user : users) {
+                    entries.remove(user.getId());
+                    if (user.getFriends() != null) {
+                        user.getFriends().forEach(entries::remove);
+                    }
+                }
+            }
+            invalidations.increment(before - entries.size());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void clear() {
+        changes.incrementAndGet();
+        lock.lock();
+        try {
+            invalidations.increment(entries.size());
+            entries.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+}
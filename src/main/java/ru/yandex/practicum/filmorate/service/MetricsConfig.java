@@ -0,0 +1,54 @@
+package ru.yandex.practicum.filmorate.service;
+
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+@Configuration
+public class MetricsConfig {
+
+    static final String FILM_SERVICE_TIMER = "filmorate.film.service";
+    static final String USER_SERVICE_TIMER = "filmorate.user.service";
+
+    /**
+     * The hot reads get timers of their own, with histograms: Prometheus requires one set of tags per
+     * metric name, and only these two are worth the buckets.
+     */
+    static final String POPULAR_TIMER = "filmorate.film.popular";
+    static final String COMMON_FRIENDS_TIMER = "filmorate.user.common.friends";
+
+    /**
+     * Makes {@code @Timed} work on the services: every call is timed with {@code class}, {@code method} and
+     * {@code exception} tags, so the timer counts also serve as per-method call and error counters. The services
+     * annotate each public method, not the class: the aspect times a method once for its own annotation and once
+     * more for its class's, which would count the hot reads under both timers.
+     */
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry meterRegistry) {
+        return new TimedAspect(meterRegistry);
+    }
+
+    /**
+     * Storage sizes, read on every scrape. The in-memory storages keep running counts; the JDBC ones run
+     * {@code COUNT(*)} queries.
+     */
+    @Bean
+    public MeterBinder storageMetrics(FilmStorage filmStorage, UserStorage userStorage) {
+        return meterRegistry -> {
+            Gauge.builder("filmorate.films", filmStorage, FilmStorage::count)
+                    .register(meterRegistry);
+            Gauge.builder("filmorate.likes", filmStorage, FilmStorage::countLikes)
+                    .register(meterRegistry);
+            Gauge.builder("filmorate.users", userStorage, UserStorage::count)
+                    .register(meterRegistry);
+            Gauge.builder("filmorate.friend.links", userStorage, UserStorage::countFriendLinks)
+                    .description("Friendships counted once per direction")
+                    .register(meterRegistry);
+        };
+    }
+}
@@ -0,0 +1,182 @@
+package ru.yandex.practicum.filmorate.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32C;
+
+/**
+ * Serialized {@code GET /films/popular} responses per {@code count} and filter, the least recently used evicted
+ * first. The JSON is put together from the cached JSON of the listed films.
+ * <p>
+ * An entry remembers the films it lists and the rank of its last film, so a changed film only drops the
+ * entries it is listed in or would now enter, and it can only enter the lists whose filter it matches. An entry
+ * built while a film changes is served but not kept: it may have read the film before the change.
+ */
+@Component
+public class PopularFilmsCache {
+
+    static final int MAX_ENTRIES = 128;
+
+    private final FilmStorage filmStorage;
+    private final FilmJsonCache filmJsonCache;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+    private final AtomicLong changes = new AtomicLong();
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter invalidations;
+
+    public PopularFilmsCache(FilmStorage filmStorage, FilmJsonCache filmJsonCache, MeterRegistry meterRegistry) {
+        this.filmStorage = filmStorage;
+        this.filmJsonCache = filmJsonCache;
+        this.hits = Counter.builder("filmorate.popular.cache.requests").tag("result", "hit")
+                .register(meterRegistry);
+        this.misses = Counter.builder("filmorate.popular.cache.requests").tag("result", "miss")
+                .register(meterRegistry);
+        this.invalidations = Counter.builder("filmorate.popular.cache.invalidations").register(meterRegistry);
+        Gauge.builder("filmorate.popular.cache.hit.ratio", this, PopularFilmsCache::hitRatio)
+                .register(meterRegistry);
+        Gauge.builder("filmorate.popular.cache.size", this, PopularFilmsCache::size)
+                .register(meterRegistry);
+    }
+
+    public Entry get(int count) {
+        return get(count, null, null);
+    }
+
+    /**
+     * @param genreId the genre the films must have, or {@code null} for any
+     * @param year    the year the films must be released in, or {@code null} for any
+     */
+    public Entry get(int count, Integer genreId, Integer year) {
+        Key key = new Key(count, genreId, year);
+        Entry cached;
+        lock.lock();
+        try {
+            cached = entries.get(key);
+        } finally {
+            lock.unlock();
+        }
+        if (cached != null) {
+            hits.increment();
+            return cached;
+        }
+        misses.increment();
+
+        long changesBefore = changes.get();
+        List<Film> films = filmStorage.getPopular(count, genreId, year);
+        Entry built = Entry.of(count, films, filmJsonCache.write(films.stream().mapToLong(Film::getId).toArray()));
+        lock.lock();
+        try {
+            if (changes.get() == changesBefore) {
+                entries.put(key, built);
+            }
+        } finally {
+            lock.unlock();
+        }
+        return built;
+    }
+
+    /**
+     * Drops the entries the film is listed in or now outranks the last film of. Must be called with the film
+     * as read after the change.
+     */
+    public void filmChanged(Film film) {
+        changes.incrementAndGet();
+        long filmId = film.getId();
+        int likes = likesOf(film);
+        lock.lock();
+        try {
+            int before = entries.size();
+            entries.entrySet().removeIf(entry -> entry.getValue().isAffectedBy(filmId, likes,
+                    entry.getKey().matches(film)));
+            invalidations.increment(before - entries.size());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void clear() {
+        changes.incrementAndGet();
+        lock.lock();
+        try {
+            invalidations.increment(entries.size());
+            entries.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private double hitRatio() {
+        double requests = hits.count() + misses.count();
+        return requests == 0 ? 0 : hits.count() / requests;
+    }
+
+    private int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static int likesOf(Film film) {
+        return film.getUserLikes() == null ? 0 : film.getUserLikes().size();
+    }
+
+    /**
+     * A serialized response with its ETag. {@code filmIds} are sorted; {@code lastLikes} and {@code lastId} rank
+     * the last listed film, and are only meaningful when the entry is {@code full}, i.e. lists {@code count} films.
+     */
+    public record Entry(byte[] json, String etag, long[] filmIds, boolean full, int lastLikes, long lastId) {
+
+        static Entry of(int count, List<Film> films, byte[] json) {
+            long[] filmIds = films.stream().mapToLong(Film::getId).sorted().toArray();
+            CRC32C crc = new CRC32C();
+            crc.update(json);
+            String etag = "\"" + Integer.toHexString(json.length) + "-" + Long.toHexString(crc.getValue()) + "\"";
+            if (films.isEmpty()) {
+                return new Entry(json, etag, filmIds, count == 0, Integer.MAX_VALUE, Long.MIN_VALUE);
+            }
+            Film last = films.getLast();
+            return new Entry(json, etag, filmIds, films.size() == count, likesOf(last), last.getId());
+        }
+
+        boolean isAffectedBy(long filmId, int likes, boolean matches) {
+            if (Arrays.binarySearch(filmIds, filmId) >= 0) {
+                return true;
+            }
+            return matches && (!full || likes > lastLikes || likes == lastLikes && filmId < lastId);
+        }
+    }
+
+    private record Key(int count, Integer genreId, Integer year) {
+
+        boolean matches(Film film) {
+            if (year != null && (film.getReleaseDate() == null || film.getReleaseDate().getYear() != year)) {
+                return false;
+            }
+            return genreId == null || film.getGenres() != null
+                    && film.getGenres().stream().anyMatch(genre -> genreId.equals(genre.getId()));
+        }
+    }
+}
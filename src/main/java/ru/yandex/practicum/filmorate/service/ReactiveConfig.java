@@ -0,0 +1,33 @@
+package ru.yandex.practicum.filmorate.service;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.Executors;
+
+@Configuration
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveConfig {
+
+    /**
+     * Storage calls may block (JDBC, write-ahead log fsync), so the reactive services move them off the event
+     * loop. Virtual threads keep that hop cheap and put no cap on how many calls wait at once.
+     */
+    @Bean(destroyMethod = "dispose")
+    public Scheduler storageScheduler() {
+        return Schedulers.fromExecutorService(Executors.newVirtualThreadPerTaskExecutor(), "storage");
+    }
+
+    /**
+     * Tomcat is on the classpath for the servlet mode, and Spring Boot prefers it for a reactive server too;
+     * this bean puts the reactive mode on Reactor Netty.
+     */
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+}
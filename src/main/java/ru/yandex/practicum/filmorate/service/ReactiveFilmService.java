@@ -0,0 +1,91 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.LikeOperation;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * Non-blocking adapter over {@link FilmService}: every storage call runs on the storage scheduler.
+ */
+@RequiredArgsConstructor
+@Service
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveFilmService {
+
+    private final FilmService filmService;
+    private final Scheduler storageScheduler;
+
+    /**
+     * Emits every film in id order, reading one page per request from downstream.
+     */
+    public Flux<Film> findAll() {
+        return Flux.<List<Film>, Long>generate(() -> 0L, (afterId, sink) -> {
+                    List<Film> page = filmService.findPage(afterId, FilmService.STREAM_CHUNK_SIZE);
+                    if (page.isEmpty()) {
+                        sink.complete();
+                        return afterId;
+                    }
+                    sink.next(page);
+                    return page.getLast().getId();
+                })
+                .flatMapIterable(page -> page)
+                .subscribeOn(storageScheduler);
+    }
+
+    public Mono<byte[]> findPageJson(long afterId, int limit) {
+        return call(() -> filmService.findPageJson(afterId, limit));
+    }
+
+    public Mono<List<Film>> search(String query, int limit) {
+        return call(() -> filmService.search(query, limit));
+    }
+
+    public Mono<List<Film>> getRecommendations(long userId, int limit) {
+        return call(() -> filmService.getRecommendations(userId, limit));
+    }
+
+    public Mono<Film> create(Film film) {
+        return call(() -> filmService.create(film));
+    }
+
+    public Mono<Film> update(Film newFilm) {
+        return call(() -> filmService.update(newFilm));
+    }
+
+    public Mono<Film> addLike(long id, long userId) {
+        return call(() -> filmService.addLike(id, userId));
+    }
+
+    public Mono<Film> removeLike(long id, long userId) {
+        return call(() -> filmService.removeLike(id, userId));
+    }
+
+    public Mono<List<BatchItemResult>> addLikes(List<LikeOperation> operations) {
+        return call(() -> filmService.addLikes(operations));
+    }
+
+    public Mono<List<BatchItemResult>> removeLikes(List<LikeOperation> operations) {
+        return call(() -> filmService.removeLikes(operations));
+    }
+
+    public Flux<Film> getPopular(int count, Integer genreId, Integer year) {
+        return call(() -> filmService.getPopular(count, genreId, year)).flatMapIterable(films -> films);
+    }
+
+    public Mono<PopularFilmsCache.Entry> getPopularJson(int count, Integer genreId, Integer year) {
+        return call(() -> filmService.getPopularJson(count, genreId, year));
+    }
+
+    private <T> Mono<T> call(Callable<T> storageCall) {
+        return Mono.fromCallable(storageCall).subscribeOn(storageScheduler);
+    }
+}
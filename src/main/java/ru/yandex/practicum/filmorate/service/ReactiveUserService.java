@@ -0,0 +1,97 @@
+package ru.yandex.practicum.filmorate.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+import ru.yandex.practicum.filmorate.model.Event;
+import ru.yandex.practicum.filmorate.model.FriendOperation;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * Non-blocking adapter over {@link UserService}: every storage call runs on the storage scheduler.
+ */
+@RequiredArgsConstructor
+@Service
+@ConditionalOnWebApplication(type = ConditionalOnWebApplication.Type.REACTIVE)
+public class ReactiveUserService {
+
+    private final UserService userService;
+    private final Scheduler storageScheduler;
+
+    /**
+     * Emits every user in id order, reading one page per request from downstream.
+     */
+    public Flux<User> findAll() {
+        return Flux.<List<User>, Long>generate(() -> 0L, (afterId, sink) -> {
+                    List<User> page = userService.findPage(afterId, UserService.STREAM_CHUNK_SIZE);
+                    if (page.isEmpty()) {
+                        sink.complete();
+                        return afterId;
+                    }
+                    sink.next(page);
+                    return page.getLast().getId();
+                })
+                .flatMapIterable(page -> page)
+                .subscribeOn(storageScheduler);
+    }
+
+    public Mono<byte[]> findPageJson(long afterId, int limit) {
+        return call(() -> userService.findPageJson(afterId, limit));
+    }
+
+    public Mono<User> create(User user) {
+        return call(() -> userService.create(user));
+    }
+
+    public Mono<User> update(User newUser) {
+        return call(() -> userService.update(newUser));
+    }
+
+    public Mono<List<User>> addFriend(long id, long friendId) {
+        return call(() -> userService.addFriend(id, friendId));
+    }
+
+    public Mono<List<User>> removeFriend(long id, long friendId) {
+        return call(() -> userService.removeFriend(id, friendId));
+    }
+
+    public Mono<List<BatchItemResult>> addFriends(List<FriendOperation> operations) {
+        return call(() -> userService.addFriends(operations));
+    }
+
+    public Mono<List<BatchItemResult>> removeFriends(List<FriendOperation> operations) {
+        return call(() -> userService.removeFriends(operations));
+    }
+
+    public Flux<User> findUserFriends(long userId) {
+        return many(() -> userService.findUserFriends(userId));
+    }
+
+    public Flux<User> findCommonFriends(long id, long otherId) {
+        return many(() -> userService.findCommonFriends(id, otherId));
+    }
+
+    public Mono<List<User>> findFriendSuggestions(long id, int limit) {
+        return call(() -> userService.findFriendSuggestions(id, limit));
+    }
+
+    public Mono<List<Event>> getFeed(long userId, Long beforeEventId, int limit) {
+        return call(() -> userService.getFeed(userId, beforeEventId, limit));
+    }
+
+    private <T> Mono<T> call(Callable<T> storageCall) {
+        return Mono.fromCallable(storageCall).subscribeOn(storageScheduler);
+    }
+
+    private Flux<User> many(Callable<Collection<User>> storageCall) {
+        return call(storageCall).flatMapIterable(users -> users);
+    }
+}
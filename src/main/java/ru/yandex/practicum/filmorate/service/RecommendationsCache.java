@@ -0,0 +1,112 @@
+package ru.yandex.practicum.filmorate.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Recommended film ids per user, the least recently used evicted first. Every entry holds the
+ * {@link FilmService#MAX_RECOMMENDATIONS} best ids, so requests with any {@code limit} share it.
+ * <p>
+ * An entry is dropped when its user likes or unlikes a film. Likes of other users shift recommendations
+ * slowly, so they reach an entry when it is evicted or its user's likes change. Likes are the most frequent
+ * write, so unlike {@link FriendSuggestionsCache} an entry is only not kept if the likes of a user of the same
+ * change stripe change while it is built.
+ */
+@Component
+public class RecommendationsCache {
+
+    static final int MAX_ENTRIES = 4096;
+    private static final int CHANGE_STRIPES = 64;
+
+    private final FilmStorage filmStorage;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Map<Long, long[]> entries = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, long[]> eldest) {
+            return size() > MAX_ENTRIES;
+        }
+    };
+    private final AtomicLongArray changes = new AtomicLongArray(CHANGE_STRIPES);
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter invalidations;
+
+    public RecommendationsCache(FilmStorage filmStorage, MeterRegistry meterRegistry) {
+        this.filmStorage = filmStorage;
+        this.hits = Counter.builder("filmorate.recommendations.cache.requests").tag("result", "hit")
+                .register(meterRegistry);
+        this.misses = Counter.builder("filmorate.recommendations.cache.requests").tag("result", "miss")
+                .register(meterRegistry);
+        this.invalidations = Counter.builder("filmorate.recommendations.cache.invalidations")
+                .register(meterRegistry);
+    }
+
+    public long[] get(long userId) {
+        long[] cached;
+        lock.lock();
+        try {
+            cached = entries.get(userId);
+        } finally {
+            lock.unlock();
+        }
+        if (cached != null) {
+            hits.increment();
+            return cached;
+        }
+        misses.increment();
+
+        int stripe = stripeOf(userId);
+        long changesBefore = changes.get(stripe);
+        long[] built = filmStorage.findRecommendations(userId, FilmService.MAX_RECOMMENDATIONS);
+        lock.lock();
+        try {
+            if (changes.get(stripe) == changesBefore) {
+                entries.put(userId, built);
+            }
+        } finally {
+            lock.unlock();
+        }
+        return built;
+    }
+
+    /**
+     * Drops the entry of the user. Must be called after the change is visible in the storage.
+     */
+    public void likesChanged(long userId) {
+        changes.incrementAndGet(stripeOf(userId));
+        lock.lock();
+        try {
+            if (entries.remove(userId) != null) {
+                invalidations.increment();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void clear() {
+        for (int i = 0; i < CHANGE_STRIPES; i++) {
+            changes.incrementAndGet(i);
+        }
+        lock.lock();
+        try {
+            invalidations.increment(entries.size());
+            entries.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static int stripeOf(long userId) {
+        return (int) (userId & (CHANGE_STRIPES - 1));
+    }
+}
@@ -0,0 +1,33 @@
+package ru.yandex.practicum.filmorate.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.util.List;
+
+@Component
+public class UserJsonCache extends EntityJsonCache<User> {
+
+    private final UserStorage userStorage;
+
+    public UserJsonCache(UserStorage userStorage, ObjectMapper objectMapper, MeterRegistry meterRegistry,
+                         @Value("${filmorate.json.cache-size:64MB}") DataSize maxSize) {
+        super(User.class, "user", objectMapper, meterRegistry, maxSize);
+        this.userStorage = userStorage;
+    }
+
+    @Override
+    protected List<User> load(long[] ids) {
+        return userStorage.findByIds(ids);
+    }
+
+    @Override
+    protected long idOf(User user) {
+        return user.getId();
+    }
+}
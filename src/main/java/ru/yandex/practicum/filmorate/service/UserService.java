@@ -1,45 +1,184 @@
 package ru.yandex.practicum.filmorate.service;
 
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
 import ru.yandex.practicum.filmorate.exceptions.ValidationException;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+import ru.yandex.practicum.filmorate.model.Event;
+import ru.yandex.practicum.filmorate.model.FriendOperation;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.BulkImport;
 import ru.yandex.practicum.filmorate.storage.user.UserStorage;
 
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
 
 @RequiredArgsConstructor
 @Service
 public class UserService {
 
+    static final int STREAM_CHUNK_SIZE = 500;
+    public static final int MAX_SUGGESTIONS = 100;
+
     public final UserStorage inMemoryUserStorage;
+    private final FriendSuggestionsCache friendSuggestionsCache;
+    private final UserJsonCache userJsonCache;
 
+    @Timed(MetricsConfig.USER_SERVICE_TIMER)
     public Collection<User> findAll() {
         return inMemoryUserStorage.findAll();
     }
 
+    @Timed(MetricsConfig.USER_SERVICE_TIMER)
+    public List<User> findPage(long afterId, int limit) {
+        return inMemoryUserStorage.findPage(afterId, limit);
+    }
+
+    /**
+     * Returns {@link #findAll} as JSON, put together from the cached JSON of every user.
+     */
+    @Timed(MetricsConfig.USER_SERVICE_TIMER)
+    public byte[] findAllJson() {
+        return userJsonCache.write(inMemoryUserStorage.findIds(0, Integer.MAX_VALUE));
+    }
+
+    /**
+     * Returns {@link #findPage} as JSON, put together from the cached JSON of every user.
+     */
+    @Timed(MetricsConfig.USER_SERVICE_TIMER)
+    public byte[] findPageJson(long afterId, int limit) {
+        return userJsonCache.write(inMemoryUserStorage.findIds(afterId, limit));
+    }
+
+    /**
+     * Passes every user to {@code action} in id order, reading the storage page by page
+     * instead of materializing the whole collection.
+     */
+    @Timed(MetricsConfig.USER_SERVICE_TIMER)
+    public void forEachUser(Consumer<User> action) {
+        long afterId = 0;
+        List<User> page;
+        do {
+            page = inMemoryUserStorage.findPage(afterId, STREAM_CHUNK_SIZE);
+            page.forEach(action);
+            if (!page.isEmpty()) {
+                afterId = page.getLast().getId();
+            }
+        } while (page.size() == STREAM_CHUNK_SIZE);
+    }
+
+    @Timed(MetricsConfig.USER_SERVICE_TIMER)
     public User create(User user) {
-        return inMemoryUserStorage.create(user);
+        return changed(inMemoryUserStorage.create(user));
     }
 
+    @Timed(MetricsConfig.USER_SERVICE_TIMER)
     public User update(User newUser) throws ValidationException {
-        return inMemoryUserStorage.update(newUser);
+        return changed(inMemoryUserStorage.update(newUser));
+    }
+
+    @Timed(MetricsConfig.USER_SERVICE_TIMER)
+    public List<User> addFriend(Long id, Long friendId) throws NotFoundException {
+        return changed(inMemoryUserStorage.addFriend(id, friendId));
+    }
+
+    @Timed(MetricsConfig.USER_SERVICE_TIMER)
+    public List<User> removeFriend(Long id, Long friendId) throws NotFoundException {
+        return changed(inMemoryUserStorage.removeFriend(id, friendId));
     }
 
-    public Collection<User> addFriend(Long id, Long friendId) throws NotFoundException {
-        return inMemoryUserStorage.addFriend(id, friendId);
+    @Timed(MetricsConfig.USER_SERVICE_TIMER)
+    public List<BatchItemResult> addFriends(List<FriendOperation> operations) {
+        return changed(operations, inMemoryUserStorage.addFriends(operations));
     }
 
-    public Collection<User> removeFriend(Long id, Long friendId) throws NotFoundException {
-        return inMemoryUserStorage.removeFriend(id, friendId);
+    @Timed(MetricsConfig.USER_SERVICE_TIMER)
+    public List<BatchItemResult> removeFriends(List<FriendOperation> operations) {
+        return changed(operations, inMemoryUserStorage.removeFriends(operations));
     }
 
+    @Timed(MetricsConfig.USER_SERVICE_TIMER)
     public Collection<User> findUserFriends(long userId) throws NotFoundException {
         return inMemoryUserStorage.findUserFriends(userId);
     }
 
+    @Timed(value = MetricsConfig.COMMON_FRIENDS_TIMER, histogram = true, percentiles = {0.5, 0.95, 0.99})
     public Collection<User> findCommonFriends(long id, long otherId) throws NotFoundException {
         return inMemoryUserStorage.findCommonFriends(id, otherId);
     }
+
+    /**
+     * Returns up to {@code limit} friends of the user's friends, the most mutual friends first. The ranking is
+     * cached until a friendship of the user or of one of their friends changes.
+     */
+    @Timed(MetricsConfig.USER_SERVICE_TIMER)
+    public List<User> findFriendSuggestions(long id, int limit) throws NotFoundException {
+        long[] suggestions = friendSuggestionsCache.get(id);
+        return inMemoryUserStorage.findByIds(suggestions.length > limit
+                ? Arrays.copyOf(suggestions, limit) : suggestions);
+    }
+
+    /**
+     * Returns up to {@code limit} events of the user, the newest first; {@code beforeEventId} continues from the
+     * last event of the previous page.
+     */
+    @Timed(MetricsConfig.USER_SERVICE_TIMER)
+    public List<Event> getFeed(long userId, Long beforeEventId, int limit) throws NotFoundException {
+        return inMemoryUserStorage.findFeed(userId, beforeEventId == null ? Long.MAX_VALUE : beforeEventId, limit);
+    }
+
+    @Timed(MetricsConfig.USER_SERVICE_TIMER)
+    public BulkImport<User> importUsers() {
+        BulkImport<User> target = inMemoryUserStorage.importUsers();
+        return new BulkImport<>() {
+            @Override
+            public void add(List<User> chunk) {
+                target.add(chunk);
+            }
+
+            @Override
+            public void finish() {
+                try {
+                    target.finish();
+                } finally {
+                    userJsonCache.clear();
+                    friendSuggestionsCache.clear();
+                }
+            }
+        };
+    }
+
+    private User changed(User user) {
+        userJsonCache.changed(user.getId());
+        return user;
+    }
+
+    private List<User> changed(List<User> users) {
+        users.forEach(user -> userJsonCache.changed(user.getId()));
+        friendSuggestionsCache.friendsChanged(users);
+        return users;
+    }
+
+    /**
+     * Re-reads the users of the applied operations, with one query, to pass their new friends to the cache.
+     */
+    private List<BatchItemResult> changed(List<FriendOperation> operations, List<BatchItemResult> results) {
+        long[] userIds = IntStream.range(0, results.size())
+                .filter(i -> results.get(i).getError() == null)
+                .mapToObj(operations::get)
+                .flatMapToLong(operation -> LongStream.of(operation.getUserId(), operation.getFriendId()))
+                .distinct()
+                .toArray();
+        if (userIds.length > 0) {
+            Arrays.stream(userIds).forEach(userJsonCache::changed);
+            friendSuggestionsCache.friendsChanged(inMemoryUserStorage.findByIds(userIds));
+        }
+        return results;
+    }
 }
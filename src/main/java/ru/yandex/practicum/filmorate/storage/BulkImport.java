@@ -0,0 +1,16 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import java.util.List;
+
+/**
+ * Bulk load of records into a storage. Records keep their ids if they have them; a record with the id of an
+ * existing one replaces it. Chunks may be added from several threads at once; indexes that span records,
+ * such as popularity or mutual friendship, are built once, by {@link #finish()}, which must be called even
+ * if the import is aborted.
+ */
+public interface BulkImport<T> {
+
+    void add(List<T> chunk);
+
+    void finish();
+}
@@ -0,0 +1,72 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * MPA ratings and genres of the in-memory storage, the same as {@code data.sql} seeds into the database.
+ * Films are stored with the ids only; names are filled in when films are read.
+ */
+final class FilmCatalog {
+
+    private static final String[] RATINGS = {null, "G", "PG", "PG-13", "R", "NC-17"};
+    private static final String[] GENRES = {null, "Комедия", "Драма", "Мультфильм", "Триллер", "Документальный",
+            "Боевик"};
+
+    private static final int[] NO_GENRES = new int[0];
+
+    private FilmCatalog() {
+    }
+
+    /**
+     * @return the id of the rating, or 0 if {@code mpa} is {@code null}
+     */
+    static int mpaId(Mpa mpa) throws NotFoundException {
+        if (mpa == null) {
+            return 0;
+        }
+        if (!exists(RATINGS, mpa.getId())) {
+            throw new NotFoundException("Рейтинг MPA с id = " + mpa.getId() + " не найден");
+        }
+        return mpa.getId();
+    }
+
+    /**
+     * @return the sorted ids of the genres, without repeats
+     */
+    static int[] genreIds(List<Genre> genres) throws NotFoundException {
+        if (genres == null || genres.isEmpty()) {
+            return NO_GENRES;
+        }
+        int[] genreIds = new int[genres.size()];
+        for (int i = 0; i < genreIds.length; i++) {
+            Integer genreId = genres.get(i).getId();
+            if (!exists(GENRES, genreId)) {
+                throw new NotFoundException("Жанр с id = " + genreId + " не найден");
+            }
+            genreIds[i] = genreId;
+        }
+        return Arrays.stream(genreIds).sorted().distinct().toArray();
+    }
+
+    static Mpa mpa(int mpaId) {
+        return mpaId == 0 ? null : new Mpa(mpaId, RATINGS[mpaId]);
+    }
+
+    static List<Genre> genres(int[] genreIds) {
+        List<Genre> genres = new ArrayList<>(genreIds.length);
+        for (int genreId : genreIds) {
+            genres.add(new Genre(genreId, GENRES[genreId]));
+        }
+        return List.copyOf(genres);
+    }
+
+    private static boolean exists(String[] names, Integer id) {
+        return id != null && id > 0 && id < names.length;
+    }
+}
@@ -0,0 +1,478 @@
+package ru.yandex.practicum.filmorate.storage.film;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+import ru.yandex.practicum.filmorate.model.Event.EventType;
+import ru.yandex.practicum.filmorate.model.Event.Operation;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.LikeOperation;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.storage.BulkImport;
+import ru.yandex.practicum.filmorate.storage.util.LongArraySet;
+import ru.yandex.practicum.filmorate.storage.util.SortedLongs;
+import ru.yandex.practicum.filmorate.storage.util.SqlArrays;
+import ru.yandex.practicum.filmorate.storage.util.TextIndex;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.*;
+
+@Component
+@ConditionalOnProperty(name = "filmorate.storage", havingValue = "db")
+@Slf4j
+public class FilmDbStorage implements FilmStorage {
+
+    private static final String FILM_COLUMNS = "f.film_id, f.name, f.description, f.release_date, f.duration, "
+            + "f.rating_id, (SELECT r.name FROM rating AS r WHERE r.rating_id = f.rating_id) AS rating_name, "
+            + "(SELECT ARRAY_AGG(fg.genre_id ORDER BY fg.genre_id) FROM film_genre AS fg "
+            + "WHERE fg.film_id = f.film_id) AS genre_ids, "
+            + "(SELECT ARRAY_AGG(g.name ORDER BY g.genre_id) FROM film_genre AS fg "
+            + "JOIN genre AS g ON g.genre_id = fg.genre_id WHERE fg.film_id = f.film_id) AS genre_names, "
+            + "(SELECT ARRAY_AGG(l.user_id ORDER BY l.user_id) FROM likes AS l WHERE l.film_id = f.film_id) AS user_likes";
+
+    private static final int MAX_NEIGHBOURS = 50;
+    /**
+     * Adds a like; the update count is 0 if the user liked the film already.
+     */
+    private static final String ADD_LIKE = "MERGE INTO likes AS l "
+            + "USING (VALUES (CAST(? AS BIGINT), CAST(? AS BIGINT))) AS v (film_id, user_id) "
+            + "ON l.film_id = v.film_id AND l.user_id = v.user_id "
+            + "WHEN NOT MATCHED THEN INSERT (film_id, user_id) VALUES (v.film_id, v.user_id)";
+    private static final String REMOVE_LIKE = "DELETE FROM likes WHERE film_id = ? AND user_id = ?";
+    private static final String INSERT_EVENT = "INSERT INTO feed (user_id, event_type, operation, entity_id, "
+            + "event_time) VALUES (?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final SimpleJdbcInsert filmInsert;
+
+    public FilmDbStorage(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.filmInsert = new SimpleJdbcInsert(jdbcTemplate)
+                .withTableName("film")
+                .usingColumns("name", "description", "release_date", "duration", "rating_id")
+                .usingGeneratedKeyColumns("film_id");
+    }
+
+    @Override
+    public Collection<Film> findAll() {
+        return jdbcTemplate.query("SELECT " + FILM_COLUMNS + " FROM film AS f ORDER BY f.film_id",
+                FilmDbStorage::mapFilm);
+    }
+
+    @Override
+    public List<Film> findPage(long afterId, int limit) {
+        return jdbcTemplate.query("SELECT " + FILM_COLUMNS + " FROM film AS f "
+                        + "WHERE f.film_id > ? ORDER BY f.film_id LIMIT ?",
+                FilmDbStorage::mapFilm, afterId, limit);
+    }
+
+    @Override
+    public long[] findIds(long afterId, int limit) {
+        return jdbcTemplate.queryForList("SELECT film_id FROM film WHERE film_id > ? ORDER BY film_id LIMIT ?",
+                Long.class, afterId, limit).stream().mapToLong(Long::longValue).toArray();
+    }
+
+    @Override
+    public List<Film> findByIds(long[] ids) {
+        if (ids.length == 0) {
+            return List.of();
+        }
+
+        Map<Long, Film> filmsById = new HashMap<>();
+        jdbcTemplate.query("SELECT " + FILM_COLUMNS + " FROM film AS f WHERE f.film_id = ANY (?)",
+                rs -> {
+                    Film film = mapFilm(rs, 0);
+                    filmsById.put(film.getId(), film);
+                },
+                (Object) SqlArrays.toBoxedArray(ids));
+
+        List<Film> result = new ArrayList<>(filmsById.size());
+        for (long id : ids) {
+            Film film = filmsById.get(id);
+            if (film != null) {
+                result.add(film);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    @Transactional
+    public Film create(Film film) throws NotFoundException {
+        validateClassification(List.of(film));
+
+        long filmId = filmInsert.executeAndReturnKey(toRow(film)).longValue();
+        insertGenres(List.of(film), filmId);
+
+        long[] userLikes = SortedLongs.of(film.getUserLikes());
+        if (userLikes.length > 0) {
+            jdbcTemplate.batchUpdate("INSERT INTO likes (film_id, user_id) VALUES (?, ?)", toBatchArgs(filmId, userLikes));
+        }
+
+        log.debug("Created film {}", filmId);
+        return findById(filmId);
+    }
+
+    @Override
+    @Transactional
+    public Film update(Film newFilm) throws NotFoundException {
+        validateClassification(List.of(newFilm));
+        int updated = jdbcTemplate.update("UPDATE film SET name = ?, description = ?, release_date = ?, "
+                        + "duration = ?, rating_id = ? WHERE film_id = ?",
+                newFilm.getName(), newFilm.getDescription(), newFilm.getReleaseDate(), newFilm.getDuration(),
+                mpaIdOf(newFilm), newFilm.getId());
+        if (updated == 0) {
+            throw new NotFoundException("Фильм с id = " + newFilm.getId() + " не найден");
+        }
+        jdbcTemplate.update("DELETE FROM film_genre WHERE film_id = ?", newFilm.getId());
+        insertGenres(List.of(newFilm), newFilm.getId());
+
+        log.debug("Updated film {}", newFilm.getId());
+        return findById(newFilm.getId());
+    }
+
+    @Override
+    @Transactional
+    public Film addLike(long id, long userId) throws NotFoundException {
+        validateNotFound(id);
+        validateUserNotFound(userId);
+
+        if (jdbcTemplate.update(ADD_LIKE, id, userId) != 0) {
+            jdbcTemplate.update(INSERT_EVENT, userId, EventType.LIKE.name(), Operation.ADD.name(), id,
+                    System.currentTimeMillis());
+        }
+
+        return findById(id);
+    }
+
+    @Override
+    @Transactional
+    public Film removeLike(long id, long userId) throws NotFoundException {
+        validateNotFound(id);
+        validateUserNotFound(userId);
+
+        if (jdbcTemplate.update(REMOVE_LIKE, id, userId) != 0) {
+            jdbcTemplate.update(INSERT_EVENT, userId, EventType.LIKE.name(), Operation.REMOVE.name(), id,
+                    System.currentTimeMillis());
+        }
+
+        return findById(id);
+    }
+
+    @Override
+    @Transactional
+    public List<BatchItemResult> addLikes(List<LikeOperation> operations) {
+        return applyLikes(operations, ADD_LIKE, Operation.ADD);
+    }
+
+    @Override
+    @Transactional
+    public List<BatchItemResult> removeLikes(List<LikeOperation> operations) {
+        return applyLikes(operations, REMOVE_LIKE, Operation.REMOVE);
+    }
+
+    @Override
+    public List<Film> getPopular(int count, Integer genreId, Integer year) {
+        StringBuilder sql = new StringBuilder("SELECT " + FILM_COLUMNS + " FROM film AS f "
+                + "LEFT JOIN (SELECT film_id, COUNT(*) AS likes_count FROM likes GROUP BY film_id) AS c "
+                + "ON c.film_id = f.film_id WHERE TRUE ");
+        List<Object> args = new ArrayList<>(3);
+        if (genreId != null) {
+            sql.append("AND EXISTS (SELECT 1 FROM film_genre AS fg WHERE fg.film_id = f.film_id AND fg.genre_id = ?) ");
+            args.add(genreId);
+        }
+        if (year != null) {
+            sql.append("AND EXTRACT(YEAR FROM f.release_date) = ? ");
+            args.add(year);
+        }
+        sql.append("ORDER BY COALESCE(c.likes_count, 0) DESC, f.film_id LIMIT ?");
+        args.add(count);
+        return jdbcTemplate.query(sql.toString(), FilmDbStorage::mapFilm, args.toArray());
+    }
+
+    /**
+     * Matches every word as a substring of the name or description, the most liked films first: without a
+     * full-text index on the table this scans the films, which the in-memory storage avoids.
+     */
+    @Override
+    public List<Film> search(String query, int limit) {
+        List<String> words = TextIndex.tokenize(query).stream().distinct().toList();
+        if (words.isEmpty()) {
+            return List.of();
+        }
+        StringBuilder sql = new StringBuilder("SELECT " + FILM_COLUMNS + " FROM film AS f "
+                + "LEFT JOIN (SELECT film_id, COUNT(*) AS likes_count FROM likes GROUP BY film_id) AS c "
+                + "ON c.film_id = f.film_id WHERE TRUE ");
+        List<Object> args = new ArrayList<>(words.size() * 2 + 1);
+        for (String word : words) {
+            sql.append("AND (LOWER(f.name) LIKE ? OR LOWER(f.description) LIKE ?) ");
+            String pattern = "%" + word + "%";
+            args.add(pattern);
+            args.add(pattern);
+        }
+        sql.append("ORDER BY COALESCE(c.likes_count, 0) DESC, f.film_id LIMIT ?");
+        args.add(limit);
+        return jdbcTemplate.query(sql.toString(), FilmDbStorage::mapFilm, args.toArray());
+    }
+
+    /**
+     * Finds the neighbours with one {@code GROUP BY} over the likes of the user's films and scores their other
+     * films with a second one, as the in-memory storage does.
+     */
+    @Override
+    public long[] findRecommendations(long userId, int limit) throws NotFoundException {
+        validateUserNotFound(userId);
+        List<Long> filmIds = jdbcTemplate.queryForList("SELECT l.film_id FROM likes AS l "
+                        + "JOIN (SELECT l2.user_id, COUNT(*) AS common_likes FROM likes AS l1 "
+                        + "JOIN likes AS l2 ON l2.film_id = l1.film_id AND l2.user_id <> l1.user_id "
+                        + "WHERE l1.user_id = ? GROUP BY l2.user_id ORDER BY common_likes DESC, l2.user_id LIMIT ?) "
+                        + "AS n ON n.user_id = l.user_id "
+                        + "WHERE l.film_id NOT IN (SELECT film_id FROM likes WHERE user_id = ?) "
+                        + "GROUP BY l.film_id ORDER BY SUM(n.common_likes) DESC, l.film_id LIMIT ?",
+                Long.class, userId, MAX_NEIGHBOURS, userId, limit);
+        return filmIds.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    @Override
+    public long count() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM film", Long.class);
+    }
+
+    @Override
+    public long countLikes() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM likes", Long.class);
+    }
+
+    /**
+     * Writes every chunk with JDBC batches: films with ids are merged, films without ids are inserted one by
+     * one to get generated keys. The identity column is moved past the imported ids when finished.
+     */
+    @Override
+    public BulkImport<Film> importFilms() {
+        return new BulkImport<>() {
+            @Override
+            public void add(List<Film> chunk) {
+                validateClassification(chunk);
+                List<Object[]> filmArgs = new ArrayList<>(chunk.size());
+                List<Film> newFilms = new ArrayList<>();
+                for (Film film : chunk) {
+                    if (film.getId() == null) {
+                        newFilms.add(film);
+                    } else {
+                        filmArgs.add(new Object[]{film.getId(), film.getName(), film.getDescription(),
+                                film.getReleaseDate(), film.getDuration(), mpaIdOf(film)});
+                    }
+                }
+                jdbcTemplate.batchUpdate("MERGE INTO film (film_id, name, description, release_date, duration, "
+                        + "rating_id) KEY (film_id) VALUES (?, ?, ?, ?, ?, ?)", filmArgs);
+                if (!newFilms.isEmpty()) {
+                    restartFilmIds();
+                    for (Film film : newFilms) {
+                        film.setId(filmInsert.executeAndReturnKey(toRow(film)).longValue());
+                    }
+                }
+
+                List<Object[]> filmIds = new ArrayList<>(chunk.size());
+                List<Object[]> likeArgs = new ArrayList<>();
+                for (Film film : chunk) {
+                    filmIds.add(new Object[]{film.getId()});
+                    for (long userId : SortedLongs.of(film.getUserLikes())) {
+                        likeArgs.add(new Object[]{film.getId(), userId});
+                    }
+                }
+                jdbcTemplate.batchUpdate("DELETE FROM film_genre WHERE film_id = ?", filmIds);
+                insertGenres(chunk, null);
+                jdbcTemplate.batchUpdate("DELETE FROM likes WHERE film_id = ?", filmIds);
+                jdbcTemplate.batchUpdate("INSERT INTO likes (film_id, user_id) "
+                        + "SELECT ?, user_id FROM users WHERE user_id = ?", likeArgs);
+            }
+
+            @Override
+            public void finish() {
+                log.info("Finished film import, last film id is {}", restartFilmIds() - 1);
+            }
+        };
+    }
+
+    /**
+     * Moves the identity of {@code film} past the largest id, which imported films may have set explicitly.
+     *
+     * @return the next generated id
+     */
+    private long restartFilmIds() {
+        long nextId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(film_id), 0) + 1 FROM film", Long.class);
+        jdbcTemplate.execute("ALTER TABLE film ALTER COLUMN film_id RESTART WITH " + nextId);
+        return nextId;
+    }
+
+    /**
+     * Checks that the ratings and genres of all films exist, with one query per table.
+     */
+    private void validateClassification(List<Film> films) {
+        Set<Integer> mpaIds = new TreeSet<>();
+        Set<Integer> genreIds = new TreeSet<>();
+        for (Film film : films) {
+            if (film.getMpa() != null) {
+                mpaIds.add(film.getMpa().getId());
+            }
+            if (film.getGenres() != null) {
+                film.getGenres().forEach(genre -> genreIds.add(genre.getId()));
+            }
+        }
+        validateExist("SELECT rating_id FROM rating WHERE rating_id = ANY (?)", mpaIds, "Рейтинг MPA");
+        validateExist("SELECT genre_id FROM genre WHERE genre_id = ANY (?)", genreIds, "Жанр");
+    }
+
+    private void validateExist(String sql, Set<Integer> ids, String entity) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        Set<Integer> existing = new HashSet<>(jdbcTemplate.queryForList(sql, Integer.class,
+                (Object) ids.toArray(new Integer[0])));
+        for (Integer id : ids) {
+            if (!existing.contains(id)) {
+                throw new NotFoundException(entity + " с id = " + id + " не найден");
+            }
+        }
+    }
+
+    /**
+     * Inserts the genres of the films, each once, as one batch; {@code filmId} overrides the films' own ids.
+     */
+    private void insertGenres(List<Film> films, Long filmId) {
+        List<Object[]> batchArgs = new ArrayList<>();
+        for (Film film : films) {
+            if (film.getGenres() != null) {
+                film.getGenres().stream()
+                        .map(Genre::getId)
+                        .distinct()
+                        .forEach(genreId -> batchArgs.add(new Object[]{filmId != null ? filmId : film.getId(),
+                                genreId}));
+            }
+        }
+        if (!batchArgs.isEmpty()) {
+            jdbcTemplate.batchUpdate("INSERT INTO film_genre (film_id, genre_id) VALUES (?, ?)", batchArgs);
+        }
+    }
+
+    private static Map<String, Object> toRow(Film film) {
+        Map<String, Object> row = new HashMap<>();
+        row.put("name", film.getName());
+        row.put("description", film.getDescription());
+        row.put("release_date", film.getReleaseDate());
+        row.put("duration", film.getDuration());
+        row.put("rating_id", mpaIdOf(film));
+        return row;
+    }
+
+    private static Integer mpaIdOf(Film film) {
+        return film.getMpa() == null ? null : film.getMpa().getId();
+    }
+
+    private Film findById(long id) {
+        return jdbcTemplate.query("SELECT " + FILM_COLUMNS + " FROM film AS f WHERE f.film_id = ?",
+                        FilmDbStorage::mapFilm, id)
+                .stream()
+                .findFirst()
+                .orElseThrow(() -> new NotFoundException("Фильм с id = " + id + " не найден"));
+    }
+
+    private void validateNotFound(long id) {
+        if (!Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM film WHERE film_id = ?)", Boolean.class, id))) {
+            throw new NotFoundException("Фильм с id = " + id + " не найден");
+        }
+    }
+
+    private void validateUserNotFound(long userId) {
+        if (!Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM users WHERE user_id = ?)", Boolean.class, userId))) {
+            throw new NotFoundException("Пользователь с id = " + userId + " не найден");
+        }
+    }
+
+    /**
+     * Checks the existence of all films and users with one query per table, then runs the statement for the
+     * valid operations as a single JDBC batch.
+     */
+    private List<BatchItemResult> applyLikes(List<LikeOperation> operations, String sql, Operation operation) {
+        long[] filmIds = new long[operations.size()];
+        long[] userIds = new long[operations.size()];
+        for (int i = 0; i < filmIds.length; i++) {
+            filmIds[i] = operations.get(i).getFilmId();
+            userIds[i] = operations.get(i).getUserId();
+        }
+        Set<Long> existingFilms = findExistingIds("SELECT film_id FROM film WHERE film_id = ANY (?)", filmIds);
+        Set<Long> existingUsers = findExistingIds("SELECT user_id FROM users WHERE user_id = ANY (?)", userIds);
+
+        List<BatchItemResult> results = new ArrayList<>(filmIds.length);
+        List<Object[]> batchArgs = new ArrayList<>(filmIds.length);
+        for (int i = 0; i < filmIds.length; i++) {
+            if (!existingFilms.contains(filmIds[i])) {
+                results.add(BatchItemResult.notFound("Фильм с id = " + filmIds[i] + " не найден"));
+            } else if (!existingUsers.contains(userIds[i])) {
+                results.add(BatchItemResult.notFound("Пользователь с id = " + userIds[i] + " не найден"));
+            } else {
+                batchArgs.add(new Object[]{filmIds[i], userIds[i]});
+                results.add(BatchItemResult.applied());
+            }
+        }
+        if (!batchArgs.isEmpty()) {
+            int[] updated = jdbcTemplate.batchUpdate(sql, batchArgs);
+            List<Object[]> events = new ArrayList<>(updated.length);
+            long now = System.currentTimeMillis();
+            for (int i = 0; i < updated.length; i++) {
+                if (updated[i] != 0) {
+                    Object[] like = batchArgs.get(i);
+                    events.add(new Object[]{like[1], EventType.LIKE.name(), operation.name(), like[0], now});
+                }
+            }
+            if (!events.isEmpty()) {
+                jdbcTemplate.batchUpdate(INSERT_EVENT, events);
+            }
+        }
+
+        log.debug("Applied {} of {} like operations", batchArgs.size(), filmIds.length);
+        return results;
+    }
+
+    private Set<Long> findExistingIds(String sql, long[] ids) {
+        return new HashSet<>(jdbcTemplate.queryForList(sql, Long.class, (Object) SqlArrays.toBoxedArray(ids)));
+    }
+
+    private static List<Object[]> toBatchArgs(long filmId, long[] userIds) {
+        List<Object[]> batchArgs = new ArrayList<>(userIds.length);
+        for (long userId : userIds) {
+            batchArgs.add(new Object[]{filmId, userId});
+        }
+        return batchArgs;
+    }
+
+    private static Film mapFilm(ResultSet rs, int rowNum) throws SQLException {
+        Film film = new Film();
+        film.setId(rs.getLong("film_id"));
+        film.setName(rs.getString("name"));
+        film.setDescription(rs.getString("description"));
+        film.setReleaseDate(rs.getObject("release_date", LocalDate.class));
+        film.setDuration(rs.getObject("duration", Long.class));
+        Integer mpaId = rs.getObject("rating_id", Integer.class);
+        film.setMpa(mpaId == null ? null : new Mpa(mpaId, rs.getString("rating_name")));
+        long[] genreIds = SqlArrays.toLongArray(rs.getArray("genre_ids"));
+        String[] genreNames = SqlArrays.toStringArray(rs.getArray("genre_names"));
+        List<Genre> genres = new ArrayList<>(genreIds.length);
+        for (int i = 0; i < genreIds.length; i++) {
+            genres.add(new Genre((int) genreIds[i], genreNames[i]));
+        }
+        film.setGenres(genres);
+        film.setUserLikes(new LongArraySet(SqlArrays.toLongArray(rs.getArray("user_likes"))));
+        return film;
+    }
+}
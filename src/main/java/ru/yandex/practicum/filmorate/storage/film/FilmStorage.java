@@ -1,6 +1,9 @@
 package ru.yandex.practicum.filmorate.storage.film;
 
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.LikeOperation;
+import ru.yandex.practicum.filmorate.storage.BulkImport;
 
 import java.util.Collection;
 import java.util.List;
@@ -9,6 +12,21 @@ public interface FilmStorage {
 
     Collection<Film> findAll();
 
+    /**
+     * Returns up to {@code limit} films with ids greater than {@code afterId}, ordered by id.
+     */
+    List<Film> findPage(long afterId, int limit);
+
+    /**
+     * Returns the ids of the {@link #findPage} page, without reading the films.
+     */
+    long[] findIds(long afterId, int limit);
+
+    /**
+     * Returns the films with the given ids in the order of {@code ids}, skipping unknown ids.
+     */
+    List<Film> findByIds(long[] ids);
+
     Film create(Film film);
 
     Film update(Film newFilm);
@@ -17,5 +35,46 @@ public interface FilmStorage {
 
     Film removeLike(long id, long userId);
 
-    List<Film> getPopular(int count);
+    /**
+     * Applies every like whose film and user exist and skips the rest; the results follow the order of
+     * {@code operations}.
+     */
+    List<BatchItemResult> addLikes(List<LikeOperation> operations);
+
+    /**
+     * Removes every like whose film and user exist and skips the rest; the results follow the order of
+     * {@code operations}.
+     */
+    List<BatchItemResult> removeLikes(List<LikeOperation> operations);
+
+    default List<Film> getPopular(int count) {
+        return getPopular(count, null, null);
+    }
+
+    /**
+     * Returns up to {@code count} films with the most likes, ties broken by the smaller id; a {@code null}
+     * {@code genreId} or {@code year} does not filter.
+     */
+    List<Film> getPopular(int count, Integer genreId, Integer year);
+
+    /**
+     * Returns up to {@code limit} films whose name or description contains every word of the query, the most
+     * relevant first; the last word also matches as the start of a word.
+     */
+    List<Film> search(String query, int limit);
+
+    /**
+     * Returns the ids of up to {@code limit} films the user has not liked, liked by the users whose likes
+     * overlap the user's the most; films liked by closer users and by more of them come first.
+     */
+    long[] findRecommendations(long userId, int limit);
+
+    long count();
+
+    long countLikes();
+
+    /**
+     * Starts a bulk import of films with their likes. Likes of users that do not exist are dropped.
+     */
+    BulkImport<Film> importFilms();
 }
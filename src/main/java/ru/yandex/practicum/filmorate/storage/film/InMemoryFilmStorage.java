@@ -2,44 +2,191 @@ package ru.yandex.practicum.filmorate.storage.film;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
+import ru.yandex.practicum.filmorate.exceptions.ValidationException;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+import ru.yandex.practicum.filmorate.model.Event.EventType;
+import ru.yandex.practicum.filmorate.model.Event.Operation;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.LikeOperation;
+import ru.yandex.practicum.filmorate.storage.BulkImport;
+import ru.yandex.practicum.filmorate.storage.persistence.FilmTable;
+import ru.yandex.practicum.filmorate.storage.persistence.Mutation;
+import ru.yandex.practicum.filmorate.storage.persistence.Mutation.FilmCreated;
+import ru.yandex.practicum.filmorate.storage.persistence.Mutation.FilmUpdated;
+import ru.yandex.practicum.filmorate.storage.persistence.Mutation.LikeAdded;
+import ru.yandex.practicum.filmorate.storage.persistence.Mutation.LikeRemoved;
+import ru.yandex.practicum.filmorate.storage.persistence.MutationJournal;
 import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+import ru.yandex.practicum.filmorate.storage.util.IdIndex;
+import ru.yandex.practicum.filmorate.storage.util.IdSequence;
+import ru.yandex.practicum.filmorate.storage.util.LongArraySet;
+import ru.yandex.practicum.filmorate.storage.util.LongCounter;
+import ru.yandex.practicum.filmorate.storage.util.LongHashSet;
+import ru.yandex.practicum.filmorate.storage.util.SortedLongs;
+import ru.yandex.practicum.filmorate.storage.util.StripedLock;
+import ru.yandex.practicum.filmorate.storage.util.TextIndex;
 
+import java.time.LocalDate;
 import java.util.*;
-import java.util.stream.Collectors;
-import java.util.stream.IntStream;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.LongConsumer;
 
 @Component
+@ConditionalOnProperty(name = "filmorate.storage", havingValue = "memory", matchIfMissing = true)
 @Slf4j
 public class InMemoryFilmStorage implements FilmStorage {
 
+    /**
+     * Imported ids may not run further than this ahead of the record count, so a stray id cannot push the id
+     * sequence, which created films continue, towards its end.
+     */
+    private static final long MAX_IMPORTED_ID_GAP = 1_000_000;
 
-    private final Map<Long, Film> films = new HashMap<>();
+    /**
+     * A word of the name counts as this many words of the description.
+     */
+    private static final int NAME_WEIGHT = 3;
+
+    /**
+     * Recommendations come from the films of this many users with the most likes in common.
+     */
+    private static final int MAX_NEIGHBOURS = 50;
+    /**
+     * Bounds the likes of the user's films read to find the neighbours, as for friend suggestions.
+     */
+    private static final long MAX_RECOMMENDATION_SCAN = 1_000_000;
+    /**
+     * Users with at least this many likes have their neighbours counted in parallel, in chunks of
+     * {@link #RECOMMENDATION_CHUNK} films.
+     */
+    private static final int PARALLEL_RECOMMENDATION_LIKES = 256;
+    private static final int RECOMMENDATION_CHUNK = 64;
+
+    /**
+     * A snapshot reads the id index this many ids at a time.
+     */
+    private static final int SNAPSHOT_PAGE = 4096;
+
+    /**
+     * Films created or changed since the snapshot was loaded; they shadow the rows of {@link #base}.
+     * Their {@code userLikes} stay unset: likes live in {@link #likes}, and callers get copies of the films
+     * with sorted like sets (see {@link #export}).
+     */
+    private final Map<Long, Film> films = new ConcurrentHashMap<>();
+    /**
+     * Guarded by the film's stripe lock.
+     */
+    private final Map<Long, LongHashSet> likes = new ConcurrentHashMap<>();
+    private volatile FilmTable base = FilmTable.EMPTY;
+    /**
+     * Ids of the films stored since the snapshot was loaded, added under the film's stripe lock before the film
+     * is logged; with the ids of {@link #base} they are the id-ordered index lists are read from.
+     */
+    private final IdIndex storedIds = new IdIndex();
+    private final NavigableSet<FilmRank> popularity = new ConcurrentSkipListSet<>();
+    /**
+     * Popularity among the films of one genre, one release year, or both: every film is ranked here under each
+     * of its {@link #rankingKeys}, and moves together with its rank in {@link #popularity}.
+     */
+    private final Map<RankingKey, NavigableSet<FilmRank>> filteredPopularity = new ConcurrentHashMap<>();
+    /**
+     * Names and descriptions. Changes are queued under the film's stripe lock, which keeps them in order, and
+     * applied after it is released, so a create never waits for a search; an import applies its films once, in
+     * {@link FilmImport#finish}. The films of {@link #base} are added on the first search (see
+     * {@link #indexBase}), so loading a snapshot stays a mapping of the file.
+     */
+    private final TextIndex searchIndex = new TextIndex(NAME_WEIGHT, 1);
+    private volatile boolean baseIndexed = true;
+    private final ReentrantLock baseIndexLock = new ReentrantLock();
+    /**
+     * Reverse of {@link #likes}: the films each user liked. Guarded by the user's stripe of {@link #userLocks},
+     * always taken after the film's lock; the likes of {@link #base} are added on the first recommendation
+     * request (see {@link #indexBaseLikes}).
+     */
+    private final Map<Long, LongHashSet> likedFilms = new ConcurrentHashMap<>();
+    private final StripedLock userLocks = StripedLock.forAvailableProcessors();
+    private volatile boolean baseLikesIndexed = true;
+    private final ReentrantLock baseLikesIndexLock = new ReentrantLock();
+    private final StripedLock locks = StripedLock.forAvailableProcessors();
+    private final IdSequence ids = new IdSequence();
+    private final LongAdder filmCount = new LongAdder();
+    private final LongAdder likeCount = new LongAdder();
     private final UserStorage inMemoryUserStorage;
+    private final MutationJournal journal;
 
-    @Autowired
     public InMemoryFilmStorage(UserStorage inMemoryUserStorage) {
+        this(inMemoryUserStorage, MutationJournal.DISABLED);
+    }
+
+    @Autowired
+    public InMemoryFilmStorage(UserStorage inMemoryUserStorage, MutationJournal journal) {
         this.inMemoryUserStorage = inMemoryUserStorage;
+        this.journal = journal;
     }
 
     @Override
     public Collection<Film> findAll() {
-        return new ArrayList<>(films.values());
+        return findIndexed(idsAfter(0, Integer.MAX_VALUE));
+    }
+
+    @Override
+    public List<Film> findPage(long afterId, int limit) {
+        return findIndexed(idsAfter(afterId, limit));
     }
 
     @Override
-    public Film create(Film film) {
-        film.setId(getNextId());
+    public long[] findIds(long afterId, int limit) {
+        return idsAfter(afterId, limit);
+    }
 
-        if (film.getUserLikes() == null) {
-            film.setUserLikes(new HashSet<>());
+    @Override
+    public List<Film> findByIds(long[] ids) {
+        List<Film> result = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            Film film = peek(id);
+            if (film != null) {
+                result.add(film);
+            }
         }
+        return result;
+    }
+
+    @Override
+    public Film create(Film film) throws NotFoundException {
+        int mpaId = FilmCatalog.mpaId(film.getMpa());
+        int[] genreIds = FilmCatalog.genreIds(film.getGenres());
+        film.setMpa(FilmCatalog.mpa(mpaId));
+        film.setGenres(FilmCatalog.genres(genreIds));
+        film.setId(ids.next());
 
-        films.put(film.getId(), film);
+        long[] userLikes = SortedLongs.of(film.getUserLikes());
+        long position;
+        locks.lock(film.getId());
+        try {
+            storedIds.add(film.getId());
+            position = journal.append(new FilmCreated(film.getId(), film.getName(), film.getDescription(),
+                    film.getReleaseDate(), film.getDuration(), mpaId, genreIds, userLikes));
+            putFilm(film, userLikes);
+        } finally {
+            locks.unlock(film.getId());
+        }
+        searchIndex.tryApply();
+        journal.awaitDurable(position);
 
-        log.info("Completed a new film add with the necessary parameters!");
+        film.setUserLikes(new LongArraySet(userLikes));
+        log.debug("Created film {}", film.getId());
         return film;
     }
 
@@ -47,15 +194,27 @@ public class InMemoryFilmStorage implements FilmStorage {
     public Film update(Film newFilm) throws NotFoundException {
 
         validateNotFound(newFilm.getId());
+        int mpaId = FilmCatalog.mpaId(newFilm.getMpa());
+        int[] genreIds = FilmCatalog.genreIds(newFilm.getGenres());
 
-        Film oldFilm = films.get(newFilm.getId());
-        oldFilm.setName(newFilm.getName());
-        oldFilm.setDescription(newFilm.getDescription());
-        oldFilm.setReleaseDate(newFilm.getReleaseDate());
-        oldFilm.setDuration(newFilm.getDuration());
+        Film oldFilm = film(newFilm.getId());
+        Film updatedFilm;
+        long position;
+        locks.lock(oldFilm.getId());
+        try {
+            FilmUpdated updated = new FilmUpdated(oldFilm.getId(), newFilm.getName(), newFilm.getDescription(),
+                    newFilm.getReleaseDate(), newFilm.getDuration(), mpaId, genreIds);
+            position = journal.append(updated);
+            applyUpdate(oldFilm, updated);
+            updatedFilm = export(oldFilm);
+        } finally {
+            locks.unlock(oldFilm.getId());
+        }
+        searchIndex.tryApply();
+        journal.awaitDurable(position);
 
-        log.info("Completed a new film update with the necessary parameters!");
-        return oldFilm;
+        log.debug("Updated film {}", newFilm.getId());
+        return updatedFilm;
     }
 
     @Override
@@ -63,8 +222,20 @@ public class InMemoryFilmStorage implements FilmStorage {
         validateNotFound(id);
         inMemoryUserStorage.validateNotFound(userId);
 
-        Film likedFilm = films.get(id);
-        likedFilm.getUserLikes().add(userId);
+        Film likedFilm = film(id);
+        long position = 0;
+        locks.lock(id);
+        try {
+            if (!likes.get(id).contains(userId)) {
+                position = journal.append(new LikeAdded(id, userId));
+                addUserLike(id, userId);
+                inMemoryUserStorage.addEvent(userId, EventType.LIKE, Operation.ADD, id);
+            }
+            likedFilm = export(likedFilm);
+        } finally {
+            locks.unlock(id);
+        }
+        journal.awaitDurable(position);
 
         return likedFilm;
     }
@@ -74,45 +245,862 @@ public class InMemoryFilmStorage implements FilmStorage {
         validateNotFound(id);
         inMemoryUserStorage.validateNotFound(userId);
 
-        Film unlikedFilm = films.get(id);
-        unlikedFilm.getUserLikes().remove(userId);
+        Film unlikedFilm = film(id);
+        long position = 0;
+        locks.lock(id);
+        try {
+            if (likes.get(id).contains(userId)) {
+                position = journal.append(new LikeRemoved(id, userId));
+                removeUserLike(id, userId);
+                inMemoryUserStorage.addEvent(userId, EventType.LIKE, Operation.REMOVE, id);
+            }
+            unlikedFilm = export(unlikedFilm);
+        } finally {
+            locks.unlock(id);
+        }
+        journal.awaitDurable(position);
 
         return unlikedFilm;
     }
 
     @Override
-    public List<Film> getPopular(int count) {
-        List<Film> sortedFilmsList = new ArrayList<>(films.values());
+    public List<BatchItemResult> addLikes(List<LikeOperation> operations) {
+        return applyLikes(operations, true);
+    }
+
+    @Override
+    public List<BatchItemResult> removeLikes(List<LikeOperation> operations) {
+        return applyLikes(operations, false);
+    }
+
+    /**
+     * Reads the first {@code count} ranks of the index matching the filter, so the cost does not depend on how
+     * many films the filter leaves out.
+     */
+    @Override
+    public List<Film> getPopular(int count, Integer genreId, Integer year) {
+        NavigableSet<FilmRank> ranking = genreId == null && year == null ? popularity
+                : filteredPopularity.getOrDefault(new RankingKey(genreId == null ? 0 : genreId,
+                        year == null ? 0 : year), Collections.emptyNavigableSet());
+        long[] popularIds = new long[(int) Math.min(count, ids.current())];
+        int found = 0;
+
+        for (FilmRank rank : ranking) {
+            if (found >= popularIds.length) {
+                break;
+            }
+            popularIds[found++] = rank.filmId();
+        }
+
+        return findByIds(found == popularIds.length ? popularIds : Arrays.copyOf(popularIds, found));
+    }
+
+    @Override
+    public List<Film> search(String query, int limit) {
+        indexBase();
+        return findByIds(searchIndex.search(query, limit, this::likesCount));
+    }
+
+    /**
+     * Counts the likes in common with other users through the likers of the user's films, so only users
+     * sharing a film are visited; a user with many likes has the films split between fork-join tasks. The
+     * films of the {@link #MAX_NEIGHBOURS} closest users are then scored by the likes in common with each.
+     */
+    @Override
+    public long[] findRecommendations(long userId, int limit) throws NotFoundException {
+        inMemoryUserStorage.validateNotFound(userId);
+        indexBaseLikes();
+
+        long[] userFilms = likedFilmsOf(userId);
+        if (userFilms.length == 0) {
+            return SortedLongs.EMPTY;
+        }
+        AtomicLong scanBudget = new AtomicLong(MAX_RECOMMENDATION_SCAN);
+        LongCounter commonLikes = userFilms.length >= PARALLEL_RECOMMENDATION_LIKES
+                ? ForkJoinPool.commonPool().invoke(new CommonLikesTask(userId, userFilms, 0, userFilms.length,
+                scanBudget))
+                : countCommonLikes(userId, userFilms, 0, userFilms.length, scanBudget);
+
+        LongCounter scores = new LongCounter(userFilms.length * 4);
+        for (long neighbour : commonLikes.top(MAX_NEIGHBOURS)) {
+            int weight = commonLikes.get(neighbour);
+            for (long filmId : likedFilmsOf(neighbour)) {
+                if (!SortedLongs.contains(userFilms, filmId)) {
+                    scores.add(filmId, weight);
+                }
+            }
+        }
+        return scores.top(limit);
+    }
+
+    @Override
+    public long count() {
+        return filmCount.sum();
+    }
+
+    @Override
+    public long countLikes() {
+        return likeCount.sum();
+    }
+
+    @Override
+    public BulkImport<Film> importFilms() {
+        return new FilmImport();
+    }
+
+    /**
+     * Makes the films of a mapped snapshot the base of this storage. Must be called before any other write,
+     * on an empty storage; only the popularity index is built up front, the films are read from the table
+     * when requested and copied to the heap when first changed.
+     */
+    public void load(FilmTable table) {
+        for (FilmRank rank : sortedRanks(table)) {
+            int row = table.indexOf(rank.filmId());
+            rank(rank, rankingKeys(table.releaseDate(row), table.genreIds(row)));
+        }
+        base = table;
+        baseIndexed = table.size() == 0;
+        baseLikesIndexed = table.totalLikes() == 0;
+        ids.advanceTo(table.maxId());
+        filmCount.add(table.size());
+        likeCount.add(table.totalLikes());
+    }
+
+    /**
+     * Re-applies a logged mutation during recovery, without validation and without logging it again.
+     * Mutations of users are ignored.
+     */
+    public void apply(Mutation mutation) {
+        switch (mutation) {
+            case FilmCreated created -> {
+                storedIds.add(created.id());
+                putFilm(toFilm(created), created.userLikes());
+                ids.advanceTo(created.id());
+            }
+            case FilmUpdated updated -> {
+                Film film = film(updated.id());
+                if (film != null) {
+                    applyUpdate(film, updated);
+                }
+            }
+            case LikeAdded added -> {
+                if (film(added.filmId()) != null && !likes.get(added.filmId()).contains(added.userId())) {
+                    addUserLike(added.filmId(), added.userId());
+                }
+            }
+            case LikeRemoved removed -> {
+                if (film(removed.filmId()) != null && likes.get(removed.filmId()).contains(removed.userId())) {
+                    removeUserLike(removed.filmId(), removed.userId());
+                }
+            }
+            default -> {
+            }
+        }
+    }
+
+    /**
+     * Describes every film, likes included, as a {@link FilmCreated} mutation for a snapshot.
+     * Each id is read under its stripe lock, which {@link #create} holds from indexing the film to storing it: a
+     * film logged in the segment before the snapshot is indexed before the snapshot starts and stored by the time
+     * the snapshot reads its id.
+     */
+    public void snapshot(Consumer<Mutation> sink) {
+        long[] page = idsAfter(0, SNAPSHOT_PAGE);
+        while (page.length > 0) {
+            for (long id : page) {
+                snapshot(id, sink);
+            }
+            page = idsAfter(page[page.length - 1], SNAPSHOT_PAGE);
+        }
+    }
 
-        sortedFilmsList.sort(
-                new Comparator<Film>() {
-                    @Override
-                    public int compare(Film o1, Film o2) {
-                        return o2.getUserLikes().size() - o1.getUserLikes().size();
+    private void snapshot(long id, Consumer<Mutation> sink) {
+        FilmCreated created = null;
+        locks.lock(id);
+        try {
+            Film film = films.get(id);
+            if (film != null) {
+                created = new FilmCreated(id, film.getName(), film.getDescription(), film.getReleaseDate(),
+                        film.getDuration(), mpaIdOf(film), genreIdsOf(film), likes.get(id).toSortedArray());
+            } else {
+                int row = base.indexOf(id);
+                if (row >= 0) {
+                    created = base.row(row);
+                }
+            }
+        } finally {
+            locks.unlock(id);
+        }
+        if (created != null) {
+            sink.accept(created);
+        }
+    }
+
+    /**
+     * Validates all operations first, then applies the valid ones grouped by film: each film is locked and
+     * moved in the popularity index once, and the batch waits for the journal once, for its last record.
+     */
+    private List<BatchItemResult> applyLikes(List<LikeOperation> operations, boolean add) {
+        BatchItemResult[] results = new BatchItemResult[operations.size()];
+        List<Integer> valid = new ArrayList<>(operations.size());
+        for (int i = 0; i < results.length; i++) {
+            LikeOperation operation = operations.get(i);
+            try {
+                validateNotFound(operation.getFilmId());
+                inMemoryUserStorage.validateNotFound(operation.getUserId());
+                valid.add(i);
+            } catch (NotFoundException e) {
+                results[i] = BatchItemResult.notFound(e.getMessage());
+            }
+        }
+        valid.sort(Comparator.comparing(i -> operations.get(i).getFilmId()));
+
+        long position = 0;
+        int start = 0;
+        while (start < valid.size()) {
+            long filmId = operations.get(valid.get(start)).getFilmId();
+            int end = start;
+            while (end < valid.size() && operations.get(valid.get(end)).getFilmId() == filmId) {
+                end++;
+            }
+            // A film of the snapshot gets its like set when it is stored
+            film(filmId);
+            locks.lock(filmId);
+            try {
+                LongHashSet filmLikes = likes.get(filmId);
+                int likesBefore = filmLikes.size();
+                for (int index : valid.subList(start, end)) {
+                    long userId = operations.get(index).getUserId();
+                    if (filmLikes.contains(userId) != add) {
+                        position = journal.append(add ? new LikeAdded(filmId, userId)
+                                : new LikeRemoved(filmId, userId));
+                        if (add) {
+                            putLike(filmId, userId);
+                        } else {
+                            takeLike(filmId, userId);
+                        }
+                        inMemoryUserStorage.addEvent(userId, EventType.LIKE, add ? Operation.ADD : Operation.REMOVE,
+                                filmId);
                     }
-                });
+                    results[index] = BatchItemResult.applied();
+                }
+                if (filmLikes.size() != likesBefore) {
+                    moveInPopularity(filmId, likesBefore, filmLikes.size());
+                }
+            } finally {
+                locks.unlock(filmId);
+            }
+            start = end;
+        }
+        journal.awaitDurable(position);
+
+        log.debug("Applied {} of {} like operations", valid.size(), results.length);
+        return Arrays.asList(results);
+    }
+
+    private long[] idsAfter(long afterId, int limit) {
+        FilmTable table = base;
+        return storedIds.after(afterId, limit, table.rowAfter(afterId), table.size(), table::id);
+    }
 
-        if (count > films.size()) {
-            count = films.size();
+    /**
+     * Reads the films of ids taken from the index. A film that is indexed but not stored yet is being created
+     * under its stripe lock, so the read waits for the lock instead of skipping the film.
+     */
+    private List<Film> findIndexed(long[] ids) {
+        List<Film> result = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            Film film = peek(id);
+            if (film == null) {
+                locks.lock(id);
+                locks.unlock(id);
+                film = peek(id);
+            }
+            if (film != null) {
+                result.add(film);
+            }
         }
+        return result;
+    }
+
+    /**
+     * Returns the film for reading. A film that only exists in the snapshot is decoded into a fresh object
+     * that is not kept, so reads do not grow the heap.
+     */
+    private Film peek(long id) {
+        Film film = films.get(id);
+        if (film != null) {
+            locks.lock(id);
+            try {
+                return export(film);
+            } finally {
+                locks.unlock(id);
+            }
+        }
+        int row = base.indexOf(id);
+        if (row < 0) {
+            return null;
+        }
+        FilmCreated created = base.row(row);
+        film = toFilm(created);
+        film.setUserLikes(new LongArraySet(created.userLikes()));
+        return film;
+    }
 
-        return IntStream.range(0, count)
-                .mapToObj(sortedFilmsList::get)
-                .collect(Collectors.toList());
+    /**
+     * Returns the film for changing, copying it from the snapshot to the heap on first use.
+     */
+    private Film film(long id) {
+        Film film = films.get(id);
+        if (film != null) {
+            return film;
+        }
+        int row = base.indexOf(id);
+        if (row < 0) {
+            return null;
+        }
+        return films.computeIfAbsent(id, key -> {
+            FilmCreated created = base.row(row);
+            likes.put(id, LongHashSet.of(created.userLikes()));
+            return toFilm(created);
+        });
     }
 
-    private long getNextId() {
-        long currentMaxId = films.keySet()
-                .stream()
-                .mapToLong(id -> id)
-                .max()
-                .orElse(0);
-        return ++currentMaxId;
+    /**
+     * Copy of a stored film for callers. Must be called under the film's stripe lock, so the fields and the likes
+     * are copied consistently; the likes are copied unsorted and only sorted when first read, after the lock is
+     * released.
+     */
+    private Film export(Film film) {
+        Film copy = copyOf(film);
+        copy.setUserLikes(LongArraySet.sortedOnRead(likes.get(film.getId()).toArray()));
+        return copy;
+    }
+
+    private void putFilm(Film film, long[] userLikes) {
+        long id = film.getId();
+        Film replaced = film(id);
+        int likesBefore = replaced == null ? 0 : likes.get(id).size();
+        if (replaced != null) {
+            unlinkLikes(id, likes.get(id).toArray());
+        }
+
+        likes.put(id, LongHashSet.of(userLikes));
+        linkLikes(id, userLikes);
+        Film stored = copyOf(film);
+        films.put(id, stored);
+        searchIndex.put(id, stored.getName(), stored.getDescription());
+        if (replaced != null) {
+            unrank(new FilmRank(likesBefore, id), rankingKeys(replaced));
+        } else {
+            filmCount.increment();
+        }
+        rank(new FilmRank(userLikes.length, id), rankingKeys(stored));
+        likeCount.add(userLikes.length - likesBefore);
+    }
+
+    /**
+     * Must be called under the film's stripe lock; moves the film between the filtered indexes if its release
+     * year or genres change.
+     */
+    private void applyUpdate(Film film, FilmUpdated updated) {
+        List<RankingKey> keysBefore = rankingKeys(film);
+        if (!Objects.equals(film.getName(), updated.name())
+                || !Objects.equals(film.getDescription(), updated.description())) {
+            searchIndex.put(film.getId(), updated.name(), updated.description());
+        }
+        film.setName(updated.name());
+        film.setDescription(updated.description());
+        film.setReleaseDate(updated.releaseDate());
+        film.setDuration(updated.duration());
+        film.setMpa(FilmCatalog.mpa(updated.mpaId()));
+        film.setGenres(FilmCatalog.genres(updated.genreIds()));
+        List<RankingKey> keysAfter = rankingKeys(film);
+        if (!keysAfter.equals(keysBefore)) {
+            FilmRank rank = new FilmRank(likes.get(film.getId()).size(), film.getId());
+            unrankFiltered(rank, keysBefore.stream().filter(key -> !keysAfter.contains(key)).toList());
+            rankFiltered(rank, keysAfter.stream().filter(key -> !keysBefore.contains(key)).toList());
+        }
+    }
+
+    private static Film copyOf(Film film) {
+        Film copy = new Film();
+        copy.setId(film.getId());
+        copy.setName(film.getName());
+        copy.setDescription(film.getDescription());
+        copy.setReleaseDate(film.getReleaseDate());
+        copy.setDuration(film.getDuration());
+        copy.setMpa(film.getMpa());
+        copy.setGenres(film.getGenres());
+        return copy;
+    }
+
+    private static Film toFilm(FilmCreated created) {
+        Film film = new Film();
+        film.setId(created.id());
+        film.setName(created.name());
+        film.setDescription(created.description());
+        film.setReleaseDate(created.releaseDate());
+        film.setDuration(created.duration());
+        film.setMpa(FilmCatalog.mpa(created.mpaId()));
+        film.setGenres(FilmCatalog.genres(created.genreIds()));
+        return film;
+    }
+
+    /**
+     * Stores films without logging each one and without ranking them; {@link #finish()} ranks all imported
+     * films at once, in popularity order, which keeps skip list inserts cheap as in {@link #load}. Until then
+     * imported films are readable but missing from {@link #getPopular}.
+     */
+    private class FilmImport implements BulkImport<Film> {
+
+        private final Queue<long[]> importedIds = new ConcurrentLinkedQueue<>();
+
+        @Override
+        public void add(List<Film> chunk) {
+            long[] chunkIds = new long[chunk.size()];
+            long maxId = count() + MAX_IMPORTED_ID_GAP;
+            for (int i = 0; i < chunkIds.length; i++) {
+                Long id = chunk.get(i).getId();
+                if (id != null && (id < 1 || id > maxId)) {
+                    throw new ValidationException("Id импортируемого фильма должен быть от 1 до " + maxId
+                            + ", а у фильма id = " + id);
+                }
+            }
+
+            int[] mpaIds = new int[chunkIds.length];
+            int[][] genreIds = new int[chunkIds.length][];
+            for (int i = 0; i < chunkIds.length; i++) {
+                mpaIds[i] = FilmCatalog.mpaId(chunk.get(i).getMpa());
+                genreIds[i] = FilmCatalog.genreIds(chunk.get(i).getGenres());
+            }
+
+            long position = 0;
+            for (int i = 0; i < chunkIds.length; i++) {
+                Film film = chunk.get(i);
+                film.setMpa(FilmCatalog.mpa(mpaIds[i]));
+                film.setGenres(FilmCatalog.genres(genreIds[i]));
+                if (film.getId() == null) {
+                    film.setId(ids.next());
+                } else {
+                    ids.advanceTo(film.getId());
+                }
+                long id = film.getId();
+                long[] userLikes = existingUsers(SortedLongs.of(film.getUserLikes()));
+                locks.lock(id);
+                try {
+                    storedIds.add(id);
+                    Film replaced = film(id);
+                    if (replaced != null) {
+                        unrank(new FilmRank(likes.get(id).size(), id), rankingKeys(replaced));
+                        likeCount.add(-likes.get(id).size());
+                        unlinkLikes(id, likes.get(id).toArray());
+                    } else {
+                        filmCount.increment();
+                    }
+                    likeCount.add(userLikes.length);
+                    position = journal.append(new FilmCreated(id, film.getName(), film.getDescription(),
+                            film.getReleaseDate(), film.getDuration(), mpaIds[i], genreIds[i], userLikes));
+                    likes.put(id, LongHashSet.of(userLikes));
+                    linkLikes(id, userLikes);
+                    films.put(id, copyOf(film));
+                    searchIndex.put(id, film.getName(), film.getDescription());
+                } finally {
+                    locks.unlock(id);
+                }
+                chunkIds[i] = id;
+            }
+            journal.awaitDurable(position);
+            importedIds.add(chunkIds);
+        }
+
+        /**
+         * Ranks are sorted by the like counts read without locks, and each one is inserted with the count
+         * re-read under the film's lock: a like that raced with the import has already ranked the film with
+         * the same count, and the set keeps one of the equal ranks.
+         */
+        @Override
+        public void finish() {
+            List<FilmRank> ranks = new ArrayList<>();
+            for (long[] chunkIds : importedIds) {
+                for (long id : chunkIds) {
+                    ranks.add(new FilmRank(likes.get(id).size(), id));
+                }
+            }
+            ranks.sort(null);
+            for (FilmRank rank : ranks) {
+                long id = rank.filmId();
+                locks.lock(id);
+                try {
+                    rank(new FilmRank(likes.get(id).size(), id), rankingKeys(films.get(id)));
+                } finally {
+                    locks.unlock(id);
+                }
+            }
+            searchIndex.tryApply();
+            log.info("Imported {} films", ranks.size());
+        }
+
+        private long[] existingUsers(long[] userIds) {
+            long[] existing = new long[userIds.length];
+            int count = 0;
+            for (long userId : userIds) {
+                try {
+                    inMemoryUserStorage.validateNotFound(userId);
+                    existing[count++] = userId;
+                } catch (NotFoundException e) {
+                    log.debug("Dropping the like of missing user {}", userId);
+                }
+            }
+            return count == existing.length ? userIds : Arrays.copyOf(existing, count);
+        }
+    }
+
+    /**
+     * Ranks of the table's films in popularity order. Rows are already ordered by id, so a counting sort by
+     * likes yields the order in linear time, and inserting ranks in order keeps skip list inserts cheap.
+     */
+    private static FilmRank[] sortedRanks(FilmTable table) {
+        int[] likes = new int[table.size()];
+        int maxLikes = 0;
+        for (int i = 0; i < likes.length; i++) {
+            likes[i] = table.likesCount(i);
+            maxLikes = Math.max(maxLikes, likes[i]);
+        }
+        int[] starts = new int[maxLikes + 2];
+        for (int count : likes) {
+            starts[maxLikes - count + 1]++;
+        }
+        for (int i = 1; i < starts.length; i++) {
+            starts[i] += starts[i - 1];
+        }
+        FilmRank[] ranks = new FilmRank[likes.length];
+        for (int i = 0; i < likes.length; i++) {
+            ranks[starts[maxLikes - likes[i]]++] = new FilmRank(likes[i], table.id(i));
+        }
+        return ranks;
+    }
+
+    /**
+     * Adds the films of {@link #base} to the search index, once. Each film is read under its stripe lock, so a
+     * concurrent update either sees it indexed and replaces it or is already visible in {@link #films}.
+     */
+    private void indexBase() {
+        if (baseIndexed) {
+            return;
+        }
+        baseIndexLock.lock();
+        try {
+            if (baseIndexed) {
+                return;
+            }
+            FilmTable table = base;
+            for (int row = 0; row < table.size(); row++) {
+                long id = table.id(row);
+                locks.lock(id);
+                try {
+                    Film film = films.get(id);
+                    if (film == null) {
+                        searchIndex.put(id, table.name(row), table.description(row));
+                    } else {
+                        searchIndex.put(id, film.getName(), film.getDescription());
+                    }
+                } finally {
+                    locks.unlock(id);
+                }
+            }
+            baseIndexed = true;
+            log.info("Indexed {} films of the snapshot for search", table.size());
+        } finally {
+            baseIndexLock.unlock();
+        }
+    }
+
+    /**
+     * Adds the likes of the {@link #base} films to {@link #likedFilms}, once. As in {@link #indexBase}, each
+     * film is read under its stripe lock; a like changed meanwhile is already linked, and linking is idempotent.
+     */
+    private void indexBaseLikes() {
+        if (baseLikesIndexed) {
+            return;
+        }
+        baseLikesIndexLock.lock();
+        try {
+            if (baseLikesIndexed) {
+                return;
+            }
+            FilmTable table = base;
+            for (int row = 0; row < table.size(); row++) {
+                long id = table.id(row);
+                locks.lock(id);
+                try {
+                    LongHashSet filmLikes = likes.get(id);
+                    linkLikes(id, filmLikes == null ? table.likes(row) : filmLikes.toArray());
+                } finally {
+                    locks.unlock(id);
+                }
+            }
+            baseLikesIndexed = true;
+            log.info("Indexed {} likes of the snapshot for recommendations", table.totalLikes());
+        } finally {
+            baseLikesIndexLock.unlock();
+        }
+    }
+
+    /**
+     * Must be called under the film's stripe lock, or before the film is stored.
+     */
+    private void linkLikes(long filmId, long... userIds) {
+        for (long userId : userIds) {
+            userLocks.lock(userId);
+            try {
+                likedFilms.computeIfAbsent(userId, key -> new LongHashSet()).add(filmId);
+            } finally {
+                userLocks.unlock(userId);
+            }
+        }
+    }
+
+    /**
+     * Must be called under the film's stripe lock.
+     */
+    private void unlinkLikes(long filmId, long... userIds) {
+        for (long userId : userIds) {
+            userLocks.lock(userId);
+            try {
+                LongHashSet userFilms = likedFilms.get(userId);
+                if (userFilms != null) {
+                    userFilms.remove(filmId);
+                }
+            } finally {
+                userLocks.unlock(userId);
+            }
+        }
+    }
+
+    private long[] likedFilmsOf(long userId) {
+        userLocks.lock(userId);
+        try {
+            LongHashSet userFilms = likedFilms.get(userId);
+            return userFilms == null ? SortedLongs.EMPTY : userFilms.toSortedArray();
+        } finally {
+            userLocks.unlock(userId);
+        }
+    }
+
+    /**
+     * Passes the users who liked the film to the consumer, in no particular order and under the film's stripe
+     * lock, if their number still fits into {@code scanBudget}; the likes of a film that does not fit are never
+     * read.
+     */
+    private void forEachLiker(long filmId, AtomicLong scanBudget, LongConsumer consumer) {
+        locks.lock(filmId);
+        try {
+            LongHashSet filmLikes = likes.get(filmId);
+            if (filmLikes != null) {
+                if (takeFromBudget(scanBudget, filmLikes.size())) {
+                    filmLikes.forEach(consumer);
+                }
+                return;
+            }
+        } finally {
+            locks.unlock(filmId);
+        }
+        int row = base.indexOf(filmId);
+        if (row >= 0 && takeFromBudget(scanBudget, base.likesCount(row))) {
+            for (long liker : base.likes(row)) {
+                consumer.accept(liker);
+            }
+        }
+    }
+
+    private static boolean takeFromBudget(AtomicLong budget, int amount) {
+        if (budget.addAndGet(-amount) < 0) {
+            budget.addAndGet(amount);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Counts, for every other user, the films among {@code userFilms[from, to)} they liked too. Films whose
+     * likers no longer fit into {@code scanBudget} are skipped.
+     */
+    private LongCounter countCommonLikes(long userId, long[] userFilms, int from, int to, AtomicLong scanBudget) {
+        LongCounter commonLikes = new LongCounter(0);
+        LongConsumer countLiker = liker -> {
+            if (liker != userId) {
+                commonLikes.increment(liker);
+            }
+        };
+        for (int i = from; i < to; i++) {
+            forEachLiker(userFilms[i], scanBudget, countLiker);
+        }
+        return commonLikes;
+    }
+
+    private int likesCount(long filmId) {
+        LongHashSet filmLikes = likes.get(filmId);
+        if (filmLikes != null) {
+            return filmLikes.size();
+        }
+        int row = base.indexOf(filmId);
+        return row < 0 ? 0 : base.likesCount(row);
+    }
+
+    /**
+     * Must be called under the film's stripe lock, like {@link #moveInPopularity}.
+     */
+    private void addUserLike(long filmId, long userId) {
+        int likesBefore = likes.get(filmId).size();
+        putLike(filmId, userId);
+        moveInPopularity(filmId, likesBefore, likesBefore + 1);
+    }
+
+    private void removeUserLike(long filmId, long userId) {
+        int likesBefore = likes.get(filmId).size();
+        takeLike(filmId, userId);
+        moveInPopularity(filmId, likesBefore, likesBefore - 1);
+    }
+
+    /**
+     * Adds a like the film does not have yet, without moving the film in the popularity index: the caller does,
+     * once for all the likes it changes. Must be called under the film's stripe lock.
+     */
+    private void putLike(long filmId, long userId) {
+        likes.get(filmId).add(userId);
+        linkLikes(filmId, userId);
+    }
+
+    /**
+     * Removes a like the film has, like {@link #putLike} without moving the film.
+     */
+    private void takeLike(long filmId, long userId) {
+        likes.get(filmId).remove(userId);
+        unlinkLikes(filmId, userId);
+    }
+
+    /**
+     * Must be called under the film's stripe lock, so rank moves of one film never interleave.
+     */
+    private void moveInPopularity(long filmId, int likesBefore, int likesAfter) {
+        List<RankingKey> keys = rankingKeys(films.get(filmId));
+        unrank(new FilmRank(likesBefore, filmId), keys);
+        rank(new FilmRank(likesAfter, filmId), keys);
+        likeCount.add(likesAfter - likesBefore);
+    }
+
+    private void rank(FilmRank rank, List<RankingKey> keys) {
+        popularity.add(rank);
+        rankFiltered(rank, keys);
+    }
+
+    private void unrank(FilmRank rank, List<RankingKey> keys) {
+        popularity.remove(rank);
+        unrankFiltered(rank, keys);
+    }
+
+    private void rankFiltered(FilmRank rank, List<RankingKey> keys) {
+        for (RankingKey key : keys) {
+            filteredPopularity.computeIfAbsent(key, k -> new ConcurrentSkipListSet<>()).add(rank);
+        }
+    }
+
+    private void unrankFiltered(FilmRank rank, List<RankingKey> keys) {
+        for (RankingKey key : keys) {
+            NavigableSet<FilmRank> ranking = filteredPopularity.get(key);
+            if (ranking != null) {
+                ranking.remove(rank);
+            }
+        }
+    }
+
+    private static List<RankingKey> rankingKeys(Film film) {
+        return rankingKeys(film.getReleaseDate(), genreIdsOf(film));
+    }
+
+    /**
+     * The filtered indexes a film is ranked in: its release year, each of its genres, and each genre within
+     * the year.
+     */
+    private static List<RankingKey> rankingKeys(LocalDate releaseDate, int[] genreIds) {
+        int year = releaseDate == null ? 0 : releaseDate.getYear();
+        List<RankingKey> keys = new ArrayList<>(1 + 2 * genreIds.length);
+        if (year != 0) {
+            keys.add(new RankingKey(0, year));
+        }
+        for (int genreId : genreIds) {
+            keys.add(new RankingKey(genreId, 0));
+            if (year != 0) {
+                keys.add(new RankingKey(genreId, year));
+            }
+        }
+        return keys;
+    }
+
+    private static int mpaIdOf(Film film) {
+        return film.getMpa() == null ? 0 : film.getMpa().getId();
+    }
+
+    private static int[] genreIdsOf(Film film) {
+        return film.getGenres() == null ? new int[0]
+                : film.getGenres().stream().mapToInt(Genre::getId).toArray();
     }
 
     private void validateNotFound(Long id) {
-        if (!films.containsKey(id)) {
+        if (!films.containsKey(id) && base.indexOf(id) < 0) {
             throw new NotFoundException("Фильм с id = " + id + " не найден");
         }
     }
+
+    /**
+     * Counts the likes shared with the user's films over a range of them, splitting the range in halves.
+     */
+    private class CommonLikesTask extends RecursiveTask<LongCounter> {
+
+        private final long userId;
+        private final long[] userFilms;
+        private final int from;
+        private final int to;
+        private final AtomicLong scanBudget;
+
+        private CommonLikesTask(long userId, long[] userFilms, int from, int to, AtomicLong scanBudget) {
+            this.userId = userId;
+            this.userFilms = userFilms;
+            this.from = from;
+            this.to = to;
+            this.scanBudget = scanBudget;
+        }
+
+        @Override
+        protected LongCounter compute() {
+            if (to - from <= RECOMMENDATION_CHUNK) {
+                return countCommonLikes(userId, userFilms, from, to, scanBudget);
+            }
+            int middle = (from + to) >>> 1;
+            CommonLikesTask right = new CommonLikesTask(userId, userFilms, middle, to, scanBudget);
+            right.fork();
+            LongCounter commonLikes = new CommonLikesTask(userId, userFilms, from, middle, scanBudget).compute();
+            commonLikes.addAll(right.join());
+            return commonLikes;
+        }
+    }
+
+    /**
+     * Filter of a {@link #filteredPopularity} index; 0 stands for any genre or any year.
+     */
+    private record RankingKey(int genreId, int year) {
+    }
+
+    /**
+     * Popularity index key: films with more likes first, ties broken by the smaller id.
+     */
+    private record FilmRank(int likes, long filmId) implements Comparable<FilmRank> {
+
+        @Override
+        public int compareTo(FilmRank other) {
+            int byLikes = Integer.compare(other.likes, likes);
+            return byLikes != 0 ? byLikes : Long.compare(filmId, other.filmId);
+        }
+    }
 }
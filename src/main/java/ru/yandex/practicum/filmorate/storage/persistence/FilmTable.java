@@ -0,0 +1,172 @@
+package ru.yandex.practicum.filmorate.storage.persistence;
+
+import ru.yandex.practicum.filmorate.storage.persistence.Mutation.FilmCreated;
+import ru.yandex.practicum.filmorate.storage.persistence.SnapshotColumns.AdjacencyColumn;
+import ru.yandex.practicum.filmorate.storage.persistence.SnapshotColumns.AdjacencySink;
+import ru.yandex.practicum.filmorate.storage.persistence.SnapshotColumns.Sink;
+import ru.yandex.practicum.filmorate.storage.persistence.SnapshotColumns.StringColumn;
+import ru.yandex.practicum.filmorate.storage.persistence.SnapshotColumns.StringSink;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.List;
+
+import static ru.yandex.practicum.filmorate.storage.persistence.SnapshotColumns.NULL_LONG;
+import static ru.yandex.practicum.filmorate.storage.persistence.SnapshotColumns.getLong;
+
+/**
+ * Films of a mapped snapshot, ordered by id. Rows are decoded on every access and never cached. Snapshots
+ * written before films had a rating and genres lack the last three columns and read as films without them.
+ */
+public final class FilmTable {
+
+    static final int COLUMNS = 14;
+    static final int LEGACY_COLUMNS = 11;
+
+    private static final int[] NO_GENRES = new int[0];
+
+    public static final FilmTable EMPTY = new FilmTable(Collections.nCopies(COLUMNS, ByteBuffer.allocate(0)), 0);
+
+    private final ByteBuffer ids;
+    private final StringColumn names;
+    private final StringColumn descriptions;
+    private final ByteBuffer releaseDates;
+    private final ByteBuffer durations;
+    private final AdjacencyColumn likes;
+    private final ByteBuffer mpaIds;
+    private final AdjacencyColumn genres;
+
+    FilmTable(List<ByteBuffer> columns, int from) {
+        ids = columns.get(from);
+        names = new StringColumn(columns, from + 1);
+        descriptions = new StringColumn(columns, from + 4);
+        releaseDates = columns.get(from + 7);
+        durations = columns.get(from + 8);
+        likes = new AdjacencyColumn(columns, from + 9);
+        boolean legacy = columns.size() - from == LEGACY_COLUMNS;
+        mpaIds = legacy ? null : columns.get(from + 11);
+        genres = legacy ? null : new AdjacencyColumn(columns, from + 12);
+    }
+
+    public int size() {
+        return ids.capacity() / Long.BYTES;
+    }
+
+    public long id(int index) {
+        return getLong(ids, index);
+    }
+
+    /**
+     * @return the row of the film, or -1 if the snapshot does not contain it
+     */
+    public int indexOf(long id) {
+        return SnapshotColumns.indexOf(ids, id);
+    }
+
+    /**
+     * @return the first row with an id greater than the given one, or {@link #size()} if there is none
+     */
+    public int rowAfter(long id) {
+        return SnapshotColumns.indexAfter(ids, id);
+    }
+
+    public long maxId() {
+        return size() == 0 ? 0 : id(size() - 1);
+    }
+
+    public String name(int index) {
+        return names.get(index);
+    }
+
+    public String description(int index) {
+        return descriptions.get(index);
+    }
+
+    public int likesCount(int index) {
+        return likes.count(index);
+    }
+
+    public long totalLikes() {
+        return likes.total();
+    }
+
+    public long[] likes(int index) {
+        return likes.get(index);
+    }
+
+    public LocalDate releaseDate(int index) {
+        long releaseDate = getLong(releaseDates, index);
+        return releaseDate == NULL_LONG ? null : LocalDate.ofEpochDay(releaseDate);
+    }
+
+    public int mpaId(int index) {
+        return mpaIds == null ? 0 : mpaIds.getInt(index * Integer.BYTES);
+    }
+
+    public int[] genreIds(int index) {
+        if (genres == null) {
+            return NO_GENRES;
+        }
+        long[] genreIds = genres.get(index);
+        int[] result = new int[genreIds.length];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = (int) genreIds[i];
+        }
+        return result;
+    }
+
+    public FilmCreated row(int index) {
+        long duration = getLong(durations, index);
+        return new FilmCreated(id(index), name(index), description(index), releaseDate(index),
+                duration == NULL_LONG ? null : duration, mpaId(index), genreIds(index), likes.get(index));
+    }
+
+    /**
+     * Accepts films in ascending id order, with sorted likes.
+     */
+    static final class Writer {
+
+        private final Sink ids;
+        private final StringSink names;
+        private final StringSink descriptions;
+        private final Sink releaseDates;
+        private final Sink durations;
+        private final AdjacencySink likes;
+        private final Sink mpaIds;
+        private final AdjacencySink genres;
+        private long lastId = Long.MIN_VALUE;
+
+        Writer(Path dir, List<Sink> columns) throws IOException {
+            ids = SnapshotColumns.add(columns, new Sink(dir));
+            names = new StringSink(dir, columns);
+            descriptions = new StringSink(dir, columns);
+            releaseDates = SnapshotColumns.add(columns, new Sink(dir));
+            durations = SnapshotColumns.add(columns, new Sink(dir));
+            likes = new AdjacencySink(dir, columns);
+            mpaIds = SnapshotColumns.add(columns, new Sink(dir));
+            genres = new AdjacencySink(dir, columns);
+        }
+
+        void write(FilmCreated film) throws IOException {
+            if (film.id() <= lastId) {
+                throw new IllegalStateException("Films must be written in ascending id order");
+            }
+            lastId = film.id();
+            ids.writeLong(film.id());
+            names.write(film.name());
+            descriptions.write(film.description());
+            releaseDates.writeLong(film.releaseDate() == null ? NULL_LONG : film.releaseDate().toEpochDay());
+            durations.writeLong(film.duration() == null ? NULL_LONG : film.duration());
+            likes.write(film.userLikes());
+            mpaIds.writeInt(film.mpaId());
+            long[] genreIds = new long[film.genreIds().length];
+            for (int i = 0; i < genreIds.length; i++) {
+                genreIds[i] = film.genreIds()[i];
+            }
+            genres.write(genreIds);
+        }
+    }
+}
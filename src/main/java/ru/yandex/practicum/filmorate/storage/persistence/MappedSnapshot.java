@@ -0,0 +1,7 @@
+package ru.yandex.practicum.filmorate.storage.persistence;
+
+/**
+ * Snapshot mapped into memory. Its tables serve as the read-only base of the in-memory storages.
+ */
+public record MappedSnapshot(UserTable users, FilmTable films) {
+}
@@ -0,0 +1,41 @@
+package ru.yandex.practicum.filmorate.storage.persistence;
+
+import java.time.LocalDate;
+
+/**
+ * A change of the in-memory storages as it is written to the write-ahead log. Applying the same sequence
+ * of mutations to empty storages rebuilds their state; snapshots are stored as such a sequence too.
+ */
+public sealed interface Mutation {
+
+    /**
+     * {@code mpaId} is 0 for a film without a rating; {@code genreIds} are sorted.
+     */
+    record FilmCreated(long id, String name, String description, LocalDate releaseDate, Long duration,
+                       int mpaId, int[] genreIds, long[] userLikes) implements Mutation {
+    }
+
+    record FilmUpdated(long id, String name, String description, LocalDate releaseDate, Long duration,
+                       int mpaId, int[] genreIds) implements Mutation {
+    }
+
+    record LikeAdded(long filmId, long userId) implements Mutation {
+    }
+
+    record LikeRemoved(long filmId, long userId) implements Mutation {
+    }
+
+    record UserCreated(long id, String email, String login, String name, LocalDate birthday, long[] friends)
+            implements Mutation {
+    }
+
+    record UserUpdated(long id, String email, String login, String name, LocalDate birthday)
+            implements Mutation {
+    }
+
+    record FriendAdded(long userId, long friendId) implements Mutation {
+    }
+
+    record FriendRemoved(long userId, long friendId) implements Mutation {
+    }
+}
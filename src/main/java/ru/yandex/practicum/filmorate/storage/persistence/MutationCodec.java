@@ -0,0 +1,186 @@
+package ru.yandex.practicum.filmorate.storage.persistence;
+
+import ru.yandex.practicum.filmorate.storage.persistence.Mutation.*;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+
+/**
+ * Compact binary encoding of {@link Mutation}s shared by the write-ahead log and snapshots.
+ */
+public final class MutationCodec {
+
+    /**
+     * Films without rating and genres, as logged before those were added; still read, no longer written.
+     */
+    private static final byte LEGACY_FILM_CREATED = 1;
+    private static final byte LEGACY_FILM_UPDATED = 2;
+    private static final byte LIKE_ADDED = 3;
+    private static final byte LIKE_REMOVED = 4;
+    private static final byte USER_CREATED = 5;
+    private static final byte USER_UPDATED = 6;
+    private static final byte FRIEND_ADDED = 7;
+    private static final byte FRIEND_REMOVED = 8;
+    private static final byte FILM_CREATED = 9;
+    private static final byte FILM_UPDATED = 10;
+
+    private static final int NULL_LENGTH = -1;
+    private static final long NULL_DATE = Long.MIN_VALUE;
+    private static final int[] NO_GENRES = new int[0];
+
+    private MutationCodec() {
+    }
+
+    public static void write(DataOutput out, Mutation mutation) throws IOException {
+        switch (mutation) {
+            case FilmCreated m -> {
+                out.writeByte(FILM_CREATED);
+                writeFilm(out, m.id(), m.name(), m.description(), m.releaseDate(), m.duration(), m.mpaId(),
+                        m.genreIds());
+                writeLongs(out, m.userLikes());
+            }
+            case FilmUpdated m -> {
+                out.writeByte(FILM_UPDATED);
+                writeFilm(out, m.id(), m.name(), m.description(), m.releaseDate(), m.duration(), m.mpaId(),
+                        m.genreIds());
+            }
+            case LikeAdded m -> {
+                out.writeByte(LIKE_ADDED);
+                out.writeLong(m.filmId());
+                out.writeLong(m.userId());
+            }
+            case LikeRemoved m -> {
+                out.writeByte(LIKE_REMOVED);
+                out.writeLong(m.filmId());
+                out.writeLong(m.userId());
+            }
+            case UserCreated m -> {
+                out.writeByte(USER_CREATED);
+                writeUser(out, m.id(), m.email(), m.login(), m.name(), m.birthday());
+                writeLongs(out, m.friends());
+            }
+            case UserUpdated m -> {
+                out.writeByte(USER_UPDATED);
+                writeUser(out, m.id(), m.email(), m.login(), m.name(), m.birthday());
+            }
+            case FriendAdded m -> {
+                out.writeByte(FRIEND_ADDED);
+                out.writeLong(m.userId());
+                out.writeLong(m.friendId());
+            }
+            case FriendRemoved m -> {
+                out.writeByte(FRIEND_REMOVED);
+                out.writeLong(m.userId());
+                out.writeLong(m.friendId());
+            }
+        }
+    }
+
+    public static Mutation read(DataInput in) throws IOException {
+        byte type = in.readByte();
+        return switch (type) {
+            case FILM_CREATED -> new FilmCreated(in.readLong(), readString(in), readString(in), readDate(in),
+                    readNullableLong(in), in.readInt(), readInts(in), readLongs(in));
+            case FILM_UPDATED -> new FilmUpdated(in.readLong(), readString(in), readString(in), readDate(in),
+                    readNullableLong(in), in.readInt(), readInts(in));
+            case LEGACY_FILM_CREATED -> new FilmCreated(in.readLong(), readString(in), readString(in),
+                    readDate(in), readNullableLong(in), 0, NO_GENRES, readLongs(in));
+            case LEGACY_FILM_UPDATED -> new FilmUpdated(in.readLong(), readString(in), readString(in),
+                    readDate(in), readNullableLong(in), 0, NO_GENRES);
+            case LIKE_ADDED -> new LikeAdded(in.readLong(), in.readLong());
+            case LIKE_REMOVED -> new LikeRemoved(in.readLong(), in.readLong());
+            case USER_CREATED -> new UserCreated(in.readLong(), readString(in), readString(in), readString(in),
+                    readDate(in), readLongs(in));
+            case USER_UPDATED -> new UserUpdated(in.readLong(), readString(in), readString(in), readString(in),
+                    readDate(in));
+            case FRIEND_ADDED -> new FriendAdded(in.readLong(), in.readLong());
+            case FRIEND_REMOVED -> new FriendRemoved(in.readLong(), in.readLong());
+            default -> throw new IOException("Unknown mutation type " + type);
+        };
+    }
+
+    private static void writeFilm(DataOutput out, long id, String name, String description, LocalDate releaseDate,
+                                  Long duration, int mpaId, int[] genreIds) throws IOException {
+        out.writeLong(id);
+        writeString(out, name);
+        writeString(out, description);
+        writeDate(out, releaseDate);
+        out.writeBoolean(duration != null);
+        if (duration != null) {
+            out.writeLong(duration);
+        }
+        out.writeInt(mpaId);
+        out.writeInt(genreIds.length);
+        for (int genreId : genreIds) {
+            out.writeInt(genreId);
+        }
+    }
+
+    private static void writeUser(DataOutput out, long id, String email, String login, String name,
+                                  LocalDate birthday) throws IOException {
+        out.writeLong(id);
+        writeString(out, email);
+        writeString(out, login);
+        writeString(out, name);
+        writeDate(out, birthday);
+    }
+
+    private static void writeString(DataOutput out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(NULL_LENGTH);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInput in) throws IOException {
+        int length = in.readInt();
+        if (length == NULL_LENGTH) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static void writeDate(DataOutput out, LocalDate date) throws IOException {
+        out.writeLong(date == null ? NULL_DATE : date.toEpochDay());
+    }
+
+    private static LocalDate readDate(DataInput in) throws IOException {
+        long epochDay = in.readLong();
+        return epochDay == NULL_DATE ? null : LocalDate.ofEpochDay(epochDay);
+    }
+
+    private static Long readNullableLong(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readLong() : null;
+    }
+
+    private static int[] readInts(DataInput in) throws IOException {
+        int[] values = new int[in.readInt()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = in.readInt();
+        }
+        return values;
+    }
+
+    private static void writeLongs(DataOutput out, long[] values) throws IOException {
+        out.writeInt(values.length);
+        for (long value : values) {
+            out.writeLong(value);
+        }
+    }
+
+    private static long[] readLongs(DataInput in) throws IOException {
+        long[] values = new long[in.readInt()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = in.readLong();
+        }
+        return values;
+    }
+}
@@ -0,0 +1,30 @@
+package ru.yandex.practicum.filmorate.storage.persistence;
+
+/**
+ * Destination of storage mutations. Storages append a mutation while holding the lock of the changed entity,
+ * which keeps the log order of one entity equal to the order the changes were applied in, and wait for
+ * durability only after releasing the lock.
+ */
+public interface MutationJournal {
+
+    MutationJournal DISABLED = new MutationJournal() {
+        @Override
+        public long append(Mutation mutation) {
+            return 0;
+        }
+
+        @Override
+        public void awaitDurable(long position) {
+        }
+    };
+
+    /**
+     * Queues the mutation for writing and returns its position in the log.
+     */
+    long append(Mutation mutation);
+
+    /**
+     * Blocks until every mutation up to {@code position} is written to disk.
+     */
+    void awaitDurable(long position);
+}
@@ -0,0 +1,50 @@
+package ru.yandex.practicum.filmorate.storage.persistence;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Persistence of the in-memory storages. Off by default, and never used together with the JDBC storages.
+ */
+@Configuration
+public class PersistenceConfig {
+
+    private static final String ENABLED =
+            "${filmorate.persistence.enabled:false} and '${filmorate.storage:memory}' == 'memory'";
+
+    @Bean
+    @ConditionalOnExpression(ENABLED)
+    public WriteAheadLog writeAheadLog(@Value("${filmorate.persistence.dir:./data}") Path dir,
+                                       @Value("${filmorate.persistence.fsync:true}") boolean fsync)
+            throws IOException {
+        return new WriteAheadLog(dir, fsync);
+    }
+
+    @Bean
+    @ConditionalOnExpression(ENABLED)
+    public PersistenceManager persistenceManager(InMemoryUserStorage userStorage, InMemoryFilmStorage filmStorage,
+                                                 WriteAheadLog writeAheadLog,
+                                                 @Value("${filmorate.persistence.dir:./data}") Path dir,
+                                                 @Value("${filmorate.persistence.snapshot-interval:10m}")
+                                                 Duration snapshotInterval) throws IOException {
+        PersistenceManager manager = new PersistenceManager(userStorage, filmStorage, writeAheadLog,
+                new SnapshotStore(dir));
+        manager.recover();
+        manager.scheduleSnapshots(snapshotInterval);
+        return manager;
+    }
+
+    @Bean
+    @ConditionalOnExpression("!(" + ENABLED + ")")
+    public MutationJournal disabledMutationJournal() {
+        return MutationJournal.DISABLED;
+    }
+}
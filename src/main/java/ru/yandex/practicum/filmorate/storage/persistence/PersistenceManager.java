@@ -0,0 +1,99 @@
+package ru.yandex.practicum.filmorate.storage.persistence;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.OptionalLong;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Restores the in-memory storages from the latest snapshot and the write-ahead log, and periodically
+ * takes new snapshots so the log to replay stays short.
+ * <p>
+ * Snapshots are fuzzy: they are taken while writes go on, so a snapshot may already contain some changes
+ * that are also in the log segment it points to. Replaying such changes a second time is harmless,
+ * since every mutation sets the state it describes rather than adjusting it.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class PersistenceManager implements Closeable {
+
+    private final InMemoryUserStorage userStorage;
+    private final InMemoryFilmStorage filmStorage;
+    private final WriteAheadLog wal;
+    private final SnapshotStore snapshots;
+    private ScheduledExecutorService scheduler;
+
+    public void recover() throws IOException {
+        long started = System.nanoTime();
+        Consumer<Mutation> apply = mutation -> {
+            userStorage.apply(mutation);
+            filmStorage.apply(mutation);
+        };
+
+        OptionalLong snapshot = snapshots.latest();
+        long fromSegment = snapshot.orElse(0);
+        if (snapshot.isPresent()) {
+            MappedSnapshot mapped = snapshots.open(fromSegment);
+            userStorage.load(mapped.users());
+            filmStorage.load(mapped.films());
+        }
+        long lastSegment = wal.replay(fromSegment, apply);
+        wal.open(Math.max(lastSegment + 1, fromSegment));
+
+        log.info("Recovered storages from snapshot {} and log segments up to {} in {} ms",
+                fromSegment, lastSegment, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+    }
+
+    public void scheduleSnapshots(Duration interval) {
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "snapshot-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                snapshot();
+            } catch (IOException | RuntimeException e) {
+                log.error("Snapshot failed", e);
+            }
+        }, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    public void snapshot() throws IOException {
+        long started = System.nanoTime();
+        long segment = wal.rotate();
+        snapshots.write(segment, sink -> {
+            userStorage.snapshot(sink);
+            filmStorage.snapshot(sink);
+        });
+        wal.deleteSegmentsBefore(segment);
+        log.info("Snapshot {} written in {} ms", segment,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (scheduler != null) {
+            scheduler.shutdown();
+            try {
+                scheduler.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        try {
+            snapshot();
+        } finally {
+            wal.close();
+        }
+    }
+}
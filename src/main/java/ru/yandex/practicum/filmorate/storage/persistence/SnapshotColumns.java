@@ -0,0 +1,285 @@
+package ru.yandex.practicum.filmorate.storage.persistence;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Columnar snapshot file: a header listing the offset and length of every column, followed by the columns,
+ * each aligned to 8 bytes. Columns are written to temporary files one value at a time and concatenated at the
+ * end, and read back by mapping every column separately, so neither side holds the whole state on the heap.
+ */
+final class SnapshotColumns {
+
+    static final long NULL_LONG = Long.MIN_VALUE;
+
+    private static final int MAGIC = 0x464D534E;
+    private static final int VERSION = 2;
+    private static final int NULL_LENGTH = -1;
+
+    private SnapshotColumns() {
+    }
+
+    /**
+     * Concatenates the columns into {@code target} and forces it to disk.
+     */
+    static void assemble(List<Sink> columns, Path target) throws IOException {
+        for (Sink column : columns) {
+            column.flush();
+        }
+        long headerBytes = align(3L * Integer.BYTES + 2L * Long.BYTES * columns.size());
+        ByteBuffer header = ByteBuffer.allocate((int) headerBytes);
+        header.putInt(MAGIC).putInt(VERSION).putInt(columns.size());
+        long offset = headerBytes;
+        for (Sink column : columns) {
+            header.putLong(offset).putLong(column.bytes);
+            offset = align(offset + column.bytes);
+        }
+        header.flip();
+
+        try (FileChannel file = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (header.hasRemaining()) {
+                file.write(header);
+            }
+            long position = headerBytes;
+            for (Sink column : columns) {
+                try (FileChannel source = FileChannel.open(column.file, StandardOpenOption.READ)) {
+                    long copied = 0;
+                    while (copied < column.bytes) {
+                        copied += source.transferTo(copied, column.bytes - copied, file.position(position + copied));
+                    }
+                }
+                position = align(position + column.bytes);
+            }
+            file.force(true);
+        }
+    }
+
+    /**
+     * Maps every column of a snapshot file. The mappings stay valid after the file is closed or deleted.
+     */
+    static List<ByteBuffer> map(Path path) throws IOException {
+        try (FileChannel file = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(3 * Integer.BYTES);
+            readFully(file, header, 0);
+            if (header.getInt(0) != MAGIC || header.getInt(Integer.BYTES) != VERSION) {
+                throw new IOException("Unsupported snapshot format: " + path);
+            }
+            int count = header.getInt(2 * Integer.BYTES);
+            ByteBuffer directory = ByteBuffer.allocate(2 * Long.BYTES * count);
+            readFully(file, directory, header.capacity());
+
+            List<ByteBuffer> columns = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                long offset = directory.getLong();
+                long length = directory.getLong();
+                if (offset < 0 || length < 0 || offset + length > file.size() || length > Integer.MAX_VALUE) {
+                    throw new IOException("Corrupted snapshot column " + i + ": " + path);
+                }
+                columns.add(file.map(FileChannel.MapMode.READ_ONLY, offset, length));
+            }
+            return columns;
+        }
+    }
+
+    private static void readFully(FileChannel file, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (file.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("Truncated snapshot header");
+            }
+        }
+        buffer.flip();
+    }
+
+    private static long align(long offset) {
+        return (offset + Long.BYTES - 1) & -Long.BYTES;
+    }
+
+    static long getLong(ByteBuffer column, int index) {
+        return column.getLong(index * Long.BYTES);
+    }
+
+    /**
+     * Binary search over a column of ascending longs.
+     *
+     * @return the index of the value, or -1 if it is absent
+     */
+    static int indexOf(ByteBuffer column, long value) {
+        int low = 0;
+        int high = column.capacity() / Long.BYTES - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            long current = getLong(column, middle);
+            if (current < value) {
+                low = middle + 1;
+            } else if (current > value) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return the first index whose value is greater than the given one, or the size of the column if none is
+     */
+    static int indexAfter(ByteBuffer column, long value) {
+        int low = 0;
+        int high = column.capacity() / Long.BYTES;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (getLong(column, middle) <= value) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Column under construction, appended sequentially to a temporary file.
+     */
+    static final class Sink implements Closeable {
+
+        private final Path file;
+        private final DataOutputStream out;
+        private long bytes;
+
+        Sink(Path dir) throws IOException {
+            file = Files.createTempFile(dir, "column-", ".tmp");
+            out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16));
+        }
+
+        void writeLong(long value) throws IOException {
+            out.writeLong(value);
+            bytes += Long.BYTES;
+        }
+
+        void writeInt(int value) throws IOException {
+            out.writeInt(value);
+            bytes += Integer.BYTES;
+        }
+
+        void write(byte[] value) throws IOException {
+            out.write(value);
+            bytes += value.length;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                out.close();
+            } finally {
+                Files.deleteIfExists(file);
+            }
+        }
+
+        void flush() throws IOException {
+            out.flush();
+        }
+    }
+
+    /**
+     * Nullable strings as three columns: byte lengths, offsets into the bytes column and the UTF-8 bytes.
+     */
+    static final class StringSink {
+
+        private final Sink lengths;
+        private final Sink offsets;
+        private final Sink bytes;
+
+        StringSink(Path dir, List<Sink> columns) throws IOException {
+            lengths = add(columns, new Sink(dir));
+            offsets = add(columns, new Sink(dir));
+            bytes = add(columns, new Sink(dir));
+        }
+
+        void write(String value) throws IOException {
+            offsets.writeLong(bytes.bytes);
+            if (value == null) {
+                lengths.writeInt(NULL_LENGTH);
+                return;
+            }
+            byte[] encoded = value.getBytes(StandardCharsets.UTF_8);
+            lengths.writeInt(encoded.length);
+            bytes.write(encoded);
+        }
+    }
+
+    record StringColumn(ByteBuffer lengths, ByteBuffer offsets, ByteBuffer bytes) {
+
+        StringColumn(List<ByteBuffer> columns, int from) {
+            this(columns.get(from), columns.get(from + 1), columns.get(from + 2));
+        }
+
+        String get(int index) {
+            int length = lengths.getInt(index * Integer.BYTES);
+            if (length == NULL_LENGTH) {
+                return null;
+            }
+            byte[] encoded = new byte[length];
+            bytes.get((int) getLong(offsets, index), encoded);
+            return new String(encoded, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Per-entity sorted id lists (likes, friends) as two columns: {@code n + 1} offsets and the ids themselves.
+     */
+    static final class AdjacencySink {
+
+        private final Sink offsets;
+        private final Sink values;
+        private long count;
+
+        AdjacencySink(Path dir, List<Sink> columns) throws IOException {
+            offsets = add(columns, new Sink(dir));
+            values = add(columns, new Sink(dir));
+            offsets.writeLong(0);
+        }
+
+        void write(long[] ids) throws IOException {
+            for (long id : ids) {
+                values.writeLong(id);
+            }
+            count += ids.length;
+            offsets.writeLong(count);
+        }
+    }
+
+    record AdjacencyColumn(ByteBuffer offsets, ByteBuffer values) {
+
+        AdjacencyColumn(List<ByteBuffer> columns, int from) {
+            this(columns.get(from), columns.get(from + 1));
+        }
+
+        int count(int index) {
+            return (int) (getLong(offsets, index + 1) - getLong(offsets, index));
+        }
+
+        long total() {
+            return values.capacity() / Long.BYTES;
+        }
+
+        long[] get(int index) {
+            int from = (int) getLong(offsets, index);
+            long[] ids = new long[count(index)];
+            values.asLongBuffer().get(from, ids);
+            return ids;
+        }
+    }
+
+    static Sink add(List<Sink> columns, Sink column) {
+        columns.add(column);
+        return column;
+    }
+}
@@ -0,0 +1,110 @@
+package ru.yandex.practicum.filmorate.storage.persistence;
+
+import lombok.extern.slf4j.Slf4j;
+import ru.yandex.practicum.filmorate.storage.persistence.Mutation.FilmCreated;
+import ru.yandex.practicum.filmorate.storage.persistence.Mutation.UserCreated;
+import ru.yandex.practicum.filmorate.storage.persistence.SnapshotColumns.Sink;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Snapshots of the whole storage state, named after the write-ahead log segment replay has to start from.
+ * The state is stored column by column (see {@link SnapshotColumns}) and opened by mapping the file, so a start
+ * does not have to decode every film and user up front.
+ */
+@Slf4j
+public class SnapshotStore {
+
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_SUFFIX = ".bin";
+
+    private final Path dir;
+
+    public SnapshotStore(Path dir) throws IOException {
+        this.dir = Files.createDirectories(dir);
+    }
+
+    public OptionalLong latest() throws IOException {
+        return listSnapshots().stream().mapToLong(Long::longValue).max();
+    }
+
+    /**
+     * Writes the users and films produced by {@code source}, each kind in ascending id order, to a temporary
+     * file and atomically moves it in place, so a crash while writing leaves the previous snapshot intact.
+     * Older snapshots are deleted afterwards; a storage still mapping one keeps its pages until unmapped.
+     */
+    public void write(long segment, Consumer<Consumer<Mutation>> source) throws IOException {
+        Path temp = dir.resolve(snapshotName(segment) + ".tmp");
+        List<Sink> columns = new ArrayList<>(UserTable.COLUMNS + FilmTable.COLUMNS);
+        try {
+            UserTable.Writer users = new UserTable.Writer(dir, columns);
+            FilmTable.Writer films = new FilmTable.Writer(dir, columns);
+            try {
+                source.accept(mutation -> {
+                    try {
+                        switch (mutation) {
+                            case UserCreated user -> users.write(user);
+                            case FilmCreated film -> films.write(film);
+                            default -> throw new IllegalArgumentException("Not a snapshot record: " + mutation);
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+            SnapshotColumns.assemble(columns, temp);
+        } finally {
+            for (Sink column : columns) {
+                column.close();
+            }
+        }
+        Files.move(temp, dir.resolve(snapshotName(segment)), StandardCopyOption.ATOMIC_MOVE);
+
+        for (long older : listSnapshots()) {
+            if (older < segment) {
+                Files.deleteIfExists(dir.resolve(snapshotName(older)));
+            }
+        }
+    }
+
+    public MappedSnapshot open(long segment) throws IOException {
+        Path path = dir.resolve(snapshotName(segment));
+        List<ByteBuffer> columns = SnapshotColumns.map(path);
+        if (columns.size() != UserTable.COLUMNS + FilmTable.COLUMNS
+                && columns.size() != UserTable.COLUMNS + FilmTable.LEGACY_COLUMNS) {
+            throw new IOException("Unexpected number of snapshot columns: " + path);
+        }
+        MappedSnapshot snapshot = new MappedSnapshot(new UserTable(columns, 0),
+                new FilmTable(columns, UserTable.COLUMNS));
+        log.info("Mapped snapshot {} with {} users and {} films", segment, snapshot.users().size(),
+                snapshot.films().size());
+        return snapshot;
+    }
+
+    private String snapshotName(long segment) {
+        return String.format("%s%020d%s", SNAPSHOT_PREFIX, segment, SNAPSHOT_SUFFIX);
+    }
+
+    private List<Long> listSnapshots() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith(SNAPSHOT_PREFIX) && name.endsWith(SNAPSHOT_SUFFIX))
+                    .map(name -> Long.parseLong(name, SNAPSHOT_PREFIX.length(),
+                            name.length() - SNAPSHOT_SUFFIX.length(), 10))
+                    .sorted()
+                    .toList();
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package ru.yandex.practicum.filmorate.storage.persistence;
+
+import ru.yandex.practicum.filmorate.storage.persistence.Mutation.UserCreated;
+import ru.yandex.practicum.filmorate.storage.persistence.SnapshotColumns.AdjacencyColumn;
+import ru.yandex.practicum.filmorate.storage.persistence.SnapshotColumns.AdjacencySink;
+import ru.yandex.practicum.filmorate.storage.persistence.SnapshotColumns.Sink;
+import ru.yandex.practicum.filmorate.storage.persistence.SnapshotColumns.StringColumn;
+import ru.yandex.practicum.filmorate.storage.persistence.SnapshotColumns.StringSink;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.List;
+
+import static ru.yandex.practicum.filmorate.storage.persistence.SnapshotColumns.NULL_LONG;
+import static ru.yandex.practicum.filmorate.storage.persistence.SnapshotColumns.getLong;
+
+/**
+ * Users of a mapped snapshot, ordered by id. Rows are decoded on every access and never cached.
+ */
+public final class UserTable {
+
+    static final int COLUMNS = 13;
+
+    public static final UserTable EMPTY = new UserTable(Collections.nCopies(COLUMNS, ByteBuffer.allocate(0)), 0);
+
+    private final ByteBuffer ids;
+    private final StringColumn emails;
+    private final StringColumn logins;
+    private final StringColumn names;
+    private final ByteBuffer birthdays;
+    private final AdjacencyColumn friends;
+
+    UserTable(List<ByteBuffer> columns, int from) {
+        ids = columns.get(from);
+        emails = new StringColumn(columns, from + 1);
+        logins = new StringColumn(columns, from + 4);
+        names = new StringColumn(columns, from + 7);
+        birthdays = columns.get(from + 10);
+        friends = new AdjacencyColumn(columns, from + 11);
+    }
+
+    public int size() {
+        return ids.capacity() / Long.BYTES;
+    }
+
+    public long id(int index) {
+        return getLong(ids, index);
+    }
+
+    /**
+     * @return the row of the user, or -1 if the snapshot does not contain it
+     */
+    public int indexOf(long id) {
+        return SnapshotColumns.indexOf(ids, id);
+    }
+
+    /**
+     * @return the first row with an id greater than the given one, or {@link #size()} if there is none
+     */
+    public int rowAfter(long id) {
+        return SnapshotColumns.indexAfter(ids, id);
+    }
+
+    public long maxId() {
+        return size() == 0 ? 0 : id(size() - 1);
+    }
+
+    public long totalFriendLinks() {
+        return friends.total();
+    }
+
+    public long[] friends(int index) {
+        return friends.get(index);
+    }
+
+    public UserCreated row(int index) {
+        long birthday = getLong(birthdays, index);
+        return new UserCreated(id(index), emails.get(index), logins.get(index), names.get(index),
+                birthday == NULL_LONG ? null : LocalDate.ofEpochDay(birthday), friends.get(index));
+    }
+
+    /**
+     * Accepts users in ascending id order, with sorted friends.
+     */
+    static final class Writer {
+
+        private final Sink ids;
+        private final StringSink emails;
+        private final StringSink logins;
+        private final StringSink names;
+        private final Sink birthdays;
+        private final AdjacencySink friends;
+        private long lastId = Long.MIN_VALUE;
+
+        Writer(Path dir, List<Sink> columns) throws IOException {
+            ids = SnapshotColumns.add(columns, new Sink(dir));
+            emails = new StringSink(dir, columns);
+            logins = new StringSink(dir, columns);
+            names = new StringSink(dir, columns);
+            birthdays = SnapshotColumns.add(columns, new Sink(dir));
+            friends = new AdjacencySink(dir, columns);
+        }
+
+        void write(UserCreated user) throws IOException {
+            if (user.id() <= lastId) {
+                throw new IllegalStateException("Users must be written in ascending id order");
+            }
+            lastId = user.id();
+            ids.writeLong(user.id());
+            emails.write(user.email());
+            logins.write(user.login());
+            names.write(user.name());
+            birthdays.writeLong(user.birthday() == null ? NULL_LONG : user.birthday().toEpochDay());
+            friends.write(user.friends());
+        }
+    }
+}
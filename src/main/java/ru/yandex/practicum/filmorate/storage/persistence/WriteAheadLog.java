@@ -0,0 +1,327 @@
+package ru.yandex.practicum.filmorate.storage.persistence;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only log of {@link Mutation}s split into numbered segment files. Every record is
+ * {@code [payload length][payload CRC32][payload]}.
+ * <p>
+ * Appending threads only copy the encoded record into a shared buffer; a single writer thread flushes
+ * everything accumulated since its previous write with one {@code write} and one {@code force} (group commit),
+ * so concurrent writers share the cost of an fsync.
+ */
+@Slf4j
+public class WriteAheadLog implements MutationJournal, Closeable {
+
+    private static final String SEGMENT_PREFIX = "wal-";
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final int HEADER_BYTES = 2 * Integer.BYTES;
+
+    private final Path dir;
+    private final boolean fsync;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition workAvailable = lock.newCondition();
+    private final Condition durableAdvanced = lock.newCondition();
+    private final Condition appendAllowed = lock.newCondition();
+
+    private RecordBuffer pending = new RecordBuffer();
+    private RecordBuffer writing = new RecordBuffer();
+    private long appended;
+    private volatile long durable;
+    private IOException failure;
+    private boolean rotating;
+    private boolean closed;
+
+    private FileChannel channel;
+    private long segment;
+    private Thread writer;
+
+    public WriteAheadLog(Path dir, boolean fsync) throws IOException {
+        this.dir = Files.createDirectories(dir);
+        this.fsync = fsync;
+    }
+
+    /**
+     * Starts appending to the given segment. Must be called once, after {@link #replay}.
+     */
+    public void open(long segment) throws IOException {
+        lock.lock();
+        try {
+            this.segment = segment;
+            this.channel = openSegment(segment);
+        } finally {
+            lock.unlock();
+        }
+        writer = new Thread(this::writeLoop, "wal-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @Override
+    public long append(Mutation mutation) {
+        RecordBuffer record = encode(mutation);
+        lock.lock();
+        try {
+            while (rotating) {
+                appendAllowed.awaitUninterruptibly();
+            }
+            if (failure != null) {
+                throw new UncheckedIOException(failure);
+            }
+            if (closed || channel == null) {
+                throw new IllegalStateException("Write-ahead log is not open");
+            }
+            pending.write(record.array(), 0, record.size());
+            workAvailable.signal();
+            return ++appended;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void awaitDurable(long position) {
+        if (position <= durable) {
+            return;
+        }
+        lock.lock();
+        try {
+            while (durable < position && failure == null) {
+                durableAdvanced.awaitUninterruptibly();
+            }
+            if (durable < position) {
+                throw new UncheckedIOException(failure);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Waits until everything appended so far is durable and switches to the next segment. Appends are held
+     * back meanwhile, so every mutation appended after this call lands in the returned segment or a later one.
+     */
+    public long rotate() throws IOException {
+        lock.lock();
+        try {
+            rotating = true;
+            while (durable < appended && failure == null) {
+                durableAdvanced.awaitUninterruptibly();
+            }
+            if (failure != null) {
+                throw failure;
+            }
+            channel.close();
+            channel = openSegment(++segment);
+            return segment;
+        } finally {
+            rotating = false;
+            appendAllowed.signalAll();
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Feeds every intact record of the segments starting from {@code fromSegment} to the consumer. A torn or
+     * corrupted record in the last segment can only be the tail of a write that never completed, so the segment
+     * is truncated there. Earlier segments were complete before the next one was opened, so a bad record in one
+     * of them fails recovery rather than dropping every later segment.
+     *
+     * @return the number of the last segment, or {@code fromSegment - 1} if there were none
+     */
+    public long replay(long fromSegment, Consumer<Mutation> consumer) throws IOException {
+        List<Long> segments = listSegments().stream().filter(number -> number >= fromSegment).toList();
+        for (int i = 0; i < segments.size(); i++) {
+            replaySegment(segmentPath(segments.get(i)), consumer, i == segments.size() - 1);
+        }
+        return segments.isEmpty() ? fromSegment - 1 : segments.getLast();
+    }
+
+    public void deleteSegmentsBefore(long segment) throws IOException {
+        for (long number : listSegments()) {
+            if (number < segment) {
+                Files.deleteIfExists(segmentPath(number));
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            workAvailable.signal();
+        } finally {
+            lock.unlock();
+        }
+        if (writer != null) {
+            try {
+                writer.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (channel != null) {
+            channel.close();
+        }
+    }
+
+    private void writeLoop() {
+        while (true) {
+            FileChannel target;
+            long position;
+            lock.lock();
+            try {
+                while (pending.size() == 0 && !closed) {
+                    workAvailable.awaitUninterruptibly();
+                }
+                if (pending.size() == 0) {
+                    return;
+                }
+                RecordBuffer swap = writing;
+                writing = pending;
+                pending = swap;
+                target = channel;
+                position = appended;
+            } finally {
+                lock.unlock();
+            }
+
+            try {
+                ByteBuffer bytes = ByteBuffer.wrap(writing.array(), 0, writing.size());
+                while (bytes.hasRemaining()) {
+                    target.write(bytes);
+                }
+                if (fsync) {
+                    target.force(false);
+                }
+            } catch (IOException e) {
+                log.error("Write-ahead log write failed, further writes are rejected", e);
+                lock.lock();
+                try {
+                    failure = e;
+                    durableAdvanced.signalAll();
+                } finally {
+                    lock.unlock();
+                }
+                return;
+            }
+            writing.reset();
+
+            lock.lock();
+            try {
+                durable = position;
+                durableAdvanced.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Encodes into a fresh buffer rather than a thread-local one: request threads may be virtual, and those
+     * are never reused, so a per-thread cache would only add a lookup.
+     */
+    private RecordBuffer encode(Mutation mutation) {
+        RecordBuffer record = new RecordBuffer();
+        try {
+            record.data.writeLong(0);
+            MutationCodec.write(record.data, mutation);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        int payloadLength = record.size() - HEADER_BYTES;
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), HEADER_BYTES, payloadLength);
+        ByteBuffer.wrap(record.array(), 0, HEADER_BYTES).putInt(payloadLength).putInt((int) crc.getValue());
+        return record;
+    }
+
+    private void replaySegment(Path path, Consumer<Mutation> consumer, boolean last) throws IOException {
+        long validBytes = 0;
+        long size = Files.size(path);
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            while (validBytes + HEADER_BYTES <= size) {
+                int payloadLength = in.readInt();
+                int expectedCrc = in.readInt();
+                if (payloadLength <= 0 || validBytes + HEADER_BYTES + payloadLength > size) {
+                    break;
+                }
+                byte[] payload = new byte[payloadLength];
+                in.readFully(payload);
+                CRC32 crc = new CRC32();
+                crc.update(payload);
+                if ((int) crc.getValue() != expectedCrc) {
+                    break;
+                }
+                consumer.accept(MutationCodec.read(new DataInputStream(new ByteArrayInputStream(payload))));
+                validBytes += HEADER_BYTES + payloadLength;
+            }
+        }
+        if (validBytes == size) {
+            return;
+        }
+        if (!last) {
+            throw new IOException("Log segment " + path.getFileName() + " is corrupted at " + validBytes + " of "
+                    + size + " bytes, but later segments follow it");
+        }
+        log.warn("Truncating torn tail of {} at {} of {} bytes", path.getFileName(), validBytes, size);
+        try (FileChannel file = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            file.truncate(validBytes);
+            file.force(true);
+        }
+    }
+
+    private FileChannel openSegment(long number) throws IOException {
+        return FileChannel.open(segmentPath(number),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private Path segmentPath(long number) {
+        return dir.resolve(String.format("%s%020d%s", SEGMENT_PREFIX, number, SEGMENT_SUFFIX));
+    }
+
+    private List<Long> listSegments() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX))
+                    .map(name -> Long.parseLong(name, SEGMENT_PREFIX.length(),
+                            name.length() - SEGMENT_SUFFIX.length(), 10))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    /**
+     * Growable byte buffer whose backing array can be handed to a channel without copying.
+     */
+    private static final class RecordBuffer extends ByteArrayOutputStream {
+
+        private final DataOutputStream data = new DataOutputStream(this);
+
+        RecordBuffer() {
+            super(256);
+        }
+
+        byte[] array() {
+            return buf;
+        }
+    }
+}
@@ -0,0 +1,410 @@
+package ru.yandex.practicum.filmorate.storage.user;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Event;
+import ru.yandex.practicum.filmorate.model.Event.EventType;
+import ru.yandex.practicum.filmorate.model.Event.Operation;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Feeds of the in-memory storage: a ring of the latest events of every user. Appends take no locks: a writer
+ * claims an event id and a slot of the user's ring with one atomic increment each, fills the slot's primitive
+ * fields and publishes it, so writes of different users never wait for each other. A ring starts with
+ * {@link #INITIAL_RING_SIZE} slots and doubles until it holds the events per user, so users with few events,
+ * most of them, keep small rings; only the first event and the doublings allocate.
+ * <p>
+ * With a spill file, the event a full ring is about to overwrite is written to the file first. Spilled events
+ * of a user are chained from the newest back, so a feed pages past its ring; each ring remembers where the
+ * last read of its chain stopped, so the next page continues from there. Feeds are not persisted: the file
+ * starts empty with every run.
+ */
+@Component
+@ConditionalOnProperty(name = "filmorate.storage", havingValue = "memory", matchIfMissing = true)
+@Slf4j
+public class EventLog implements Closeable {
+
+    public static final int DEFAULT_EVENTS_PER_USER = 64;
+
+    static final int INITIAL_RING_SIZE = 4;
+
+    /**
+     * Events are no longer spilled once the file reaches this size.
+     */
+    static final long MAX_SPILL_BYTES = 1L << 30;
+
+    /**
+     * Event id, timestamp, entity id, offset of the user's previous spilled record and the kind of the event.
+     */
+    private static final int RECORD_BYTES = 4 * Long.BYTES + Integer.BYTES;
+    private static final EventType[] EVENT_TYPES = EventType.values();
+    private static final Operation[] OPERATIONS = Operation.values();
+
+    private final int capacity;
+    private final AtomicLong eventIds = new AtomicLong();
+    private final Map<Long, Ring> rings = new ConcurrentHashMap<>();
+    private final FileChannel spill;
+    private final AtomicLong spillSize = new AtomicLong();
+
+    public EventLog() {
+        this(DEFAULT_EVENTS_PER_USER, null);
+    }
+
+    /**
+     * @param eventsPerUser the size of every ring, a power of two
+     * @param spillFile     the file for events pushed out of the rings, or {@code null} to drop them
+     */
+    @Autowired
+    public EventLog(@Value("${filmorate.feed.events-per-user:" + DEFAULT_EVENTS_PER_USER + "}") int eventsPerUser,
+                    @Value("${filmorate.feed.spill-file:#{null}}") Path spillFile) {
+        if (eventsPerUser < 1 || Integer.bitCount(eventsPerUser) != 1) {
+            throw new IllegalArgumentException("Events per user must be a power of two, got " + eventsPerUser);
+        }
+        this.capacity = eventsPerUser;
+        this.spill = spillFile == null ? null : openSpill(spillFile);
+    }
+
+    /**
+     * Records an event of the user. Never blocks unless a writer of the same user is a whole ring behind, or
+     * the user's ring is growing and waits for the writers of its slots.
+     */
+    public void append(long userId, EventType eventType, Operation operation, long entityId) {
+        long eventId = eventIds.incrementAndGet();
+        long timestamp = System.currentTimeMillis();
+        Ring ring = rings.get(userId);
+        if (ring == null) {
+            ring = rings.computeIfAbsent(userId, id -> new Ring(capacity));
+        }
+
+        long sequence = ring.claim();
+        long[] slots = ring.slotsFor(sequence);
+        long overwritten = sequence - capacity;
+        if (overwritten >= 0) {
+            Ring.awaitPublished(slots, overwritten);
+            if (spill != null) {
+                spill(ring, slots, overwritten);
+            }
+        }
+        Ring.write(slots, sequence, eventId, timestamp,
+                eventType.ordinal() * OPERATIONS.length + operation.ordinal(), entityId);
+    }
+
+    /**
+     * Returns up to {@code limit} events of the user with ids less than {@code beforeEventId}, the newest
+     * first.
+     */
+    public List<Event> findPage(long userId, long beforeEventId, int limit) {
+        Ring ring = rings.get(userId);
+        if (ring == null) {
+            return List.of();
+        }
+        // Slots follow the order writers claimed them, which concurrent writers of one user may swap with the
+        // order of their ids; the ids are sorted first, so only the events of the page are decoded. Sequences
+        // past a ring that is still growing are in its next array, and are left out like unpublished ones.
+        long[] slots = ring.slots;
+        long tail = ring.tail;
+        int size = Ring.size(slots);
+        long end = size < capacity ? Math.min(tail, size) : tail;
+        long first = Math.max(end - size, 0);
+        long[] ids = new long[(int) (end - first)];
+        long[] sequences = new long[ids.length];
+        int found = 0;
+        for (long sequence = end - 1; sequence >= first; sequence--) {
+            long eventId = Ring.eventId(slots, sequence);
+            if (eventId > 0 && eventId < beforeEventId) {
+                int i = found++;
+                for (; i > 0 && ids[i - 1] < eventId; i--) {
+                    ids[i] = ids[i - 1];
+                    sequences[i] = sequences[i - 1];
+                }
+                ids[i] = eventId;
+                sequences[i] = sequence;
+            }
+        }
+        List<Event> page = new ArrayList<>(Math.min(found, limit));
+        long oldestTaken = beforeEventId;
+        for (int i = 0; i < found && page.size() < limit; i++) {
+            Event event = Ring.read(slots, userId, sequences[i]);
+            if (event != null) {
+                page.add(event);
+                oldestTaken = event.getEventId();
+            }
+        }
+        // Spilled events are older than the ring's, so the file is read only for what the ring lacks. An event
+        // taken from the ring may have been spilled since, so the file is read below the oldest one taken.
+        if (spill != null && page.size() < limit) {
+            readSpilled(userId, ring, oldestTaken, limit - page.size(), page);
+            page.sort(Comparator.comparing(Event::getEventId).reversed());
+        }
+        return page;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (spill != null) {
+            spill.close();
+        }
+    }
+
+    /**
+     * Writes the event of the sequence to the file and makes it the newest of the user's chain. Failures only
+     * lose the event: a feed must not fail the like or friendship that produced it.
+     */
+    private void spill(Ring ring, long[] slots, long sequence) {
+        long offset = spillSize.getAndAdd(RECORD_BYTES);
+        if (offset + RECORD_BYTES > MAX_SPILL_BYTES) {
+            return;
+        }
+        int slot = Ring.slot(slots, sequence);
+        long stampedTime = slots[slot + 2];
+        ByteBuffer record = ByteBuffer.allocate(RECORD_BYTES);
+        record.putLong(slots[slot + 1])
+                .putLong(stampedTime & Ring.TIMESTAMP_MASK)
+                .putLong(slots[slot + 3])
+                .putLong(ring.linkSpilled(offset))
+                .putInt((int) (stampedTime >>> Ring.KIND_SHIFT))
+                .flip();
+        try {
+            while (record.hasRemaining()) {
+                spill.write(record, offset + record.position());
+            }
+        } catch (IOException e) {
+            log.warn("Failed to spill event {}", slots[slot + 1], e);
+        }
+    }
+
+    /**
+     * Walks the user's chain from the newest record, or from the ring's cursor when the page starts below it: all
+     * records before the cursor have ids at least its own, so none of them belongs to the page. The walk leaves
+     * the cursor where it stopped, which is where the next page of the feed starts.
+     */
+    private void readSpilled(long userId, Ring ring, long beforeEventId, int limit, List<Event> page) {
+        SpillCursor cursor = ring.spillCursor;
+        long offset = ring.lastSpilled;
+        long oldestRead = Long.MAX_VALUE;
+        if (cursor != null && beforeEventId <= cursor.oldestRead()) {
+            offset = cursor.offset();
+            oldestRead = cursor.oldestRead();
+        }
+        ByteBuffer record = ByteBuffer.allocate(RECORD_BYTES);
+        int found = 0;
+        try {
+            while (offset >= 0 && found < limit) {
+                record.clear();
+                int read;
+                do {
+                    read = spill.read(record, offset + record.position());
+                } while (read > 0 && record.hasRemaining());
+                record.flip();
+                // A record still being written reads as zeros or short; the older ones are out of reach for now.
+                if (record.remaining() < RECORD_BYTES || record.getLong(0) == 0) {
+                    break;
+                }
+                long eventId = record.getLong();
+                long timestamp = record.getLong();
+                long entityId = record.getLong();
+                offset = record.getLong();
+                oldestRead = Math.min(oldestRead, eventId);
+                if (eventId < beforeEventId) {
+                    page.add(toEvent(eventId, timestamp, userId, record.getInt(), entityId));
+                    found++;
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (oldestRead != Long.MAX_VALUE) {
+            ring.spillCursor = new SpillCursor(oldestRead, offset);
+        }
+    }
+
+    private static Event toEvent(long eventId, long timestamp, long userId, int kind, long entityId) {
+        return new Event(eventId, timestamp, userId, EVENT_TYPES[kind / OPERATIONS.length],
+                OPERATIONS[kind % OPERATIONS.length], entityId);
+    }
+
+    private static FileChannel openSpill(Path file) {
+        try {
+            return FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * A position in a user's chain of spilled records: every record before {@code offset} has an id of at least
+     * {@code oldestRead}.
+     */
+    private record SpillCursor(long oldestRead, long offset) {
+    }
+
+    /**
+     * Slot {@code s % size} holds the event of sequence {@code s} when its stamp is {@code s + 1}. The fields of a
+     * slot lie next to each other, so an append touches one cache line of the ring.
+     * <p>
+     * A ring below its capacity has never wrapped, so growing it copies every slot to the same index of a twice
+     * larger array. The writer that claims the first sequence past the array grows it, once every earlier
+     * sequence is published; a writer always writes to the first array it reads that holds its sequence.
+     */
+    private static final class Ring {
+
+        /**
+         * Stamp, event id, timestamp with the kind of the event in the top byte, entity id.
+         */
+        private static final int SLOT_LONGS = 4;
+        private static final int KIND_SHIFT = 56;
+        private static final long TIMESTAMP_MASK = (1L << KIND_SHIFT) - 1;
+
+        private static final VarHandle SLOTS = MethodHandles.arrayElementVarHandle(long[].class);
+        private static final VarHandle TAIL;
+        private static final VarHandle LAST_SPILLED;
+
+        static {
+            try {
+                MethodHandles.Lookup lookup = MethodHandles.lookup();
+                TAIL = lookup.findVarHandle(Ring.class, "tail", long.class);
+                LAST_SPILLED = lookup.findVarHandle(Ring.class, "lastSpilled", long.class);
+            } catch (ReflectiveOperationException e) {
+                throw new ExceptionInInitializerError(e);
+            }
+        }
+
+        private final int capacity;
+        private volatile long[] slots;
+        private volatile long tail;
+        /**
+         * Offset of the user's newest spilled record, -1 before the first.
+         */
+        private volatile long lastSpilled = -1;
+        private volatile SpillCursor spillCursor;
+
+        private Ring(int capacity) {
+            this.capacity = capacity;
+            slots = new long[Math.min(capacity, INITIAL_RING_SIZE) * SLOT_LONGS];
+        }
+
+        private long claim() {
+            return (long) TAIL.getAndAdd(this, 1L);
+        }
+
+        /**
+         * @return the array holding the slot of the sequence, grown to it if needed
+         */
+        private long[] slotsFor(long sequence) {
+            long[] current = slots;
+            while (sequence >= size(current) && size(current) < capacity) {
+                current = grow(current, sequence);
+            }
+            return current;
+        }
+
+        private synchronized long[] grow(long[] current, long sequence) {
+            if (slots != current) {
+                return slots;
+            }
+            int size = size(current);
+            for (long published = 0; published < size; published++) {
+                awaitPublished(current, published);
+            }
+            int grownSize = size * 2;
+            while (grownSize <= sequence && grownSize < capacity) {
+                grownSize *= 2;
+            }
+            slots = Arrays.copyOf(current, grownSize * SLOT_LONGS);
+            return slots;
+        }
+
+        /**
+         * @return the offset of the previous newest spilled record
+         */
+        private long linkSpilled(long offset) {
+            return (long) LAST_SPILLED.getAndSet(this, offset);
+        }
+
+        private static int size(long[] slots) {
+            return slots.length / SLOT_LONGS;
+        }
+
+        private static int slot(long[] slots, long sequence) {
+            return ((int) sequence & (size(slots) - 1)) * SLOT_LONGS;
+        }
+
+        /**
+         * Waits for the writer of the sequence, which is only behind if it is a whole ring late.
+         */
+        private static void awaitPublished(long[] slots, long sequence) {
+            int slot = slot(slots, sequence);
+            while ((long) SLOTS.getAcquire(slots, slot) != sequence + 1) {
+                Thread.onSpinWait();
+            }
+        }
+
+        private static void write(long[] slots, long sequence, long eventId, long timestamp, int kind,
+                                  long entityId) {
+            int slot = slot(slots, sequence);
+            // A negative stamp marks the slot as being written, so readers drop what they read from it.
+            SLOTS.setVolatile(slots, slot, -(sequence + 1));
+            VarHandle.storeStoreFence();
+            slots[slot + 1] = eventId;
+            slots[slot + 2] = timestamp | (long) kind << KIND_SHIFT;
+            slots[slot + 3] = entityId;
+            SLOTS.setRelease(slots, slot, sequence + 1);
+        }
+
+        /**
+         * @return the id of the event, or 0 if it is not published yet or was overwritten
+         */
+        private static long eventId(long[] slots, long sequence) {
+            int slot = slot(slots, sequence);
+            long stamp = (long) SLOTS.getAcquire(slots, slot);
+            if (stamp != sequence + 1) {
+                return 0;
+            }
+            long eventId = slots[slot + 1];
+            VarHandle.acquireFence();
+            return (long) SLOTS.getVolatile(slots, slot) == stamp ? eventId : 0;
+        }
+
+        /**
+         * Reads the slot optimistically and checks that no writer touched it meanwhile.
+         *
+         * @return the event, or {@code null} if it is not published yet or was overwritten
+         */
+        private static Event read(long[] slots, long userId, long sequence) {
+            int slot = slot(slots, sequence);
+            long stamp = (long) SLOTS.getAcquire(slots, slot);
+            if (stamp != sequence + 1) {
+                return null;
+            }
+            long eventId = slots[slot + 1];
+            long stampedTime = slots[slot + 2];
+            long entityId = slots[slot + 3];
+            VarHandle.acquireFence();
+            if ((long) SLOTS.getVolatile(slots, slot) != stamp) {
+                return null;
+            }
+            return toEvent(eventId, stampedTime & TIMESTAMP_MASK, userId, (int) (stampedTime >>> KIND_SHIFT),
+                    entityId);
+        }
+    }
+}
@@ -1,36 +1,141 @@
 package ru.yandex.practicum.filmorate.storage.user;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
 import ru.yandex.practicum.filmorate.exceptions.ValidationException;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+import ru.yandex.practicum.filmorate.model.Event;
+import ru.yandex.practicum.filmorate.model.Event.EventType;
+import ru.yandex.practicum.filmorate.model.Event.Operation;
+import ru.yandex.practicum.filmorate.model.FriendOperation;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.BulkImport;
+import ru.yandex.practicum.filmorate.storage.persistence.Mutation;
+import ru.yandex.practicum.filmorate.storage.persistence.Mutation.FriendAdded;
+import ru.yandex.practicum.filmorate.storage.persistence.Mutation.FriendRemoved;
+import ru.yandex.practicum.filmorate.storage.persistence.Mutation.UserCreated;
+import ru.yandex.practicum.filmorate.storage.persistence.Mutation.UserUpdated;
+import ru.yandex.practicum.filmorate.storage.persistence.MutationJournal;
+import ru.yandex.practicum.filmorate.storage.persistence.UserTable;
+import ru.yandex.practicum.filmorate.storage.util.IdIndex;
+import ru.yandex.practicum.filmorate.storage.util.IdSequence;
+import ru.yandex.practicum.filmorate.storage.util.LongHashSet;
+import ru.yandex.practicum.filmorate.storage.util.LongArraySet;
+import ru.yandex.practicum.filmorate.storage.util.LongCounter;
+import ru.yandex.practicum.filmorate.storage.util.SortedLongs;
+import ru.yandex.practicum.filmorate.storage.util.StripedLock;
 
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
 
 @Component
+@ConditionalOnProperty(name = "filmorate.storage", havingValue = "memory", matchIfMissing = true)
 @Slf4j
 public class InMemoryUserStorage implements UserStorage {
 
-    private final Map<Long, User> users = new HashMap<>();
+    /**
+     * Imported ids may not run further than this ahead of the record count, so a stray id cannot push the id
+     * sequence, which created users continue, towards its end.
+     */
+    private static final long MAX_IMPORTED_ID_GAP = 1_000_000;
+
+    /**
+     * Friend links a suggestion walk reads at most. Friends whose lists do not fit are skipped, so the
+     * suggestions of a user with a huge network are counted over part of it instead of stalling the request.
+     */
+    static final int MAX_SUGGESTION_SCAN = 1_000_000;
+
+    /**
+     * A snapshot reads the id index this many ids at a time.
+     */
+    private static final int SNAPSHOT_PAGE = 4096;
+
+    /**
+     * Users created or changed since the snapshot was loaded; they shadow the rows of {@link #base}. A stored user
+     * is never changed: a change stores a new object under the user's stripe lock, so readers need no lock. Their
+     * {@code friends} stay unset: friends live in {@link #friendIds}, and callers get copies of the users with
+     * their friends (see {@link #export}).
+     */
+    private final Map<Long, User> users = new ConcurrentHashMap<>();
+    private final Map<Long, long[]> friendIds = new ConcurrentHashMap<>();
+    private volatile UserTable base = UserTable.EMPTY;
+    /**
+     * Ids of the users stored since the snapshot was loaded, added under the user's stripe lock before the user
+     * is logged; with the ids of {@link #base} they are the id-ordered index lists are read from.
+     */
+    private final IdIndex storedIds = new IdIndex();
+    private final StripedLock locks = StripedLock.forAvailableProcessors();
+    private final IdSequence ids = new IdSequence();
+    private final LongAdder userCount = new LongAdder();
+    private final LongAdder friendLinkCount = new LongAdder();
+    private final MutationJournal journal;
+    private final EventLog feed;
+
+    public InMemoryUserStorage() {
+        this(MutationJournal.DISABLED);
+    }
+
+    public InMemoryUserStorage(MutationJournal journal) {
+        this(journal, new EventLog());
+    }
+
+    @Autowired
+    public InMemoryUserStorage(MutationJournal journal, EventLog feed) {
+        this.journal = journal;
+        this.feed = feed;
+    }
 
     public Collection<User> findAll() {
-        return new ArrayList<>(users.values());
+        return findIndexed(idsAfter(0, Integer.MAX_VALUE));
+    }
+
+    @Override
+    public List<User> findPage(long afterId, int limit) {
+        return findIndexed(idsAfter(afterId, limit));
+    }
+
+    @Override
+    public long[] findIds(long afterId, int limit) {
+        return idsAfter(afterId, limit);
+    }
+
+    @Override
+    public List<User> findByIds(long[] ids) {
+        List<User> result = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            User user = peek(id);
+            if (user != null) {
+                result.add(user);
+            }
+        }
+        return result;
     }
 
     @Override
     public User create(User user) {
         validateNameAndSetLoginAsName(user);
-        user.setId(getNextId());
+        user.setId(ids.next());
 
-        if (user.getFriends() == null) {
-            user.setFriends(new HashSet<>());
+        long[] friends = SortedLongs.of(user.getFriends());
+        long position;
+        locks.lock(user.getId());
+        try {
+            storedIds.add(user.getId());
+            position = journal.append(new UserCreated(user.getId(), user.getEmail(), user.getLogin(),
+                    user.getName(), user.getBirthday(), friends));
+            putUser(user, friends);
+        } finally {
+            locks.unlock(user.getId());
         }
+        journal.awaitDurable(position);
 
-        users.put(user.getId(), user);
-
-        log.info("Completed a new user create with the necessary parameters!");
+        log.debug("Created user {}", user.getId());
         return user;
     }
 
@@ -39,51 +144,66 @@ public class InMemoryUserStorage implements UserStorage {
 
         validateNotFound(newUser.getId());
 
-        if (!users.containsKey(newUser.getId())) {
+        if (!exists(newUser.getId())) {
             throw new ValidationException("Пользователь с id = " + newUser.getId() + " не найден");
         }
 
-        User oldUser = users.get(newUser.getId());
-        oldUser.setEmail(newUser.getEmail());
-        oldUser.setLogin(newUser.getLogin());
-        oldUser.setName(newUser.getName());
-        oldUser.setBirthday(newUser.getBirthday());
+        validateNameAndSetLoginAsName(newUser);
 
-        validateNameAndSetLoginAsName(oldUser);
+        long id = user(newUser.getId()).getId();
+        User updatedUser;
+        long position;
+        locks.lock(id);
+        try {
+            UserUpdated updated = new UserUpdated(id, newUser.getEmail(), newUser.getLogin(), newUser.getName(),
+                    newUser.getBirthday());
+            position = journal.append(updated);
+            applyUpdate(updated);
+            updatedUser = export(users.get(id));
+        } finally {
+            locks.unlock(id);
+        }
+        journal.awaitDurable(position);
 
-        log.info("Completed user update with the necessary parameters!");
-        return oldUser;
+        log.debug("Updated user {}", newUser.getId());
+        return updatedUser;
     }
 
     @Override
-    public Collection<User> addFriend(Long id, Long friendId) throws NotFoundException {
+    public List<User> addFriend(Long id, Long friendId) throws NotFoundException {
         validateNotFound(id);
         validateNotFound(friendId);
 
-        users.get(id).getFriends().add(friendId);
-        users.get(friendId).getFriends().add(id);
+        journal.awaitDurable(befriend(id, friendId));
 
-        return new ArrayList<>(users.values());
+        return findByIds(new long[]{id, friendId});
     }
 
     @Override
-    public Collection<User> removeFriend(Long id, Long friendId) throws NotFoundException {
+    public List<User> removeFriend(Long id, Long friendId) throws NotFoundException {
         validateNotFound(id);
         validateNotFound(friendId);
 
-        users.get(id).getFriends().remove(friendId);
-        users.get(friendId).getFriends().remove(id);
+        journal.awaitDurable(unfriend(id, friendId));
+
+        return findByIds(new long[]{id, friendId});
+    }
 
-        return new ArrayList<>(users.values());
+    @Override
+    public List<BatchItemResult> addFriends(List<FriendOperation> operations) {
+        return applyFriends(operations, true);
+    }
+
+    @Override
+    public List<BatchItemResult> removeFriends(List<FriendOperation> operations) {
+        return applyFriends(operations, false);
     }
 
     @Override
     public Collection<User> findUserFriends(long userId) throws NotFoundException {
         validateNotFound(userId);
 
-        return users.get(userId).getFriends().stream()
-                .map(users::get)
-                .collect(Collectors.toList());
+        return findByIds(friendsOf(userId));
     }
 
     @Override
@@ -91,27 +211,446 @@ public class InMemoryUserStorage implements UserStorage {
         validateNotFound(id);
         validateNotFound(otherId);
 
-        Set<Long> userFriendIds = users.get(id).getFriends();
-        Set<Long> otherUserFriendIds = users.get(otherId).getFriends();
+        return findByIds(SortedLongs.intersect(friendsOf(id), friendsOf(otherId)));
+    }
 
-        List<User> commonFriends = new ArrayList<>();
-        for (Long userFriendId : userFriendIds) {
-            for (Long otherUserFriendId : otherUserFriendIds) {
-                if (userFriendId.equals(otherUserFriendId)) {
-                    commonFriends.add(users.get(userFriendId));
+    /**
+     * Walks two hops from the user, counting every friend of a friend in a primitive map, then picks the top
+     * with a bounded heap. Friend lists are immutable sorted arrays, so the walk needs no locks.
+     */
+    @Override
+    public long[] findFriendSuggestions(long id, int limit) throws NotFoundException {
+        validateNotFound(id);
+
+        long[] friends = friendsOf(id);
+        LongCounter mutualFriends = new LongCounter(Math.min(friends.length * 16, 1 << 16));
+        long scanned = 0;
+        for (long friendId : friends) {
+            long[] friendsOfFriend = friendsOf(friendId);
+            if (scanned + friendsOfFriend.length > MAX_SUGGESTION_SCAN) {
+                continue;
+            }
+            scanned += friendsOfFriend.length;
+            for (long candidate : friendsOfFriend) {
+                if (candidate != id && !SortedLongs.contains(friends, candidate)) {
+                    mutualFriends.increment(candidate);
                 }
             }
         }
-        return commonFriends;
+        return mutualFriends.top(limit);
     }
 
-    private long getNextId() {
-        long currentMaxId = users.keySet()
-                .stream()
-                .mapToLong(id -> id)
-                .max()
-                .orElse(0);
-        return ++currentMaxId;
+    @Override
+    public void addEvent(long userId, EventType eventType, Operation operation, long entityId) {
+        feed.append(userId, eventType, operation, entityId);
+    }
+
+    @Override
+    public List<Event> findFeed(long userId, long beforeEventId, int limit) throws NotFoundException {
+        validateNotFound(userId);
+
+        return feed.findPage(userId, beforeEventId, limit);
+    }
+
+    @Override
+    public BulkImport<User> importUsers() {
+        return new UserImport();
+    }
+
+    /**
+     * Makes the users of a mapped snapshot the base of this storage. Must be called before any other write,
+     * on an empty storage; users are read from the table when requested and copied to the heap when first
+     * changed.
+     */
+    public void load(UserTable table) {
+        base = table;
+        ids.advanceTo(table.maxId());
+        userCount.add(table.size());
+        friendLinkCount.add(table.totalFriendLinks());
+    }
+
+    /**
+     * Re-applies a logged mutation during recovery, without validation and without logging it again.
+     * Mutations of films are ignored.
+     */
+    public void apply(Mutation mutation) {
+        switch (mutation) {
+            case UserCreated created -> {
+                storedIds.add(created.id());
+                putUser(toUser(created), created.friends());
+                ids.advanceTo(created.id());
+            }
+            case UserUpdated updated -> {
+                if (user(updated.id()) != null) {
+                    applyUpdate(updated);
+                }
+            }
+            case FriendAdded added -> {
+                if (user(added.userId()) != null && user(added.friendId()) != null) {
+                    linkFriends(added.userId(), added.friendId());
+                }
+            }
+            case FriendRemoved removed -> {
+                if (user(removed.userId()) != null && user(removed.friendId()) != null) {
+                    unlinkFriends(removed.userId(), removed.friendId());
+                }
+            }
+            default -> {
+            }
+        }
+    }
+
+    /**
+     * Describes every user, friends included, as a {@link UserCreated} mutation for a snapshot.
+     * Each id is read under its stripe lock, which {@link #create} holds from indexing the user to storing it: a
+     * user logged in the segment before the snapshot is indexed before the snapshot starts and stored by the time
+     * the snapshot reads its id.
+     */
+    public void snapshot(Consumer<Mutation> sink) {
+        long[] page = idsAfter(0, SNAPSHOT_PAGE);
+        while (page.length > 0) {
+            for (long id : page) {
+                snapshot(id, sink);
+            }
+            page = idsAfter(page[page.length - 1], SNAPSHOT_PAGE);
+        }
+    }
+
+    private void snapshot(long id, Consumer<Mutation> sink) {
+        UserCreated created = null;
+        locks.lock(id);
+        try {
+            User user = users.get(id);
+            if (user != null) {
+                created = new UserCreated(id, user.getEmail(), user.getLogin(), user.getName(),
+                        user.getBirthday(), friendIds.get(id));
+            } else {
+                int row = base.indexOf(id);
+                if (row >= 0) {
+                    created = base.row(row);
+                }
+            }
+        } finally {
+            locks.unlock(id);
+        }
+        if (created != null) {
+            sink.accept(created);
+        }
+    }
+
+    /**
+     * Applies the operations whose users both exist, waiting for the journal once, for the last record.
+     */
+    private List<BatchItemResult> applyFriends(List<FriendOperation> operations, boolean add) {
+        List<BatchItemResult> results = new ArrayList<>(operations.size());
+        long position = 0;
+        int applied = 0;
+        for (FriendOperation operation : operations) {
+            long id = operation.getUserId();
+            long friendId = operation.getFriendId();
+            if (!exists(id) || !exists(friendId)) {
+                results.add(BatchItemResult.notFound("Пользователь с id = " + (exists(id) ? friendId : id)
+                        + " не найден"));
+                continue;
+            }
+            position = Math.max(position, add ? befriend(id, friendId) : unfriend(id, friendId));
+            results.add(BatchItemResult.applied());
+            applied++;
+        }
+        journal.awaitDurable(position);
+
+        log.debug("Applied {} of {} friend operations", applied, operations.size());
+        return results;
+    }
+
+    /**
+     * Links the users unless they are friends already.
+     *
+     * @return the journal position to wait for, or 0 if nothing changed
+     */
+    private long befriend(long id, long friendId) {
+        locks.lockPair(id, friendId);
+        try {
+            user(id);
+            user(friendId);
+            if (SortedLongs.contains(friendIds.get(id), friendId)
+                    && SortedLongs.contains(friendIds.get(friendId), id)) {
+                return 0;
+            }
+            long position = journal.append(new FriendAdded(id, friendId));
+            linkFriends(id, friendId);
+            feed.append(id, EventType.FRIEND, Operation.ADD, friendId);
+            return position;
+        } finally {
+            locks.unlockPair(id, friendId);
+        }
+    }
+
+    /**
+     * Unlinks the users if either one lists the other.
+     *
+     * @return the journal position to wait for, or 0 if nothing changed
+     */
+    private long unfriend(long id, long friendId) {
+        locks.lockPair(id, friendId);
+        try {
+            user(id);
+            user(friendId);
+            if (!SortedLongs.contains(friendIds.get(id), friendId)
+                    && !SortedLongs.contains(friendIds.get(friendId), id)) {
+                return 0;
+            }
+            long position = journal.append(new FriendRemoved(id, friendId));
+            unlinkFriends(id, friendId);
+            feed.append(id, EventType.FRIEND, Operation.REMOVE, friendId);
+            return position;
+        } finally {
+            locks.unlockPair(id, friendId);
+        }
+    }
+
+    /**
+     * Stores users with their friend lists as given, without logging each one; {@link #finish()} then adds
+     * the missing reverse links and drops missing friends, rewriting each affected user once.
+     */
+    private class UserImport implements BulkImport<User> {
+
+        private final Queue<long[]> importedIds = new ConcurrentLinkedQueue<>();
+
+        @Override
+        public void add(List<User> chunk) {
+            long[] chunkIds = new long[chunk.size()];
+            long maxId = count() + MAX_IMPORTED_ID_GAP;
+            for (int i = 0; i < chunkIds.length; i++) {
+                Long id = chunk.get(i).getId();
+                if (id != null && (id < 1 || id > maxId)) {
+                    throw new ValidationException("Id импортируемого пользователя должен быть от 1 до " + maxId
+                            + ", а у пользователя id = " + id);
+                }
+            }
+
+            long position = 0;
+            for (int i = 0; i < chunkIds.length; i++) {
+                User user = chunk.get(i);
+                validateNameAndSetLoginAsName(user);
+                if (user.getId() == null) {
+                    user.setId(ids.next());
+                } else {
+                    ids.advanceTo(user.getId());
+                }
+                long id = user.getId();
+                long[] friends = SortedLongs.of(user.getFriends());
+                locks.lock(id);
+                try {
+                    storedIds.add(id);
+                    position = journal.append(new UserCreated(id, user.getEmail(), user.getLogin(),
+                            user.getName(), user.getBirthday(), friends));
+                    putUser(user, friends);
+                } finally {
+                    locks.unlock(id);
+                }
+                chunkIds[i] = id;
+            }
+            journal.awaitDurable(position);
+            importedIds.add(chunkIds);
+        }
+
+        @Override
+        public void finish() {
+            Map<Long, LongHashSet> reverseLinks = new HashMap<>();
+            int imported = 0;
+            for (long[] chunkIds : importedIds) {
+                imported += chunkIds.length;
+                for (long id : chunkIds) {
+                    for (long friendId : friendsOf(id)) {
+                        if (!exists(friendId)) {
+                            reverseLinks.computeIfAbsent(id, key -> new LongHashSet());
+                        } else if (!SortedLongs.contains(friendsOf(friendId), id)) {
+                            reverseLinks.computeIfAbsent(friendId, key -> new LongHashSet()).add(id);
+                        }
+                    }
+                }
+            }
+
+            long position = 0;
+            for (Map.Entry<Long, LongHashSet> links : reverseLinks.entrySet()) {
+                long id = links.getKey();
+                locks.lock(id);
+                try {
+                    User user = user(id);
+                    long[] friends = existingUsers(SortedLongs.union(friendIds.get(id),
+                            links.getValue().toSortedArray()));
+                    position = journal.append(new UserCreated(id, user.getEmail(), user.getLogin(),
+                            user.getName(), user.getBirthday(), friends));
+                    setFriendIds(id, friends);
+                } finally {
+                    locks.unlock(id);
+                }
+            }
+            journal.awaitDurable(position);
+            log.info("Imported {} users, updated friends of {}", imported, reverseLinks.size());
+        }
+
+        private long[] existingUsers(long[] userIds) {
+            long[] existing = new long[userIds.length];
+            int count = 0;
+            for (long userId : userIds) {
+                if (exists(userId)) {
+                    existing[count++] = userId;
+                }
+            }
+            return count == existing.length ? userIds : Arrays.copyOf(existing, count);
+        }
+    }
+
+    private long[] idsAfter(long afterId, int limit) {
+        UserTable table = base;
+        return storedIds.after(afterId, limit, table.rowAfter(afterId), table.size(), table::id);
+    }
+
+    /**
+     * Reads the users of ids taken from the index. A user that is indexed but not stored yet is being created
+     * under its stripe lock, so the read waits for the lock instead of skipping the user.
+     */
+    private List<User> findIndexed(long[] ids) {
+        List<User> result = new ArrayList<>(ids.length);
+        for (long id : ids) {
+            User user = peek(id);
+            if (user == null) {
+                locks.lock(id);
+                locks.unlock(id);
+                user = peek(id);
+            }
+            if (user != null) {
+                result.add(user);
+            }
+        }
+        return result;
+    }
+
+    private boolean exists(long id) {
+        return users.containsKey(id) || base.indexOf(id) >= 0;
+    }
+
+    /**
+     * Returns a copy of the user for reading. A user that only exists in the snapshot is decoded into a fresh
+     * object that is not kept, so reads do not grow the heap.
+     */
+    private User peek(long id) {
+        User user = users.get(id);
+        if (user != null) {
+            return export(user);
+        }
+        int row = base.indexOf(id);
+        if (row < 0) {
+            return null;
+        }
+        UserCreated created = base.row(row);
+        user = toUser(created);
+        user.setFriends(new LongArraySet(created.friends()));
+        return user;
+    }
+
+    /**
+     * Returns the stored user, copying it and its friend ids from the snapshot to the heap on first use. The
+     * object must not be changed; see {@link #users}.
+     */
+    private User user(long id) {
+        User user = users.get(id);
+        if (user != null) {
+            return user;
+        }
+        int row = base.indexOf(id);
+        if (row < 0) {
+            return null;
+        }
+        return users.computeIfAbsent(id, key -> {
+            UserCreated created = base.row(row);
+            friendIds.put(id, created.friends());
+            return toUser(created);
+        });
+    }
+
+    private long[] friendsOf(long id) {
+        long[] friends = friendIds.get(id);
+        if (friends != null) {
+            return friends;
+        }
+        int row = base.indexOf(id);
+        return row < 0 ? SortedLongs.EMPTY : base.friends(row);
+    }
+
+    /**
+     * Copy of a stored user for callers, with its current friends. The stored user and the friend array are
+     * never changed in place, so no lock is needed; a friend change racing with the read shows up or not as a
+     * whole.
+     */
+    private User export(User user) {
+        User copy = copyOf(user);
+        copy.setFriends(new LongArraySet(friendIds.get(user.getId())));
+        return copy;
+    }
+
+    /**
+     * Must be called under the user's stripe lock.
+     */
+    private void applyUpdate(UserUpdated updated) {
+        User user = copyOf(users.get(updated.id()));
+        user.setEmail(updated.email());
+        user.setLogin(updated.login());
+        user.setName(updated.name());
+        user.setBirthday(updated.birthday());
+        users.put(updated.id(), user);
+    }
+
+    private static User copyOf(User user) {
+        User copy = new User();
+        copy.setId(user.getId());
+        copy.setEmail(user.getEmail());
+        copy.setLogin(user.getLogin());
+        copy.setName(user.getName());
+        copy.setBirthday(user.getBirthday());
+        return copy;
+    }
+
+    private static User toUser(UserCreated created) {
+        User user = new User();
+        user.setId(created.id());
+        user.setEmail(created.email());
+        user.setLogin(created.login());
+        user.setName(created.name());
+        user.setBirthday(created.birthday());
+        return user;
+    }
+
+    private void putUser(User user, long[] friends) {
+        if (exists(user.getId())) {
+            friendLinkCount.add(-friendsOf(user.getId()).length);
+        } else {
+            userCount.increment();
+        }
+        friendLinkCount.add(friends.length);
+        friendIds.put(user.getId(), friends);
+        users.put(user.getId(), copyOf(user));
+        user.setFriends(new LongArraySet(friends));
+    }
+
+    private void linkFriends(long id, long friendId) {
+        setFriendIds(id, SortedLongs.insert(friendIds.get(id), friendId));
+        setFriendIds(friendId, SortedLongs.insert(friendIds.get(friendId), id));
+    }
+
+    private void unlinkFriends(long id, long friendId) {
+        setFriendIds(id, SortedLongs.remove(friendIds.get(id), friendId));
+        setFriendIds(friendId, SortedLongs.remove(friendIds.get(friendId), id));
+    }
+
+    /**
+     * Must be called under the user's stripe lock, so the count follows the array.
+     */
+    private void setFriendIds(long userId, long[] friends) {
+        friendLinkCount.add(friends.length - friendIds.get(userId).length);
+        friendIds.put(userId, friends);
     }
 
     private static void validateNameAndSetLoginAsName(User user) {
@@ -123,8 +662,18 @@ public class InMemoryUserStorage implements UserStorage {
         }
     }
 
+    @Override
+    public long count() {
+        return userCount.sum();
+    }
+
+    @Override
+    public long countFriendLinks() {
+        return friendLinkCount.sum();
+    }
+
     public void validateNotFound(Long id) {
-        if (!users.containsKey(id)) {
+        if (!exists(id)) {
             throw new NotFoundException("Пользователь с id = " + id + " не найден");
         }
     }
@@ -0,0 +1,408 @@
+package ru.yandex.practicum.filmorate.storage.user;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+import ru.yandex.practicum.filmorate.model.Event;
+import ru.yandex.practicum.filmorate.model.Event.EventType;
+import ru.yandex.practicum.filmorate.model.Event.Operation;
+import ru.yandex.practicum.filmorate.model.FriendOperation;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.BulkImport;
+import ru.yandex.practicum.filmorate.storage.util.LongArraySet;
+import ru.yandex.practicum.filmorate.storage.util.SortedLongs;
+import ru.yandex.practicum.filmorate.storage.util.SqlArrays;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+@Component
+@ConditionalOnProperty(name = "filmorate.storage", havingValue = "db")
+@Slf4j
+public class UserDbStorage implements UserStorage {
+
+    private static final String USER_COLUMNS = "u.user_id, u.email, u.login, u.name, u.birthday, "
+            + "(SELECT ARRAY_AGG(fr.friend2_id ORDER BY fr.friend2_id) FROM friends AS fr "
+            + "WHERE fr.friend1_id = u.user_id) AS friends";
+    private static final int ACCEPTED_STATUS_ID = 2;
+    /**
+     * Links one direction of a friendship; the update count is 0 if the link was there already.
+     */
+    private static final String ADD_FRIEND_LINK = "MERGE INTO friends AS f "
+            + "USING (VALUES (CAST(? AS BIGINT), CAST(? AS BIGINT))) AS v (friend1_id, friend2_id) "
+            + "ON f.friend1_id = v.friend1_id AND f.friend2_id = v.friend2_id "
+            + "WHEN MATCHED AND f.status_id <> " + ACCEPTED_STATUS_ID + " THEN UPDATE SET status_id = "
+            + ACCEPTED_STATUS_ID + " "
+            + "WHEN NOT MATCHED THEN INSERT (friend1_id, friend2_id, status_id) "
+            + "VALUES (v.friend1_id, v.friend2_id, " + ACCEPTED_STATUS_ID + ")";
+    private static final String REMOVE_FRIEND_LINK = "DELETE FROM friends WHERE friend1_id = ? AND friend2_id = ?";
+    private static final String INSERT_EVENT = "INSERT INTO feed (user_id, event_type, operation, entity_id, "
+            + "event_time) VALUES (?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final SimpleJdbcInsert userInsert;
+
+    public UserDbStorage(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.userInsert = new SimpleJdbcInsert(jdbcTemplate)
+                .withTableName("users")
+                .usingColumns("email", "login", "name", "birthday")
+                .usingGeneratedKeyColumns("user_id");
+    }
+
+    @Override
+    public Collection<User> findAll() {
+        return jdbcTemplate.query("SELECT " + USER_COLUMNS + " FROM users AS u ORDER BY u.user_id",
+                UserDbStorage::mapUser);
+    }
+
+    @Override
+    public List<User> findPage(long afterId, int limit) {
+        return jdbcTemplate.query("SELECT " + USER_COLUMNS + " FROM users AS u "
+                        + "WHERE u.user_id > ? ORDER BY u.user_id LIMIT ?",
+                UserDbStorage::mapUser, afterId, limit);
+    }
+
+    @Override
+    public long[] findIds(long afterId, int limit) {
+        return jdbcTemplate.queryForList("SELECT user_id FROM users WHERE user_id > ? ORDER BY user_id LIMIT ?",
+                Long.class, afterId, limit).stream().mapToLong(Long::longValue).toArray();
+    }
+
+    @Override
+    public List<User> findByIds(long[] ids) {
+        if (ids.length == 0) {
+            return List.of();
+        }
+
+        Map<Long, User> usersById = new HashMap<>();
+        jdbcTemplate.query("SELECT " + USER_COLUMNS + " FROM users AS u WHERE u.user_id = ANY (?)",
+                rs -> {
+                    User user = mapUser(rs, 0);
+                    usersById.put(user.getId(), user);
+                },
+                (Object) SqlArrays.toBoxedArray(ids));
+
+        List<User> result = new ArrayList<>(usersById.size());
+        for (long id : ids) {
+            User user = usersById.get(id);
+            if (user != null) {
+                result.add(user);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    @Transactional
+    public User create(User user) {
+        validateNameAndSetLoginAsName(user);
+
+        Map<String, Object> row = new HashMap<>();
+        row.put("email", user.getEmail());
+        row.put("login", user.getLogin());
+        row.put("name", user.getName());
+        row.put("birthday", user.getBirthday());
+
+        long userId = userInsert.executeAndReturnKey(row).longValue();
+
+        long[] friends = SortedLongs.of(user.getFriends());
+        if (friends.length > 0) {
+            List<Object[]> batchArgs = new ArrayList<>(friends.length);
+            for (long friendId : friends) {
+                batchArgs.add(new Object[]{userId, friendId, ACCEPTED_STATUS_ID});
+            }
+            jdbcTemplate.batchUpdate("INSERT INTO friends (friend1_id, friend2_id, status_id) VALUES (?, ?, ?)",
+                    batchArgs);
+        }
+
+        user.setId(userId);
+        user.setFriends(new LongArraySet(friends));
+
+        log.debug("Created user {}", user.getId());
+        return user;
+    }
+
+    @Override
+    public User update(User newUser) throws NotFoundException {
+        validateNameAndSetLoginAsName(newUser);
+
+        int updated = jdbcTemplate.update(
+                "UPDATE users SET email = ?, login = ?, name = ?, birthday = ? WHERE user_id = ?",
+                newUser.getEmail(), newUser.getLogin(), newUser.getName(), newUser.getBirthday(), newUser.getId());
+        if (updated == 0) {
+            throw new NotFoundException("Пользователь с id = " + newUser.getId() + " не найден");
+        }
+
+        log.debug("Updated user {}", newUser.getId());
+        return findById(newUser.getId());
+    }
+
+    @Override
+    @Transactional
+    public List<User> addFriend(Long id, Long friendId) throws NotFoundException {
+        validateNotFound(id);
+        validateNotFound(friendId);
+
+        int[] updated = jdbcTemplate.batchUpdate(ADD_FRIEND_LINK,
+                List.of(new Object[]{id, friendId}, new Object[]{friendId, id}));
+        if (updated[0] != 0 || updated[1] != 0) {
+            addEvent(id, EventType.FRIEND, Operation.ADD, friendId);
+        }
+
+        return findByIds(new long[]{id, friendId});
+    }
+
+    @Override
+    @Transactional
+    public List<User> removeFriend(Long id, Long friendId) throws NotFoundException {
+        validateNotFound(id);
+        validateNotFound(friendId);
+
+        int[] updated = jdbcTemplate.batchUpdate(REMOVE_FRIEND_LINK,
+                List.of(new Object[]{id, friendId}, new Object[]{friendId, id}));
+        if (updated[0] != 0 || updated[1] != 0) {
+            addEvent(id, EventType.FRIEND, Operation.REMOVE, friendId);
+        }
+
+        return findByIds(new long[]{id, friendId});
+    }
+
+    @Override
+    @Transactional
+    public List<BatchItemResult> addFriends(List<FriendOperation> operations) {
+        return applyFriends(operations, ADD_FRIEND_LINK, Operation.ADD);
+    }
+
+    @Override
+    @Transactional
+    public List<BatchItemResult> removeFriends(List<FriendOperation> operations) {
+        return applyFriends(operations, REMOVE_FRIEND_LINK, Operation.REMOVE);
+    }
+
+    @Override
+    public Collection<User> findUserFriends(long userId) throws NotFoundException {
+        validateNotFound(userId);
+
+        return jdbcTemplate.query("SELECT " + USER_COLUMNS + " FROM friends AS f "
+                        + "JOIN users AS u ON u.user_id = f.friend2_id "
+                        + "WHERE f.friend1_id = ? "
+                        + "ORDER BY u.user_id",
+                UserDbStorage::mapUser, userId);
+    }
+
+    @Override
+    public Collection<User> findCommonFriends(long id, long otherId) throws NotFoundException {
+        validateNotFound(id);
+        validateNotFound(otherId);
+
+        return jdbcTemplate.query("SELECT " + USER_COLUMNS + " FROM friends AS f "
+                        + "JOIN friends AS o ON o.friend2_id = f.friend2_id AND o.friend1_id = ? "
+                        + "JOIN users AS u ON u.user_id = f.friend2_id "
+                        + "WHERE f.friend1_id = ? "
+                        + "ORDER BY u.user_id",
+                UserDbStorage::mapUser, otherId, id);
+    }
+
+    @Override
+    public long[] findFriendSuggestions(long id, int limit) throws NotFoundException {
+        validateNotFound(id);
+
+        return jdbcTemplate.queryForList("SELECT ff.friend2_id FROM friends AS f "
+                        + "JOIN friends AS ff ON ff.friend1_id = f.friend2_id "
+                        + "WHERE f.friend1_id = ? AND ff.friend2_id <> f.friend1_id "
+                        + "AND NOT EXISTS (SELECT 1 FROM friends AS d WHERE d.friend1_id = f.friend1_id "
+                        + "AND d.friend2_id = ff.friend2_id) "
+                        + "GROUP BY ff.friend2_id "
+                        + "ORDER BY COUNT(*) DESC, ff.friend2_id LIMIT ?",
+                        Long.class, id, limit)
+                .stream()
+                .mapToLong(Long::longValue)
+                .toArray();
+    }
+
+    @Override
+    public void validateNotFound(Long id) {
+        if (!Boolean.TRUE.equals(jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM users WHERE user_id = ?)", Boolean.class, id))) {
+            throw new NotFoundException("Пользователь с id = " + id + " не найден");
+        }
+    }
+
+    @Override
+    public long count() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users", Long.class);
+    }
+
+    @Override
+    public long countFriendLinks() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM friends", Long.class);
+    }
+
+    /**
+     * Writes every chunk with JDBC batches: users with ids are merged, users without ids are inserted one by
+     * one to get generated keys. Friend rows reference users, so they are written when finished, in both
+     * directions and only for users that exist; then the identity column is moved past the imported ids.
+     */
+    @Override
+    public BulkImport<User> importUsers() {
+        Queue<Object[]> friendArgs = new ConcurrentLinkedQueue<>();
+        return new BulkImport<>() {
+            @Override
+            public void add(List<User> chunk) {
+                List<Object[]> userArgs = new ArrayList<>(chunk.size());
+                List<User> newUsers = new ArrayList<>();
+                for (User user : chunk) {
+                    validateNameAndSetLoginAsName(user);
+                    if (user.getId() == null) {
+                        newUsers.add(user);
+                    } else {
+                        userArgs.add(new Object[]{user.getId(), user.getEmail(), user.getLogin(), user.getName(),
+                                user.getBirthday()});
+                    }
+                }
+                jdbcTemplate.batchUpdate("MERGE INTO users (user_id, email, login, name, birthday) "
+                        + "KEY (user_id) VALUES (?, ?, ?, ?, ?)", userArgs);
+                if (!newUsers.isEmpty()) {
+                    restartUserIds();
+                    for (User user : newUsers) {
+                        Map<String, Object> row = new HashMap<>();
+                        row.put("email", user.getEmail());
+                        row.put("login", user.getLogin());
+                        row.put("name", user.getName());
+                        row.put("birthday", user.getBirthday());
+                        user.setId(userInsert.executeAndReturnKey(row).longValue());
+                    }
+                }
+
+                List<Object[]> userIds = new ArrayList<>(chunk.size());
+                for (User user : chunk) {
+                    userIds.add(new Object[]{user.getId()});
+                    for (long friendId : SortedLongs.of(user.getFriends())) {
+                        friendArgs.add(new Object[]{user.getId(), friendId, user.getId(), friendId});
+                        friendArgs.add(new Object[]{friendId, user.getId(), friendId, user.getId()});
+                    }
+                }
+                jdbcTemplate.batchUpdate("DELETE FROM friends WHERE friend1_id = ?", userIds);
+            }
+
+            @Override
+            public void finish() {
+                jdbcTemplate.batchUpdate("MERGE INTO friends (friend1_id, friend2_id, status_id) "
+                        + "KEY (friend1_id, friend2_id) "
+                        + "SELECT ?, ?, " + ACCEPTED_STATUS_ID + " FROM users AS u1 JOIN users AS u2 "
+                        + "ON u1.user_id = ? AND u2.user_id = ?", List.copyOf(friendArgs));
+                log.info("Finished user import, last user id is {}", restartUserIds() - 1);
+            }
+        };
+    }
+
+    /**
+     * Moves the identity of {@code users} past the largest id, which imported users may have set explicitly.
+     *
+     * @return the next generated id
+     */
+    private long restartUserIds() {
+        long nextId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(user_id), 0) + 1 FROM users", Long.class);
+        jdbcTemplate.execute("ALTER TABLE users ALTER COLUMN user_id RESTART WITH " + nextId);
+        return nextId;
+    }
+
+    private User findById(long id) {
+        return jdbcTemplate.query("SELECT " + USER_COLUMNS + " FROM users AS u WHERE u.user_id = ?",
+                        UserDbStorage::mapUser, id)
+                .stream()
+                .findFirst()
+                .orElseThrow(() -> new NotFoundException("Пользователь с id = " + id + " не найден"));
+    }
+
+    /**
+     * Checks the existence of all users with one query, then runs the statement for both directions of every
+     * valid pair as a single JDBC batch.
+     */
+    private List<BatchItemResult> applyFriends(List<FriendOperation> operations, String sql, Operation operation) {
+        long[] ids = new long[operations.size() * 2];
+        for (int i = 0; i < operations.size(); i++) {
+            ids[2 * i] = operations.get(i).getUserId();
+            ids[2 * i + 1] = operations.get(i).getFriendId();
+        }
+        Set<Long> existing = new HashSet<>(jdbcTemplate.queryForList(
+                "SELECT user_id FROM users WHERE user_id = ANY (?)", Long.class, (Object) SqlArrays.toBoxedArray(ids)));
+
+        List<BatchItemResult> results = new ArrayList<>(operations.size());
+        List<Object[]> batchArgs = new ArrayList<>(ids.length);
+        for (int i = 0; i < ids.length; i += 2) {
+            long id = ids[i];
+            long friendId = ids[i + 1];
+            if (!existing.contains(id) || !existing.contains(friendId)) {
+                results.add(BatchItemResult.notFound("Пользователь с id = "
+                        + (existing.contains(id) ? friendId : id) + " не найден"));
+                continue;
+            }
+            batchArgs.add(new Object[]{id, friendId});
+            batchArgs.add(new Object[]{friendId, id});
+            results.add(BatchItemResult.applied());
+        }
+        if (!batchArgs.isEmpty()) {
+            int[] updated = jdbcTemplate.batchUpdate(sql, batchArgs);
+            List<Object[]> events = new ArrayList<>(updated.length / 2);
+            long now = System.currentTimeMillis();
+            for (int i = 0; i < updated.length; i += 2) {
+                if (updated[i] != 0 || updated[i + 1] != 0) {
+                    Object[] link = batchArgs.get(i);
+                    events.add(new Object[]{link[0], EventType.FRIEND.name(), operation.name(), link[1], now});
+                }
+            }
+            if (!events.isEmpty()) {
+                jdbcTemplate.batchUpdate(INSERT_EVENT, events);
+            }
+        }
+
+        log.debug("Applied {} of {} friend operations", batchArgs.size() / 2, operations.size());
+        return results;
+    }
+
+    @Override
+    public void addEvent(long userId, EventType eventType, Operation operation, long entityId) {
+        jdbcTemplate.update(INSERT_EVENT, userId, eventType.name(), operation.name(), entityId,
+                System.currentTimeMillis());
+    }
+
+    @Override
+    public List<Event> findFeed(long userId, long beforeEventId, int limit) throws NotFoundException {
+        validateNotFound(userId);
+
+        return jdbcTemplate.query("SELECT event_id, event_time, user_id, event_type, operation, entity_id "
+                        + "FROM feed WHERE user_id = ? AND event_id < ? ORDER BY event_id DESC LIMIT ?",
+                (rs, rowNum) -> new Event(rs.getLong("event_id"), rs.getLong("event_time"), rs.getLong("user_id"),
+                        EventType.valueOf(rs.getString("event_type")), Operation.valueOf(rs.getString("operation")),
+                        rs.getLong("entity_id")),
+                userId, beforeEventId, limit);
+    }
+
+    private static void validateNameAndSetLoginAsName(User user) {
+        if (user.getName() == null || user.getName().isBlank()) {
+            log.trace("Received User object without name, setting login {} as user name", user.getLogin());
+            user.setName(user.getLogin());
+        }
+    }
+
+    private static User mapUser(ResultSet rs, int rowNum) throws SQLException {
+        User user = new User();
+        user.setId(rs.getLong("user_id"));
+        user.setEmail(rs.getString("email"));
+        user.setLogin(rs.getString("login"));
+        user.setName(rs.getString("name"));
+        user.setBirthday(rs.getObject("birthday", LocalDate.class));
+        user.setFriends(new LongArraySet(SqlArrays.toLongArray(rs.getArray("friends"))));
+        return user;
+    }
+}
@@ -1,23 +1,93 @@
 package ru.yandex.practicum.filmorate.storage.user;
 
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+import ru.yandex.practicum.filmorate.model.Event;
+import ru.yandex.practicum.filmorate.model.Event.EventType;
+import ru.yandex.practicum.filmorate.model.Event.Operation;
+import ru.yandex.practicum.filmorate.model.FriendOperation;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.BulkImport;
 
 import java.util.Collection;
+import java.util.List;
 
 public interface UserStorage {
     Collection<User> findAll();
 
+    /**
+     * Returns up to {@code limit} users with ids greater than {@code afterId}, ordered by id.
+     */
+    List<User> findPage(long afterId, int limit);
+
+    /**
+     * Returns the ids of the {@link #findPage} page, without reading the users.
+     */
+    long[] findIds(long afterId, int limit);
+
+    /**
+     * Returns the users with the given ids in the order of {@code ids}, skipping unknown ids.
+     */
+    List<User> findByIds(long[] ids);
+
     User create(User user);
 
     User update(User newUser);
 
-    Collection<User> addFriend(Long id, Long friendId);
+    /**
+     * Returns the two affected users: the user and the friend.
+     */
+    List<User> addFriend(Long id, Long friendId);
 
-    Collection<User> removeFriend(Long id, Long friendId);
+    /**
+     * Returns the two affected users: the user and the former friend.
+     */
+    List<User> removeFriend(Long id, Long friendId);
+
+    /**
+     * Makes friends of every pair whose users both exist and skips the rest; the results follow the order of
+     * {@code operations}.
+     */
+    List<BatchItemResult> addFriends(List<FriendOperation> operations);
+
+    /**
+     * Ends the friendship of every pair whose users both exist and skips the rest; the results follow the
+     * order of {@code operations}.
+     */
+    List<BatchItemResult> removeFriends(List<FriendOperation> operations);
 
     Collection<User> findUserFriends(long userId);
 
     Collection<User> findCommonFriends(long id, long otherId);
 
+    /**
+     * Returns the ids of up to {@code limit} friends of the user's friends who are not friends of the user yet,
+     * the most mutual friends first and by id on equal counts.
+     */
+    long[] findFriendSuggestions(long id, int limit);
+
+    /**
+     * Records an event in the user's feed. Likes and friendships record their events themselves, only when
+     * they change something.
+     */
+    void addEvent(long userId, EventType eventType, Operation operation, long entityId);
+
+    /**
+     * Returns up to {@code limit} events of the user with ids less than {@code beforeEventId}, the newest first.
+     */
+    List<Event> findFeed(long userId, long beforeEventId, int limit);
+
     void validateNotFound(Long id);
+
+    long count();
+
+    /**
+     * Counts friendships once per direction: two friends make two links.
+     */
+    long countFriendLinks();
+
+    /**
+     * Starts a bulk import of users with their friends. Friendship is made mutual when the import is
+     * finished; friends that do not exist are dropped.
+     */
+    BulkImport<User> importUsers();
 }
@@ -0,0 +1,50 @@
+package ru.yandex.practicum.filmorate.storage.util;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.IntToLongFunction;
+
+/**
+ * Ids of a storage in ascending order, so pages and full walks never probe ids that hold no record. The ids of a
+ * mapped snapshot are its sorted rows and are not copied; only the ids stored since are kept, in a skip list.
+ */
+public class IdIndex {
+
+    private static final int INITIAL_PAGE = 1024;
+
+    private final NavigableSet<Long> added = new ConcurrentSkipListSet<>();
+
+    public void add(long id) {
+        added.add(id);
+    }
+
+    /**
+     * Returns up to {@code limit} ids greater than {@code afterId}, merging the added ids with the snapshot rows
+     * {@code [fromRow, rows)}, whose ids {@code rowId} reads.
+     */
+    public long[] after(long afterId, int limit, int fromRow, int rows, IntToLongFunction rowId) {
+        Iterator<Long> addedIds = added.tailSet(afterId, false).iterator();
+        long nextAdded = addedIds.hasNext() ? addedIds.next() : Long.MAX_VALUE;
+        int row = fromRow;
+        long nextRow = row < rows ? rowId.applyAsLong(row) : Long.MAX_VALUE;
+        long[] page = new long[Math.min(limit, INITIAL_PAGE)];
+        int size = 0;
+        while (size < limit && (nextAdded != Long.MAX_VALUE || nextRow != Long.MAX_VALUE)) {
+            long id = Math.min(nextAdded, nextRow);
+            if (nextAdded == id) {
+                nextAdded = addedIds.hasNext() ? addedIds.next() : Long.MAX_VALUE;
+            }
+            if (nextRow == id) {
+                row++;
+                nextRow = row < rows ? rowId.applyAsLong(row) : Long.MAX_VALUE;
+            }
+            if (size == page.length) {
+                page = Arrays.copyOf(page, (int) Math.min(page.length * 2L, limit));
+            }
+            page[size++] = id;
+        }
+        return size == page.length ? page : Arrays.copyOf(page, size);
+    }
+}
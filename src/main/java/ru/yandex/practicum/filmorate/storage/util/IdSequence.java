@@ -0,0 +1,26 @@
+package ru.yandex.practicum.filmorate.storage.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Allocates ids in constant time from one shared counter.
+ */
+public class IdSequence {
+
+    private final AtomicLong lastAllocated = new AtomicLong();
+
+    public long next() {
+        return lastAllocated.incrementAndGet();
+    }
+
+    public long current() {
+        return lastAllocated.get();
+    }
+
+    /**
+     * Moves the sequence past an id that is already taken, e.g. one restored from persisted data.
+     */
+    public void advanceTo(long id) {
+        lastAllocated.accumulateAndGet(id, Math::max);
+    }
+}
@@ -0,0 +1,81 @@
+package ru.yandex.practicum.filmorate.storage.util;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Read-only {@code Set<Long>} view over a sorted array from {@link SortedLongs}. Values are boxed
+ * only while iterating, e.g. when the set is written to JSON.
+ */
+public class LongArraySet extends AbstractSet<Long> {
+
+    private final long[] values;
+    private volatile boolean sorted;
+
+    public LongArraySet(long[] values) {
+        this.values = values;
+        this.sorted = true;
+    }
+
+    private LongArraySet(long[] values, boolean sorted) {
+        this.values = values;
+        this.sorted = sorted;
+    }
+
+    /**
+     * View over distinct values in any order, sorted in place on the first read that needs the order. Lets
+     * a storage copy a set under its lock and leave the sorting to whoever reads the copy.
+     */
+    public static LongArraySet sortedOnRead(long[] values) {
+        return new LongArraySet(values, false);
+    }
+
+    public long[] toLongArray() {
+        return sortedValues();
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof Long value && SortedLongs.contains(sortedValues(), value);
+    }
+
+    @Override
+    public Iterator<Long> iterator() {
+        long[] values = sortedValues();
+        return new Iterator<>() {
+            private int index;
+
+            @Override
+            public boolean hasNext() {
+                return index < values.length;
+            }
+
+            @Override
+            public Long next() {
+                if (index >= values.length) {
+                    throw new NoSuchElementException();
+                }
+                return values[index++];
+            }
+        };
+    }
+
+    @Override
+    public int size() {
+        return values.length;
+    }
+
+    private long[] sortedValues() {
+        if (!sorted) {
+            synchronized (this) {
+                if (!sorted) {
+                    Arrays.sort(values);
+                    sorted = true;
+                }
+            }
+        }
+        return values;
+    }
+}
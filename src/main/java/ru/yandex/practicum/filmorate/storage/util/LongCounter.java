@@ -0,0 +1,171 @@
+package ru.yandex.practicum.filmorate.storage.util;
+
+/**
+ * Open-addressing map from positive long keys to int counts, with linear probing and no boxing. Not
+ * thread-safe; meant to live for one computation, or one per thread, merged with {@link #addAll}.
+ */
+public class LongCounter {
+
+    private static final long EMPTY_SLOT = 0;
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] keys;
+    private int[] counts;
+    private int size;
+
+    public LongCounter(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity * 3 < expectedSize * 4) {
+            capacity *= 2;
+        }
+        keys = new long[capacity];
+        counts = new int[capacity];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void increment(long key) {
+        add(key, 1);
+    }
+
+    public void add(long key, int delta) {
+        int mask = keys.length - 1;
+        int i = slot(key, mask);
+        while (keys[i] != EMPTY_SLOT) {
+            if (keys[i] == key) {
+                counts[i] += delta;
+                return;
+            }
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        counts[i] = delta;
+        size++;
+        if (size * 4 > keys.length * 3) {
+            rehash(keys.length * 2);
+        }
+    }
+
+    /**
+     * Adds the counts of {@code other} to this counter.
+     */
+    public void addAll(LongCounter other) {
+        for (int i = 0; i < other.keys.length; i++) {
+            if (other.keys[i] != EMPTY_SLOT) {
+                add(other.keys[i], other.counts[i]);
+            }
+        }
+    }
+
+    /**
+     * @return the count of the key, or 0 if it was never added
+     */
+    public int get(long key) {
+        int mask = keys.length - 1;
+        int i = slot(key, mask);
+        while (keys[i] != EMPTY_SLOT) {
+            if (keys[i] == key) {
+                return counts[i];
+            }
+            i = (i + 1) & mask;
+        }
+        return 0;
+    }
+
+    /**
+     * Returns up to {@code k} keys with the highest counts, highest first and by key on equal counts. Keeps a
+     * bounded min-heap of slots, so it takes O(n log k) time and O(k) memory.
+     */
+    public long[] top(int k) {
+        int[] heap = new int[Math.min(k, size)];
+        if (heap.length == 0) {
+            return SortedLongs.EMPTY;
+        }
+        int heapSize = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] == EMPTY_SLOT) {
+                continue;
+            }
+            if (heapSize < heap.length) {
+                heap[heapSize] = i;
+                siftUp(heap, heapSize++);
+            } else if (ranksBelow(heap[0], i)) {
+                heap[0] = i;
+                siftDown(heap, heapSize);
+            }
+        }
+        long[] top = new long[heapSize];
+        while (heapSize > 0) {
+            top[--heapSize] = keys[heap[0]];
+            heap[0] = heap[heapSize];
+            siftDown(heap, heapSize);
+        }
+        return top;
+    }
+
+    private boolean ranksBelow(int slot, int otherSlot) {
+        return counts[slot] < counts[otherSlot] || counts[slot] == counts[otherSlot] && keys[slot] > keys[otherSlot];
+    }
+
+    private void siftUp(int[] heap, int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (!ranksBelow(heap[i], heap[parent])) {
+                return;
+            }
+            swap(heap, i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int[] heap, int heapSize) {
+        int i = 0;
+        while (true) {
+            int lowest = i;
+            int left = 2 * i + 1;
+            int right = left + 1;
+            if (left < heapSize && ranksBelow(heap[left], heap[lowest])) {
+                lowest = left;
+            }
+            if (right < heapSize && ranksBelow(heap[right], heap[lowest])) {
+                lowest = right;
+            }
+            if (lowest == i) {
+                return;
+            }
+            swap(heap, i, lowest);
+            i = lowest;
+        }
+    }
+
+    private static void swap(int[] heap, int i, int j) {
+        int slot = heap[i];
+        heap[i] = heap[j];
+        heap[j] = slot;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldCounts = counts;
+        keys = new long[capacity];
+        counts = new int[capacity];
+        int mask = capacity - 1;
+        for (int j = 0; j < oldKeys.length; j++) {
+            if (oldKeys[j] != EMPTY_SLOT) {
+                int i = slot(oldKeys[j], mask);
+                while (keys[i] != EMPTY_SLOT) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = oldKeys[j];
+                counts[i] = oldCounts[j];
+            }
+        }
+    }
+
+    private static int slot(long key, int mask) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+}
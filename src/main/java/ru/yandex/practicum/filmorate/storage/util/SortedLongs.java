@@ -0,0 +1,146 @@
+package ru.yandex.practicum.filmorate.storage.util;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Operations on strictly ascending {@code long[]} arrays. Arrays are never modified in place:
+ * a changed array is always a new copy, so readers may keep using the old one without locking.
+ */
+public final class SortedLongs {
+
+    public static final long[] EMPTY = new long[0];
+
+    /**
+     * Below this ratio of array sizes a linear merge is faster than galloping through the larger one.
+     */
+    private static final int GALLOP_RATIO = 16;
+
+    private SortedLongs() {
+    }
+
+    public static long[] of(Collection<Long> values) {
+        if (values == null || values.isEmpty()) {
+            return EMPTY;
+        }
+        return values.stream()
+                .mapToLong(Long::longValue)
+                .sorted()
+                .distinct()
+                .toArray();
+    }
+
+    public static boolean contains(long[] values, long value) {
+        return Arrays.binarySearch(values, value) >= 0;
+    }
+
+    public static long[] insert(long[] values, long value) {
+        int index = Arrays.binarySearch(values, value);
+        if (index >= 0) {
+            return values;
+        }
+        int insertAt = -index - 1;
+        long[] result = new long[values.length + 1];
+        System.arraycopy(values, 0, result, 0, insertAt);
+        result[insertAt] = value;
+        System.arraycopy(values, insertAt, result, insertAt + 1, values.length - insertAt);
+        return result;
+    }
+
+    public static long[] remove(long[] values, long value) {
+        int index = Arrays.binarySearch(values, value);
+        if (index < 0) {
+            return values;
+        }
+        if (values.length == 1) {
+            return EMPTY;
+        }
+        long[] result = new long[values.length - 1];
+        System.arraycopy(values, 0, result, 0, index);
+        System.arraycopy(values, index + 1, result, index, values.length - index - 1);
+        return result;
+    }
+
+    /**
+     * Merges two sorted arrays into one without duplicates.
+     */
+    public static long[] union(long[] first, long[] second) {
+        long[] result = new long[first.length + second.length];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < first.length || j < second.length) {
+            long value;
+            if (j == second.length || (i < first.length && first[i] < second[j])) {
+                value = first[i++];
+            } else if (i == first.length || second[j] < first[i]) {
+                value = second[j++];
+            } else {
+                value = first[i++];
+                j++;
+            }
+            result[count++] = value;
+        }
+        return count == result.length ? result : Arrays.copyOf(result, count);
+    }
+
+    /**
+     * Intersects two sorted arrays, iterating the smaller one: a linear merge for arrays of similar size
+     * and a galloping search through the larger one otherwise.
+     */
+    public static long[] intersect(long[] first, long[] second) {
+        long[] small = first.length <= second.length ? first : second;
+        long[] large = small == first ? second : first;
+        if (small.length == 0) {
+            return EMPTY;
+        }
+
+        long[] result = new long[small.length];
+        int count = 0;
+
+        if ((long) small.length * GALLOP_RATIO < large.length) {
+            int from = 0;
+            for (long value : small) {
+                from = gallop(large, from, value);
+                if (from == large.length) {
+                    break;
+                }
+                if (large[from] == value) {
+                    result[count++] = value;
+                    from++;
+                }
+            }
+        } else {
+            int i = 0;
+            int j = 0;
+            while (i < small.length && j < large.length) {
+                if (small[i] < large[j]) {
+                    i++;
+                } else if (small[i] > large[j]) {
+                    j++;
+                } else {
+                    result[count++] = small[i];
+                    i++;
+                    j++;
+                }
+            }
+        }
+
+        return count == result.length ? result : Arrays.copyOf(result, count);
+    }
+
+    /**
+     * Returns the first index at or after {@code from} whose value is not less than {@code target}.
+     */
+    private static int gallop(long[] values, int from, long target) {
+        int step = 1;
+        int bound = from;
+        while (bound < values.length && values[bound] < target) {
+            from = bound + 1;
+            bound += step;
+            step <<= 1;
+        }
+        int index = Arrays.binarySearch(values, from, Math.min(bound + 1, values.length), target);
+        return index >= 0 ? index : -index - 1;
+    }
+}
@@ -0,0 +1,56 @@
+package ru.yandex.practicum.filmorate.storage.util;
+
+import java.sql.Array;
+import java.sql.SQLException;
+
+/**
+ * Converts SQL arrays, e.g. results of {@code ARRAY_AGG}, to primitive arrays.
+ */
+public final class SqlArrays {
+
+    private SqlArrays() {
+    }
+
+    public static long[] toLongArray(Array array) throws SQLException {
+        if (array == null) {
+            return SortedLongs.EMPTY;
+        }
+        try {
+            Object[] values = (Object[]) array.getArray();
+            long[] result = new long[values.length];
+            for (int i = 0; i < values.length; i++) {
+                result[i] = ((Number) values[i]).longValue();
+            }
+            return result;
+        } finally {
+            array.free();
+        }
+    }
+
+    public static String[] toStringArray(Array array) throws SQLException {
+        if (array == null) {
+            return new String[0];
+        }
+        try {
+            Object[] values = (Object[]) array.getArray();
+            String[] result = new String[values.length];
+            for (int i = 0; i < values.length; i++) {
+                result[i] = (String) values[i];
+            }
+            return result;
+        } finally {
+            array.free();
+        }
+    }
+
+    /**
+     * Prepares ids to be bound as a single array parameter, e.g. for {@code WHERE id = ANY (?)}.
+     */
+    public static Long[] toBoxedArray(long[] values) {
+        Long[] result = new Long[values.length];
+        for (int i = 0; i < values.length; i++) {
+            result[i] = values[i];
+        }
+        return result;
+    }
+}
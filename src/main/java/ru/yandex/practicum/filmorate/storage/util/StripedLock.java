@@ -0,0 +1,63 @@
+package ru.yandex.practicum.filmorate.storage.util;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Fixed set of locks shared by entity ids, so writes to different entities rarely contend.
+ */
+public class StripedLock {
+
+    private final ReentrantLock[] stripes;
+    private final int mask;
+
+    public StripedLock(int minStripes) {
+        int size = Integer.highestOneBit(Math.max(1, minStripes - 1)) << 1;
+        stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        mask = size - 1;
+    }
+
+    public static StripedLock forAvailableProcessors() {
+        return new StripedLock(Runtime.getRuntime().availableProcessors() * 4);
+    }
+
+    public void lock(long id) {
+        stripeFor(id).lock();
+    }
+
+    public void unlock(long id) {
+        stripeFor(id).unlock();
+    }
+
+    /**
+     * Locks the stripes of both ids in a stable order to avoid deadlocks between opposite pairs.
+     */
+    public void lockPair(long firstId, long secondId) {
+        int first = indexOf(firstId);
+        int second = indexOf(secondId);
+        stripes[Math.min(first, second)].lock();
+        if (first != second) {
+            stripes[Math.max(first, second)].lock();
+        }
+    }
+
+    public void unlockPair(long firstId, long secondId) {
+        int first = indexOf(firstId);
+        int second = indexOf(secondId);
+        if (first != second) {
+            stripes[Math.max(first, second)].unlock();
+        }
+        stripes[Math.min(first, second)].unlock();
+    }
+
+    private ReentrantLock stripeFor(long id) {
+        return stripes[indexOf(id)];
+    }
+
+    private int indexOf(long id) {
+        long hash = id * 0x9E3779B97F4A7C15L;
+        return (int) (hash >>> 32) & mask;
+    }
+}
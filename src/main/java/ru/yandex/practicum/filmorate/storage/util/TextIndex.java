@@ -0,0 +1,434 @@
+package ru.yandex.practicum.filmorate.storage.util;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.LongToIntFunction;
+
+/**
+ * Inverted index of short texts by positive long ids, ranked with BM25. A text has several fields; a term
+ * found in a field counts as many times as the field's weight.
+ * <p>
+ * Changes are queued without locking, in the order of the calls, so callers may make them under their own locks.
+ * The queue is applied as a batch under the write lock by {@link #tryApply()}, which gives up if the index is
+ * busy, and by the next search, which waits for it; searches then share the read lock. A batch merges its
+ * postings into each term's list in one pass, so a large one, such as an import, costs about as much as
+ * rebuilding the lists it touches.
+ * <p>
+ * Every query word must occur in a found text. The last word of a query that does not end with a separator
+ * also matches the terms it starts, so results follow the user's typing; it is expanded into at most
+ * {@link #MAX_PREFIX_TERMS} terms, the ones found in the most texts.
+ */
+public class TextIndex {
+
+    public static final int MAX_PREFIX_TERMS = 64;
+
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    /**
+     * Scores are multiplied by {@code 1 + POPULARITY_WEIGHT * ln(1 + popularity)}: every tenfold of likes adds
+     * about a quarter, so popularity orders texts of similar relevance but does not outweigh relevance.
+     */
+    private static final double POPULARITY_WEIGHT = 0.1;
+
+    private final int[] fieldWeights;
+
+    private final Queue<Text> pending = new ConcurrentLinkedQueue<>();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final NavigableMap<String, Postings> terms = new TreeMap<>();
+    /**
+     * Every indexed text, to remove its postings when it changes.
+     */
+    private final Map<Long, Text> texts = new HashMap<>();
+    private long totalLength;
+
+    public TextIndex(int... fieldWeights) {
+        this.fieldWeights = fieldWeights.clone();
+    }
+
+    /**
+     * Splits the text into lower-case words of letters and digits; {@code ё} is read as {@code е}.
+     */
+    public static List<String> tokenize(String text) {
+        if (text == null) {
+            return List.of();
+        }
+        List<String> tokens = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                tokens.add(text.substring(start, i).toLowerCase(Locale.ROOT).replace('ё', 'е'));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Queues the fields of the text, in the order of the weights, to replace its previous version.
+     */
+    public void put(long id, String... fields) {
+        Map<String, Integer> frequencies = new HashMap<>();
+        int length = 0;
+        for (int field = 0; field < fields.length; field++) {
+            for (String token : tokenize(fields[field])) {
+                frequencies.merge(token, fieldWeights[field], Integer::sum);
+                length += fieldWeights[field];
+            }
+        }
+        String[] textTerms = new String[frequencies.size()];
+        int[] textFrequencies = new int[textTerms.length];
+        int i = 0;
+        for (Map.Entry<String, Integer> frequency : frequencies.entrySet()) {
+            textTerms[i] = frequency.getKey();
+            textFrequencies[i++] = frequency.getValue();
+        }
+        pending.add(new Text(id, textTerms, textFrequencies, length));
+    }
+
+    /**
+     * Queues the removal of the text.
+     */
+    public void remove(long id) {
+        pending.add(new Text(id, null, null, 0));
+    }
+
+    /**
+     * Applies the queued changes unless another thread holds the index; they are applied by the next search
+     * anyway.
+     */
+    public void tryApply() {
+        if (!pending.isEmpty() && lock.writeLock().tryLock()) {
+            try {
+                applyPending();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    public int size() {
+        awaitPending();
+        lock.readLock().lock();
+        try {
+            return texts.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the ids of up to {@code limit} texts matching every word of the query, the best first and by id
+     * on equal scores. The BM25 score of a text is raised by {@code popularity} of its id, taken as a count
+     * such as likes.
+     */
+    public long[] search(String query, int limit, LongToIntFunction popularity) {
+        List<String> words = tokenize(query).stream().distinct().toList();
+        if (words.isEmpty() || limit <= 0) {
+            return SortedLongs.EMPTY;
+        }
+        boolean lastIsPrefix = Character.isLetterOrDigit(query.charAt(query.length() - 1));
+
+        awaitPending();
+        lock.readLock().lock();
+        try {
+            List<List<Postings>> matches = new ArrayList<>(words.size());
+            for (int i = 0; i < words.size(); i++) {
+                List<Postings> wordMatches = lastIsPrefix && i == words.size() - 1
+                        ? prefixMatches(words.get(i))
+                        : exactMatches(words.get(i));
+                if (wordMatches.isEmpty()) {
+                    return SortedLongs.EMPTY;
+                }
+                matches.add(wordMatches);
+            }
+            // The rarest word goes first: it bounds the candidates, the other words only score them.
+            matches.sort(Comparator.comparingLong(TextIndex::totalSize));
+
+            Scores scores = new Scores(totalSize(matches.getFirst()));
+            double averageLength = (double) totalLength / texts.size();
+            for (int word = 0; word < matches.size(); word++) {
+                for (Postings postings : matches.get(word)) {
+                    double idf = Math.log(1 + (texts.size() - postings.size + 0.5) / (postings.size + 0.5));
+                    for (int i = 0; i < postings.size; i++) {
+                        double frequency = postings.frequencies[i];
+                        double norm = K1 * (1 - B + B * postings.lengths[i] / averageLength);
+                        scores.add(postings.ids[i], word, idf * frequency * (K1 + 1) / (frequency + norm));
+                    }
+                }
+            }
+            return scores.top(limit, matches.size(), popularity);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private List<Postings> exactMatches(String word) {
+        Postings postings = terms.get(word);
+        return postings == null ? List.of() : List.of(postings);
+    }
+
+    private List<Postings> prefixMatches(String prefix) {
+        PriorityQueue<Postings> largest = new PriorityQueue<>(Comparator.comparingInt(postings -> postings.size));
+        for (Postings postings : terms.subMap(prefix, true, prefix + Character.MAX_VALUE, false).values()) {
+            if (largest.size() < MAX_PREFIX_TERMS) {
+                largest.add(postings);
+            } else if (postings.size > largest.peek().size) {
+                largest.poll();
+                largest.add(postings);
+            }
+        }
+        return List.copyOf(largest);
+    }
+
+    private void awaitPending() {
+        if (!pending.isEmpty()) {
+            lock.writeLock().lock();
+            try {
+                applyPending();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Must be called under the write lock. Takes the latest queued version of every text and walks them by id,
+     * so the postings each term gains or loses come out sorted and are merged into its list at once.
+     */
+    private void applyPending() {
+        Map<Long, Text> latest = new HashMap<>();
+        for (Text text = pending.poll(); text != null; text = pending.poll()) {
+            latest.put(text.id, text);
+        }
+        Text[] batch = latest.values().toArray(new Text[0]);
+        Arrays.sort(batch, Comparator.comparingLong(Text::id));
+
+        Map<String, PostingsChange> changes = new HashMap<>();
+        for (Text text : batch) {
+            Text previous = text.terms == null ? texts.remove(text.id) : texts.put(text.id, text);
+            if (previous != null) {
+                for (String term : previous.terms) {
+                    changes.computeIfAbsent(term, key -> new PostingsChange()).remove(text.id);
+                }
+                totalLength -= previous.length;
+            }
+            if (text.terms != null) {
+                for (int i = 0; i < text.terms.length; i++) {
+                    changes.computeIfAbsent(text.terms[i], key -> new PostingsChange())
+                            .add(text.id, text.frequencies[i], text.length);
+                }
+                totalLength += text.length;
+            }
+        }
+
+        for (Map.Entry<String, PostingsChange> change : changes.entrySet()) {
+            Postings postings = terms.computeIfAbsent(change.getKey(), Postings::new);
+            postings.apply(change.getValue());
+            if (postings.size == 0) {
+                terms.remove(change.getKey());
+            }
+        }
+        // Texts keep the terms' own strings, so a term is stored once however many texts contain it.
+        for (Text text : batch) {
+            if (text.terms != null) {
+                for (int i = 0; i < text.terms.length; i++) {
+                    text.terms[i] = terms.get(text.terms[i]).term;
+                }
+            }
+        }
+    }
+
+    private static long totalSize(List<Postings> postingsList) {
+        long size = 0;
+        for (Postings postings : postingsList) {
+            size += postings.size;
+        }
+        return size;
+    }
+
+    /**
+     * Texts containing a term, sorted by id, with the weighted frequency of the term and the weighted length
+     * of each text.
+     */
+    private static final class Postings {
+
+        private final String term;
+        private long[] ids = new long[1];
+        private int[] frequencies = new int[1];
+        private int[] lengths = new int[1];
+        private int size;
+
+        private Postings(String term) {
+            this.term = term;
+        }
+
+        /**
+         * Appends the added postings in place when they all follow the last id, as for new texts; otherwise
+         * merges the list, the removals and the additions into new arrays in one pass.
+         */
+        private void apply(PostingsChange change) {
+            if (change.removedSize == 0 && (size == 0 || ids[size - 1] < change.ids[0])) {
+                ensureCapacity(size + change.addedSize);
+                System.arraycopy(change.ids, 0, ids, size, change.addedSize);
+                System.arraycopy(change.frequencies, 0, frequencies, size, change.addedSize);
+                System.arraycopy(change.lengths, 0, lengths, size, change.addedSize);
+                size += change.addedSize;
+                return;
+            }
+
+            int capacity = Math.max(size + change.addedSize, 1);
+            long[] mergedIds = new long[capacity];
+            int[] mergedFrequencies = new int[capacity];
+            int[] mergedLengths = new int[capacity];
+            int merged = 0;
+            int removed = 0;
+            int added = 0;
+            for (int i = 0; i < size; i++) {
+                long id = ids[i];
+                while (removed < change.removedSize && change.removed[removed] < id) {
+                    removed++;
+                }
+                if (removed < change.removedSize && change.removed[removed] == id) {
+                    continue;
+                }
+                for (; added < change.addedSize && change.ids[added] < id; added++, merged++) {
+                    mergedIds[merged] = change.ids[added];
+                    mergedFrequencies[merged] = change.frequencies[added];
+                    mergedLengths[merged] = change.lengths[added];
+                }
+                mergedIds[merged] = id;
+                mergedFrequencies[merged] = frequencies[i];
+                mergedLengths[merged++] = lengths[i];
+            }
+            for (; added < change.addedSize; added++, merged++) {
+                mergedIds[merged] = change.ids[added];
+                mergedFrequencies[merged] = change.frequencies[added];
+                mergedLengths[merged] = change.lengths[added];
+            }
+            ids = mergedIds;
+            frequencies = mergedFrequencies;
+            lengths = mergedLengths;
+            size = merged;
+        }
+
+        private void ensureCapacity(int capacity) {
+            if (capacity > ids.length) {
+                capacity = Math.max(capacity, ids.length + (ids.length >> 1) + 1);
+                ids = Arrays.copyOf(ids, capacity);
+                frequencies = Arrays.copyOf(frequencies, capacity);
+                lengths = Arrays.copyOf(lengths, capacity);
+            }
+        }
+    }
+
+    /**
+     * A text as queued: its distinct terms with their weighted frequencies, and its weighted length. A removal
+     * has no terms.
+     */
+    private record Text(long id, String[] terms, int[] frequencies, int length) {
+    }
+
+    /**
+     * Postings a batch removes from a term and adds to it, each sorted by id.
+     */
+    private static final class PostingsChange {
+
+        private long[] removed = new long[1];
+        private int removedSize;
+        private long[] ids = new long[1];
+        private int[] frequencies = new int[1];
+        private int[] lengths = new int[1];
+        private int addedSize;
+
+        private void remove(long id) {
+            if (removedSize == removed.length) {
+                removed = Arrays.copyOf(removed, removedSize * 2);
+            }
+            removed[removedSize++] = id;
+        }
+
+        private void add(long id, int frequency, int length) {
+            if (addedSize == ids.length) {
+                ids = Arrays.copyOf(ids, addedSize * 2);
+                frequencies = Arrays.copyOf(frequencies, addedSize * 2);
+                lengths = Arrays.copyOf(lengths, addedSize * 2);
+            }
+            ids[addedSize] = id;
+            frequencies[addedSize] = frequency;
+            lengths[addedSize++] = length;
+        }
+    }
+
+    /**
+     * Open-addressing map from ids to accumulated scores, with the number of query words each id matched.
+     * Only the first word adds ids; later words score the ids that matched all words before them.
+     */
+    private static final class Scores {
+
+        private final long[] ids;
+        private final double[] scores;
+        private final int[] words;
+
+        private Scores(long expectedSize) {
+            int capacity = Integer.highestOneBit((int) Math.min(expectedSize * 2, 1 << 29) | 1) << 1;
+            ids = new long[capacity];
+            scores = new double[capacity];
+            words = new int[capacity];
+        }
+
+        private void add(long id, int word, double score) {
+            int mask = ids.length - 1;
+            long hash = id * 0x9E3779B97F4A7C15L;
+            int i = (int) (hash ^ (hash >>> 32)) & mask;
+            while (ids[i] != 0 && ids[i] != id) {
+                i = (i + 1) & mask;
+            }
+            if (ids[i] == 0) {
+                if (word > 0) {
+                    return;
+                }
+                ids[i] = id;
+            }
+            // An id that already matched this word through another prefix term only gains score.
+            if (words[i] == word) {
+                words[i]++;
+            } else if (words[i] != word + 1) {
+                return;
+            }
+            scores[i] += score;
+        }
+
+        private long[] top(int limit, int wordCount, LongToIntFunction popularity) {
+            PriorityQueue<Integer> lowest = new PriorityQueue<>(this::compare);
+            for (int i = 0; i < ids.length; i++) {
+                if (ids[i] == 0 || words[i] != wordCount) {
+                    continue;
+                }
+                scores[i] *= 1 + POPULARITY_WEIGHT * Math.log1p(popularity.applyAsInt(ids[i]));
+                if (lowest.size() < limit) {
+                    lowest.add(i);
+                } else if (compare(lowest.peek(), i) < 0) {
+                    lowest.poll();
+                    lowest.add(i);
+                }
+            }
+            long[] top = new long[lowest.size()];
+            for (int i = top.length - 1; i >= 0; i--) {
+                top[i] = ids[lowest.poll()];
+            }
+            return top;
+        }
+
+        /**
+         * Orders slots from the worst to the best: by score, then by the larger id.
+         */
+        private int compare(int slot, int otherSlot) {
+            int byScore = Double.compare(scores[slot], scores[otherSlot]);
+            return byScore != 0 ? byScore : Long.compare(ids[otherSlot], ids[slot]);
+        }
+    }
+}
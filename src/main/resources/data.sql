@@ -0,0 +1,8 @@
+MERGE INTO rating (rating_id, name) KEY (rating_id)
+VALUES (1, 'G'), (2, 'PG'), (3, 'PG-13'), (4, 'R'), (5, 'NC-17');
+
+MERGE INTO genre (genre_id, name) KEY (genre_id)
+VALUES (1, 'Комедия'), (2, 'Драма'), (3, 'Мультфильм'), (4, 'Триллер'), (5, 'Документальный'), (6, 'Боевик');
+
+MERGE INTO friends_status (status_id, name) KEY (status_id)
+VALUES (1, 'unconfirmed'), (2, 'accepted');
@@ -0,0 +1,67 @@
+CREATE TABLE IF NOT EXISTS rating (
+    rating_id INT PRIMARY KEY,
+    name VARCHAR(10) NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS genre (
+    genre_id INT PRIMARY KEY,
+    name VARCHAR(50) NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS film (
+    film_id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name VARCHAR(255) NOT NULL,
+    description VARCHAR(200),
+    release_date DATE,
+    duration BIGINT,
+    rating_id INT REFERENCES rating (rating_id)
+);
+
+CREATE TABLE IF NOT EXISTS film_genre (
+    film_id BIGINT NOT NULL REFERENCES film (film_id) ON DELETE CASCADE,
+    genre_id INT NOT NULL REFERENCES genre (genre_id),
+    PRIMARY KEY (film_id, genre_id)
+);
+
+CREATE INDEX IF NOT EXISTS film_genre_genre_id_idx ON film_genre (genre_id);
+
+CREATE TABLE IF NOT EXISTS users (
+    user_id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    email VARCHAR(255) NOT NULL,
+    login VARCHAR(255) NOT NULL,
+    name VARCHAR(255),
+    birthday DATE
+);
+
+CREATE TABLE IF NOT EXISTS likes (
+    film_id BIGINT NOT NULL REFERENCES film (film_id) ON DELETE CASCADE,
+    user_id BIGINT NOT NULL REFERENCES users (user_id) ON DELETE CASCADE,
+    PRIMARY KEY (film_id, user_id)
+);
+
+CREATE INDEX IF NOT EXISTS likes_user_id_idx ON likes (user_id);
+
+CREATE TABLE IF NOT EXISTS friends_status (
+    status_id INT PRIMARY KEY,
+    name VARCHAR(20) NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS friends (
+    friend1_id BIGINT NOT NULL REFERENCES users (user_id) ON DELETE CASCADE,
+    friend2_id BIGINT NOT NULL REFERENCES users (user_id) ON DELETE CASCADE,
+    status_id INT NOT NULL REFERENCES friends_status (status_id),
+    PRIMARY KEY (friend1_id, friend2_id)
+);
+
+CREATE INDEX IF NOT EXISTS friends_friend2_id_idx ON friends (friend2_id);
+
+CREATE TABLE IF NOT EXISTS feed (
+    event_id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    user_id BIGINT NOT NULL REFERENCES users (user_id) ON DELETE CASCADE,
+    event_type VARCHAR(10) NOT NULL,
+    operation VARCHAR(10) NOT NULL,
+    entity_id BIGINT NOT NULL,
+    event_time BIGINT NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS feed_user_id_event_id_idx ON feed (user_id, event_id);
@@ -1,24 +1,63 @@
 package ru.yandex.practicum.filmorate;
 
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationContext;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.util.unit.DataSize;
+import reactor.core.scheduler.Schedulers;
+import ru.yandex.practicum.filmorate.controller.CsvWriter;
 import ru.yandex.practicum.filmorate.controller.FilmController;
+import ru.yandex.practicum.filmorate.controller.NdjsonWriter;
+import ru.yandex.practicum.filmorate.controller.ReactiveFilmController;
 import ru.yandex.practicum.filmorate.controller.UserController;
+import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
 import ru.yandex.practicum.filmorate.exceptions.ValidationException;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+import ru.yandex.practicum.filmorate.model.Event;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FriendOperation;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.LikeOperation;
+import ru.yandex.practicum.filmorate.model.Mpa;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.BulkImporter;
+import ru.yandex.practicum.filmorate.service.FilmJsonCache;
 import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.FriendSuggestionsCache;
+import ru.yandex.practicum.filmorate.service.PopularFilmsCache;
+import ru.yandex.practicum.filmorate.service.ReactiveFilmService;
+import ru.yandex.practicum.filmorate.service.RecommendationsCache;
+import ru.yandex.practicum.filmorate.service.UserJsonCache;
 import ru.yandex.practicum.filmorate.service.UserService;
 import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
 import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
 import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
 import ru.yandex.practicum.filmorate.storage.user.UserStorage;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @SpringBootTest
 class FilmorateApplicationTests {
@@ -26,11 +65,50 @@ class FilmorateApplicationTests {
     UserStorage userStorage = new InMemoryUserStorage();
     FilmStorage filmStorage = new InMemoryFilmStorage(userStorage);
 
-    UserService userService = new UserService(userStorage);
-    FilmService filmService = new FilmService(filmStorage);
+    ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
 
-    UserController userController = new UserController(userService);
-    FilmController filmController = new FilmController(filmService);
+    FilmJsonCache filmJsonCache = new FilmJsonCache(filmStorage, objectMapper, meterRegistry, DataSize.ofMegabytes(1));
+    UserJsonCache userJsonCache = new UserJsonCache(userStorage, objectMapper, meterRegistry, DataSize.ofMegabytes(1));
+
+    UserService userService = new UserService(userStorage, new FriendSuggestionsCache(userStorage, meterRegistry),
+            userJsonCache);
+    FilmService filmService = new FilmService(filmStorage,
+            new PopularFilmsCache(filmStorage, filmJsonCache, meterRegistry),
+            new RecommendationsCache(filmStorage, meterRegistry), filmJsonCache);
+
+    NdjsonWriter ndjsonWriter = new NdjsonWriter(objectMapper);
+
+    UserController userController = new UserController(userService, ndjsonWriter, filmService, false);
+    FilmController filmController = new FilmController(filmService, ndjsonWriter);
+
+    @Autowired
+    ApplicationContext context;
+
+    @Test
+    void shouldTimeHotReadsUnderTheirOwnTimerOnly() {
+        MeterRegistry registry = context.getBean(MeterRegistry.class);
+        FilmService timedFilmService = context.getBean(FilmService.class);
+        UserService timedUserService = context.getBean(UserService.class);
+        User user = timedUserService.create(newUser(1));
+        User other = timedUserService.create(newUser(2));
+        long popularBefore = timerCount(registry, "filmorate.film.popular");
+        long commonFriendsBefore = timerCount(registry, "filmorate.user.common.friends");
+
+        timedFilmService.getPopularJson(10, null, null);
+        timedUserService.findCommonFriends(user.getId(), other.getId());
+
+        assertEquals(popularBefore + 1, timerCount(registry, "filmorate.film.popular"),
+                "Запрос популярных фильмов должен учитываться один раз");
+        assertEquals(commonFriendsBefore + 1, timerCount(registry, "filmorate.user.common.friends"),
+                "Запрос общих друзей должен учитываться один раз");
+        assertNull(registry.find("filmorate.film.service").tag("method", "getPopularJson").timer(),
+                "Популярные фильмы не должны попадать в общий таймер сервиса");
+        assertNull(registry.find("filmorate.user.service").tag("method", "findCommonFriends").timer(),
+                "Общие друзья не должны попадать в общий таймер сервиса");
+        assertNotNull(registry.find("filmorate.user.service").tag("method", "create").timer(),
+                "Остальные методы сервиса должны учитываться в общем таймере");
+    }
 
     @Test
     void shouldAddFilm() {
@@ -48,7 +126,7 @@ class FilmorateApplicationTests {
 
         filmController.create(film);
 
-        assertEquals(1, filmController.findAll().size(), "Контроллер не добавил фильм, соответствующий " +
+        assertEquals(1, films().size(), "Контроллер не добавил фильм, соответствующий " +
                 "критериям проверки");
     }
 
@@ -64,7 +142,7 @@ class FilmorateApplicationTests {
 
         try {
             filmController.create(film1);
-            assertNotEquals(1, filmController.findAll().size(), "Контроллер пропустил " +
+            assertNotEquals(1, films().size(), "Контроллер пропустил " +
                     "фильм с пустым названием (blank)");
         } catch (ValidationException e) {
             assertEquals("Название не может быть пустым", e.getMessage(), "Контроллер пропустил " +
@@ -80,7 +158,7 @@ class FilmorateApplicationTests {
 
         try {
             filmController.create(film2);
-            assertNotEquals(1, filmController.findAll().size(), "Контроллер пропустил " +
+            assertNotEquals(1, films().size(), "Контроллер пропустил " +
                     "фильм без названия (null)");
         } catch (ValidationException e) {
             assertEquals("Название не может быть пустым", e.getMessage(), "Контроллер пропустил " +
@@ -101,7 +179,7 @@ class FilmorateApplicationTests {
 
         try {
             filmController.create(film);
-            assertNotEquals(1, filmController.findAll().size(), "Контроллер пропустил фильм " +
+            assertNotEquals(1, films().size(), "Контроллер пропустил фильм " +
                     "с длиной описания более 200 символов");
         } catch (ValidationException e) {
             assertEquals("Максимальная длина описания — 200 символов", e.getMessage(), "Контроллер " +
@@ -121,7 +199,7 @@ class FilmorateApplicationTests {
 
         try {
             filmController.create(film);
-            assertNotEquals(1, filmController.findAll().size(), "Контроллер пропустил фильм " +
+            assertNotEquals(1, films().size(), "Контроллер пропустил фильм " +
                     "с датой релиза раньше 28 декабря 1895 года");
         } catch (ValidationException e) {
             assertEquals("Дата релиза — не раньше 28 декабря 1895 года", e.getMessage(), "Контроллер " +
@@ -141,7 +219,7 @@ class FilmorateApplicationTests {
 
         try {
             filmController.create(film);
-            assertNotEquals(1, filmController.findAll().size(), "Контроллер пропустил фильм, " +
+            assertNotEquals(1, films().size(), "Контроллер пропустил фильм, " +
                     "у которого продолжительность - отрицательное число");
         } catch (ValidationException e) {
             assertEquals("Продолжительность фильма должна быть положительным числом", e.getMessage(),
@@ -166,7 +244,7 @@ class FilmorateApplicationTests {
 
         userController.create(user);
 
-        assertEquals(1, userController.findAll().size(), "Контроллер не создал пользователя, соответствующего " +
+        assertEquals(1, users().size(), "Контроллер не создал пользователя, соответствующего " +
                 "критериям проверки");
     }
 
@@ -182,7 +260,7 @@ class FilmorateApplicationTests {
 
         try {
             userController.create(user1);
-            assertNotEquals(1, filmController.findAll().size(), "Контроллер создал " +
+            assertNotEquals(1, films().size(), "Контроллер создал " +
                     "пользователя с пустым email (blank)");
         } catch (ValidationException e) {
             assertEquals("Электронная почта не может быть пустой", e.getMessage(), "Контроллер создал " +
@@ -198,7 +276,7 @@ class FilmorateApplicationTests {
 
         try {
             userController.create(user2);
-            assertNotEquals(1, filmController.findAll().size(), "Контроллер создал " +
+            assertNotEquals(1, films().size(), "Контроллер создал " +
                     "пользователя с email = null");
         } catch (ValidationException e) {
             assertEquals("Электронная почта не может быть пустой", e.getMessage(), "Контроллер создал " +
@@ -218,7 +296,7 @@ class FilmorateApplicationTests {
 
         try {
             userController.create(user);
-            assertNotEquals(1, filmController.findAll().size(), "Контроллер создал " +
+            assertNotEquals(1, films().size(), "Контроллер создал " +
                     "пользователя с email без символа @");
         } catch (ValidationException e) {
             assertEquals("Электронная почта должна содержать символ @", e.getMessage(), "Контроллер создал " +
@@ -237,7 +315,7 @@ class FilmorateApplicationTests {
 
         try {
             userController.create(user);
-            assertNotEquals(1, userController.findAll().size(), "Контроллер создал " +
+            assertNotEquals(1, users().size(), "Контроллер создал " +
                     "пользователя без логина");
         } catch (ValidationException e) {
             assertEquals("Логин не может быть пустым и содержать пробелы", e.getMessage(), "Контроллер создал " +
@@ -249,7 +327,7 @@ class FilmorateApplicationTests {
 
         try {
             userController.create(user);
-            assertNotEquals(1, userController.findAll().size(), "Контроллер создал " +
+            assertNotEquals(1, users().size(), "Контроллер создал " +
                     "пользователя с пустым логином");
         } catch (ValidationException e) {
             assertEquals("Логин не может быть пустым и содержать пробелы", e.getMessage(), "Контроллер создал " +
@@ -261,7 +339,7 @@ class FilmorateApplicationTests {
 
         try {
             userController.create(user);
-            assertNotEquals(1, userController.findAll().size(), "Контроллер создал " +
+            assertNotEquals(1, users().size(), "Контроллер создал " +
                     "пользователя с логином, содержащим пробелы");
         } catch (ValidationException e) {
             assertEquals("Логин не может быть пустым и содержать пробелы", e.getMessage(), "Контроллер создал " +
@@ -280,10 +358,10 @@ class FilmorateApplicationTests {
 
         userController.create(user);
 
-        List<User> usersArray = new ArrayList<>(userController.findAll());
+        List<User> usersArray = users();
         String userName = usersArray.getFirst().getName();
 
-        assertEquals(1, userController.findAll().size(), "Контроллер не создал " +
+        assertEquals(1, users().size(), "Контроллер не создал " +
                 "пользователя с пустым именем, а должен был");
         assertEquals("userLogin", userName, "В качестве имени должен быть использован логин, т.к. имя пустое");
     }
@@ -300,11 +378,484 @@ class FilmorateApplicationTests {
 
         try {
             userController.create(user);
-            assertNotEquals(1, filmController.findAll().size(), "Контроллер создал " +
+            assertNotEquals(1, films().size(), "Контроллер создал " +
                     "пользователя с датой рождения в будущем");
         } catch (ValidationException e) {
             assertEquals("Дата рождения не может быть в будущем", e.getMessage(), "Контроллер создал " +
                     "пользователя с датой рождения в будущем");
         }
     }
+
+    @Test
+    void shouldReturnPopularFilmsOrderedByLikes() throws IOException {
+        createUsers(3);
+        createFilms(3);
+
+        filmController.addLike(2, 1);
+        filmController.addLike(2, 2);
+        filmController.addLike(3, 1);
+        filmController.addLike(3, 2);
+        filmController.addLike(3, 3);
+        filmController.removeLike(3, 3);
+        filmController.removeLike(3, 2);
+
+        List<Film> popular = popular(10);
+        assertEquals(List.of(2L, 3L, 1L), popular.stream().map(Film::getId).toList(),
+                "Популярные фильмы должны быть отсортированы по убыванию числа лайков");
+        assertEquals(1, popular(1).size(), "Контроллер вернул больше фильмов, чем count");
+    }
+
+    @Test
+    void shouldFindCommonFriends() {
+        createUsers(5);
+
+        userController.addFriend(1, 3);
+        userController.addFriend(1, 4);
+        userController.addFriend(1, 5);
+        userController.addFriend(2, 5);
+        assertEquals(List.of(2L, 4L), userController.addFriend(2, 4).stream().map(User::getId).toList(),
+                "Контроллер должен вернуть только двух затронутых пользователей");
+        userController.removeFriend(4, 1);
+
+        assertEquals(List.of(5L), userController.findCommonFriends(1, 2).stream().map(User::getId).toList(),
+                "Контроллер неверно определил общих друзей");
+        assertEquals(List.of(3L, 5L), userController.findFriends(1).stream().map(User::getId).toList(),
+                "Контроллер неверно вернул список друзей");
+        assertTrue(userController.findCommonFriends(3, 4).isEmpty(), "У пользователей не должно быть общих друзей");
+    }
+
+    @Test
+    void shouldSuggestFriendsOfFriendsUntilTheirFriendshipsChange() {
+        createUsers(6);
+        userController.addFriend(1, 2);
+        userController.addFriend(1, 3);
+        userController.addFriend(2, 4);
+        userController.addFriend(3, 4);
+        userController.addFriend(2, 5);
+        userController.addFriend(3, 6);
+
+        assertEquals(List.of(4L, 5L, 6L), suggestions(1, 10),
+                "Первым должен идти пользователь с наибольшим числом общих друзей, затем по id");
+        assertEquals(List.of(4L, 5L), suggestions(1, 2), "Контроллер должен учитывать limit");
+        assertEquals(List.of(1L, 4L), suggestions(5, 10), "Контроллер неверно подобрал друзей друзей");
+
+        userController.addFriend(1, 4);
+        assertEquals(List.of(5L, 6L), suggestions(1, 10), "Новый друг не должен оставаться в рекомендациях");
+        userController.addFriend(2, 6);
+        assertEquals(List.of(1L, 4L, 6L), suggestions(5, 10),
+                "Новая дружба друга должна сбрасывать рекомендации из кэша");
+        userController.removeFriends(List.of(new FriendOperation(2L, 5L)));
+        assertTrue(suggestions(5, 10).isEmpty(), "У пользователя без друзей не должно быть рекомендаций");
+
+        assertThrows(ValidationException.class, () -> userController.findFriendSuggestions(1, 0),
+                "Контроллер должен отклонять limit меньше 1");
+        assertThrows(NotFoundException.class, () -> userController.findFriendSuggestions(7, 10),
+                "Контроллер должен отклонять неизвестного пользователя");
+    }
+
+    @Test
+    void shouldPageAndStreamUsersInIdOrder() throws IOException {
+        createUsers(5);
+
+        assertEquals(List.of(1L, 2L), userPage(0, 2).stream().map(User::getId).toList(),
+                "Контроллер неверно вернул первую страницу пользователей");
+        assertEquals(List.of(3L, 4L), userPage(2, 2).stream().map(User::getId).toList(),
+                "Контроллер неверно вернул страницу пользователей после курсора");
+        assertEquals(List.of(5L), userPage(4, 2).stream().map(User::getId).toList(),
+                "Контроллер неверно вернул последнюю страницу пользователей");
+        assertThrows(ValidationException.class, () -> userController.findPage(0, 0));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        userController.streamAll().getBody().writeTo(out);
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+
+        assertEquals(5, lines.length, "В потоке должна быть одна строка JSON на пользователя");
+        assertTrue(lines[0].startsWith("{\"id\":1,") && lines[4].startsWith("{\"id\":5,"),
+                "Пользователи в потоке должны идти по возрастанию id");
+    }
+
+    @Test
+    void shouldServeFilmsReactively() {
+        ReactiveFilmController reactiveController =
+                new ReactiveFilmController(new ReactiveFilmService(filmService, Schedulers.immediate()));
+        createUsers(1);
+        int films = 1_001;
+        for (int i = 1; i <= films; i++) {
+            Film film = new Film();
+            film.setName("Tittle" + i);
+            film.setDescription("Description");
+            film.setReleaseDate(LocalDate.of(2000, 1, 1));
+            film.setDuration(120L);
+            reactiveController.create(film).block();
+        }
+
+        assertEquals(1, reactiveController.addLike(films, 1).block().getUserLikes().size(),
+                "Контроллер не поставил лайк фильму");
+        assertEquals(films, reactiveController.streamPopular(1, null, null).blockFirst().getId(),
+                "Контроллер неверно определил самый популярный фильм");
+        List<Long> ids = reactiveController.findAll().map(Film::getId).collectList().block();
+        assertEquals(films, ids.size(), "В потоке должны быть фильмы со всех страниц");
+        assertEquals(films, ids.getLast(), "Фильмы в потоке должны идти по возрастанию id");
+        assertThrows(ValidationException.class, () -> reactiveController.findPage(0, 0));
+    }
+
+    @Test
+    void shouldApplyLikeAndFriendBatches() throws IOException {
+        createUsers(3);
+        createFilms(3);
+
+        List<BatchItemResult> likeResults = filmController.addLikes(List.of(
+                new LikeOperation(3L, 1L), new LikeOperation(2L, 1L), new LikeOperation(3L, 2L),
+                new LikeOperation(9L, 1L), new LikeOperation(3L, 2L)));
+        assertEquals(List.of(200, 200, 200, 404, 200), likeResults.stream().map(BatchItemResult::getStatus).toList(),
+                "Контроллер должен сообщить о результате каждой операции");
+        assertEquals("Фильм с id = 9 не найден", likeResults.get(3).getError());
+        filmController.removeLikes(List.of(new LikeOperation(3L, 1L)));
+        assertEquals(List.of(2L, 3L, 1L), popular(3).stream().map(Film::getId).toList(),
+                "Пакет лайков должен обновить популярные фильмы");
+        assertThrows(ValidationException.class, () -> filmController.addLikes(List.of(new LikeOperation(1L, null))));
+        assertThrows(ValidationException.class, () -> filmController.addLikes(List.of()));
+
+        List<BatchItemResult> friendResults = userController.addFriends(List.of(
+                new FriendOperation(1L, 2L), new FriendOperation(1L, 7L), new FriendOperation(3L, 2L)));
+        assertEquals(List.of(200, 404, 200), friendResults.stream().map(BatchItemResult::getStatus).toList(),
+                "Контроллер должен сообщить о результате каждой операции");
+        userController.removeFriends(List.of(new FriendOperation(2L, 3L)));
+        assertEquals(List.of(1L), userController.findFriends(2).stream().map(User::getId).toList(),
+                "Контроллер неверно применил пакет операций с друзьями");
+    }
+
+    @Test
+    void shouldImportAndExportRecordsInBulk() throws IOException {
+        BulkImporter bulkImporter = new BulkImporter(new ObjectMapper().findAndRegisterModules());
+        String users = """
+                {"id":1,"email":"a@yandex.ru","login":"a","birthday":"1984-11-16","friends":[2,3,99]}
+                {"id":2,"email":"b@yandex.ru","login":"b","birthday":"1984-11-16"}
+                {"id":3,"email":"c@yandex.ru","login":"c","birthday":"1984-11-16","friends":[2]}
+                """;
+        String films = """
+                id,name,description,releaseDate,duration,mpa,genres,userLikes
+                5,Five,"Description, with comma",2000-01-01,120,3,2;1,1;2
+                2,Two,Description,2000-01-01,90,,,
+                7,Seven,Description,2000-01-01,95,1,2,3;42
+                """;
+
+        assertEquals(3, bulkImporter.importRecords(stream(users), BulkImporter.Format.NDJSON, User.class,
+                user -> { }, userService.importUsers()), "Импортированы не все пользователи");
+        assertEquals(3, bulkImporter.importRecords(stream(films), BulkImporter.Format.CSV, Film.class,
+                film -> { }, filmService.importFilms()), "Импортированы не все фильмы");
+
+        assertEquals(List.of(2L, 3L), userController.findFriends(1).stream().map(User::getId).toList(),
+                "Несуществующие друзья должны быть отброшены");
+        assertEquals(List.of(1L, 3L), userController.findFriends(2).stream().map(User::getId).toList(),
+                "После импорта дружба должна быть взаимной");
+        assertEquals(List.of(5L, 7L, 2L), popular(10).stream().map(Film::getId).toList(),
+                "Индекс популярности должен учитывать импортированные фильмы");
+        assertEquals(Set.of(3L), popular(2).get(1).getUserLikes(),
+                "Лайки несуществующих пользователей должны быть отброшены");
+        assertEquals(List.of(5L, 7L), filmService.getPopular(10, 2, null).stream().map(Film::getId).toList(),
+                "Индекс жанра должен учитывать импортированные фильмы");
+        assertEquals(new Mpa(3, "PG-13"), popular(1).getFirst().getMpa(), "Рейтинг должен импортироваться по id");
+        assertEquals(List.of(3L, 3L, 3L, 6L), List.of(filmStorage.count(), filmStorage.countLikes(),
+                userStorage.count(), userStorage.countFriendLinks()), "Хранилища неверно посчитали записи");
+        assertEquals(8L, filmController.create(popular(1).getFirst()).getId(),
+                "Новый фильм должен получить id после импортированных");
+
+        ValidationException e = assertThrows(ValidationException.class, () -> bulkImporter.importRecords(
+                stream("{\"id\":4,\"email\":\"d@yandex.ru\",\"login\":\"d\"}\n{\"id\":"), BulkImporter.Format.NDJSON,
+                User.class, user -> { }, userService.importUsers()));
+        assertTrue(e.getMessage().startsWith("Не удалось прочитать запись №2"),
+                "Ошибка разбора должна указывать номер записи");
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new CsvWriter().stream(Film.class, filmService::forEachFilm).getBody().writeTo(out);
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals("id,name,description,releaseDate,duration,mpa,genres,userLikes", lines[0],
+                "Колонки CSV должны идти в порядке полей фильма");
+        assertEquals("5,Five,\"Description, with comma\",2000-01-01,120,3,1;2,1;2", lines[2],
+                "Фильм должен выгружаться в том же формате, в котором импортируется");
+
+        String farUser = "{\"id\":1000003,\"email\":\"e@yandex.ru\",\"login\":\"e\"}";
+        assertEquals(1, bulkImporter.importRecords(stream(farUser), BulkImporter.Format.NDJSON, User.class,
+                user -> { }, userService.importUsers()), "Id в пределах допустимого разрыва должен импортироваться");
+        String fartherUser = "{\"id\":2000000,\"email\":\"f@yandex.ru\",\"login\":\"f\"}";
+        assertThrows(ValidationException.class, () -> bulkImporter.importRecords(stream(fartherUser),
+                BulkImporter.Format.NDJSON, User.class, user -> { }, userService.importUsers()),
+                "Разрывы id не должны накапливаться от импорта к импорту");
+    }
+
+    @Test
+    void shouldCachePopularFilmsUntilTheirRankingChanges() throws Exception {
+        createUsers(3);
+        createFilms(3);
+        for (long userId = 1; userId <= 3; userId++) {
+            filmController.addLike(1, userId);
+        }
+        filmController.addLike(2, 1);
+        filmController.addLike(2, 2);
+
+        byte[] cached = filmController.getPopular(2, null, null).getBody();
+        assertSame(cached, filmController.getPopular(2, null, null).getBody(),
+                "Повторный запрос должен брать ответ из кэша");
+        filmController.addLike(3, 1);
+        filmController.addLike(3, 2);
+        Film notListed = filmPage(2, 1).getFirst();
+        filmController.update(notListed);
+        assertSame(cached, filmController.getPopular(2, null, null).getBody(),
+                "Изменение фильма, который не попадает в выдачу, не должно сбрасывать кэш");
+        filmController.addLike(3, 3);
+        assertEquals(List.of(1L, 3L), popular(2).stream().map(Film::getId).toList(),
+                "Фильм, обогнавший последний в выдаче, должен сбросить кэш");
+        assertEquals(0.5, meterRegistry.get("filmorate.popular.cache.hit.ratio").gauge().value(), 1e-9,
+                "Метрика должна показывать долю попаданий в кэш");
+
+        MockMvc mockMvc = MockMvcBuilders.standaloneSetup(filmController).build();
+        String etag = mockMvc.perform(get("/films/popular").param("count", "2"))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        mockMvc.perform(get("/films/popular").param("count", "2").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+        filmController.addLike(2, 3);
+        mockMvc.perform(get("/films/popular").param("count", "2").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void shouldServeListsFromCachedJsonUntilRecordsChange() throws IOException {
+        createUsers(2);
+        createFilms(2);
+
+        assertArrayEquals(filmController.findAll().getBody(), filmController.findAll().getBody(),
+                "Ответ из кэша должен совпадать с сериализованным");
+        assertEquals(2, meterRegistry.get("filmorate.json.cache.requests").tag("entity", "film")
+                .tag("result", "hit").counter().count(), "Повторный запрос должен брать фильмы из кэша");
+
+        filmController.addLike(2, 1);
+        assertEquals(Set.of(1L), filmPage(1, 1).getFirst().getUserLikes(), "Лайк должен сбросить JSON фильма");
+        filmController.addLikes(List.of(new LikeOperation(2L, 2L)));
+        assertEquals(Set.of(1L, 2L), films().getLast().getUserLikes(), "Пакет лайков должен сбросить JSON фильма");
+        assertEquals(Set.of(1L, 2L), popular(1).getFirst().getUserLikes(),
+                "Популярные фильмы должны собираться из свежего JSON");
+
+        users();
+        userController.addFriend(1, 2);
+        assertEquals(List.of(Set.of(2L), Set.of(1L)), users().stream().map(User::getFriends).toList(),
+                "Дружба должна сбросить JSON обоих пользователей");
+        User renamed = userPage(0, 1).getFirst();
+        renamed.setName("Новое имя");
+        userController.update(renamed);
+        assertEquals("Новое имя", userPage(0, 1).getFirst().getName(), "Изменение должно сбросить JSON пользователя");
+    }
+
+    @Test
+    void shouldFilterPopularFilmsByGenreAndYear() throws Exception {
+        int[][] genres = {{2, 1}, {2}, {1}};
+        int[] years = {2000, 2001, 2000};
+        createUsers(3);
+        for (int i = 1; i <= 3; i++) {
+            Film film = new Film();
+            film.setName("Tittle" + i);
+            film.setDescription("Description");
+            film.setReleaseDate(LocalDate.of(years[i - 1], 1, 1));
+            film.setDuration(120L);
+            film.setMpa(new Mpa(i, null));
+            film.setGenres(Arrays.stream(genres[i - 1]).mapToObj(id -> new Genre(id, null)).toList());
+            filmController.create(film);
+        }
+        filmController.addLike(2, 1);
+        filmController.addLike(2, 2);
+        filmController.addLike(3, 1);
+
+        Film first = popular(3).getLast();
+        assertEquals(new Mpa(1, "G"), first.getMpa(), "Рейтинг должен возвращаться с названием");
+        assertEquals(List.of(new Genre(1, "Комедия"), new Genre(2, "Драма")), first.getGenres(),
+                "Жанры должны возвращаться по возрастанию id, с названиями");
+        assertEquals(List.of(2L, 1L), popularIds(10, 2, null), "Неверная выдача по жанру");
+        assertEquals(List.of(3L, 1L), popularIds(10, null, 2000), "Неверная выдача по году");
+        assertEquals(List.of(3L), popularIds(1, 1, 2000), "Неверная выдача по жанру и году");
+        assertEquals(List.of(), popularIds(10, 6, null), "Фильмов жанра без фильмов быть не должно");
+
+        first.setGenres(List.of(new Genre(6, null)));
+        first.setReleaseDate(LocalDate.of(2001, 1, 1));
+        filmController.update(first);
+        assertEquals(List.of(2L), popularIds(10, 2, null), "Фильм должен выйти из индекса прежнего жанра");
+        assertEquals(List.of(2L, 1L), popularIds(10, null, 2001), "Фильм должен войти в индекс нового года");
+        assertEquals(List.of(1L), popularIds(10, 6, 2001), "Фильм должен войти в индекс нового жанра и года");
+        filmController.addLike(1, 1);
+        filmController.addLike(1, 2);
+        filmController.addLike(1, 3);
+        assertEquals(List.of(1L, 2L), popularIds(10, null, 2001), "Лайки должны двигать фильм в индексе года");
+
+        first.setGenres(List.of(new Genre(7, null)));
+        assertThrows(NotFoundException.class, () -> filmController.update(first), "Жанр должен существовать");
+        first.setGenres(List.of(new Genre(null, null)));
+        assertThrows(ValidationException.class, () -> filmController.update(first), "Жанр должен содержать id");
+    }
+
+    @Test
+    void shouldSearchFilmsByNameAndDescription() {
+        String[][] texts = {
+                {"Крёстный отец", "Сага о семье мафиози"},
+                {"Отец солдата", "Отец ищет сына на фронте"},
+                {"Семьянин", "Комедия: отец-одиночка и его семья"}
+        };
+        for (String[] text : texts) {
+            Film film = new Film();
+            film.setName(text[0]);
+            film.setDescription(text[1]);
+            film.setReleaseDate(LocalDate.of(1972, 3, 14));
+            film.setDuration(175L);
+            filmController.create(film);
+        }
+
+        assertEquals(List.of(2L, 1L, 3L), searchIds("ОТЕЦ "),
+                "Фильм, где слово встречается чаще и в названии, должен быть выше");
+        assertEquals(List.of(1L, 3L), searchIds("отец сем").stream().sorted().toList(),
+                "Должны найтись фильмы со всеми словами запроса");
+        assertEquals(List.of(1L), searchIds("крестн"), "Начало слова должно находить фильм, ё — как е");
+
+        Film renamed = filmPage(1, 1).getFirst();
+        renamed.setName("Семейный ужин");
+        renamed.setDescription("Без отцов");
+        filmController.update(renamed);
+        assertEquals(List.of(2L), searchIds("ужин "), "Изменение должно добавлять новые слова в индекс");
+        assertEquals(List.of(), searchIds("солдата"), "Изменение должно удалять старые слова из индекса");
+
+        assertThrows(ValidationException.class, () -> filmController.search(" ", 10));
+        assertThrows(ValidationException.class, () -> filmController.search("отец", 0));
+    }
+
+    @Test
+    void shouldRecommendFilmsLikedByUsersWithSimilarTastes() {
+        createUsers(4);
+        createFilms(5);
+        long[][] likes = {{1, 1}, {2, 1}, {3, 1}, {1, 2}, {2, 2}, {4, 2}, {1, 3}, {5, 3}};
+        for (long[] like : likes) {
+            filmController.addLike(like[0], like[1]);
+        }
+
+        assertEquals(List.of(4L, 5L), recommendationIds(1, 10),
+                "Фильм пользователя с большим числом общих лайков должен быть выше");
+        assertEquals(List.of(4L), recommendationIds(1, 1), "Рекомендаций больше, чем limit");
+        assertEquals(List.of(), recommendationIds(4, 10), "Пользователю без лайков рекомендовать нечего");
+
+        filmController.addLike(4, 1);
+        assertEquals(List.of(5L), recommendationIds(1, 10), "Лайк пользователя должен сбрасывать его рекомендации");
+        assertEquals(1.0, meterRegistry.get("filmorate.recommendations.cache.invalidations").counter().count(),
+                "Метрика должна показывать сброшенные рекомендации");
+
+        assertThrows(NotFoundException.class, () -> userController.getRecommendations(99, 10));
+        assertThrows(ValidationException.class, () -> userController.getRecommendations(1, 0));
+    }
+
+    @Test
+    void shouldRecordLikesAndFriendshipsInTheFeed() {
+        createUsers(2);
+        createFilms(2);
+        filmController.addLike(1, 1);
+        filmController.addLike(1, 1);
+        userController.addFriend(1, 2);
+        filmController.removeLike(1, 1);
+        filmController.addLikes(List.of(new LikeOperation(2L, 1L)));
+        userController.removeFriend(2, 1);
+
+        List<Event> feed = userController.getFeed(1, null, 2);
+        assertEquals(List.of("LIKE ADD 2", "LIKE REMOVE 1"), describe(feed),
+                "Лента должна начинаться с последних событий пользователя");
+        assertEquals(List.of("FRIEND ADD 2", "LIKE ADD 1"), describe(userController.getFeed(1,
+                feed.getLast().getEventId(), 10)), "Повторный лайк не должен попадать в ленту");
+        assertEquals(List.of("FRIEND REMOVE 1"), describe(userController.getFeed(2, null, 10)),
+                "Событие должно попадать в ленту пользователя, который его совершил");
+
+        assertThrows(NotFoundException.class, () -> userController.getFeed(99, null, 10));
+        assertThrows(ValidationException.class, () -> userController.getFeed(1, 0L, 10));
+        assertThrows(ValidationException.class, () -> userController.getFeed(1, null, 0));
+    }
+
+    private void createUsers(int count) {
+        for (int i = 1; i <= count; i++) {
+            userController.create(newUser(i));
+        }
+    }
+
+    private static User newUser(int i) {
+        User user = new User();
+        user.setEmail("user" + i + "@yandex.ru");
+        user.setLogin("userLogin" + i);
+        user.setBirthday(LocalDate.of(1984, 11, 16));
+        return user;
+    }
+
+    private void createFilms(int count) {
+        for (int i = 1; i <= count; i++) {
+            Film film = new Film();
+            film.setName("Tittle" + i);
+            film.setDescription("Description");
+            film.setReleaseDate(LocalDate.of(2000, 1, 1));
+            film.setDuration(120L);
+            filmController.create(film);
+        }
+    }
+
+    private static long timerCount(MeterRegistry registry, String name) {
+        Timer timer = registry.find(name).timer();
+        return timer == null ? 0 : timer.count();
+    }
+
+    private static List<String> describe(List<Event> events) {
+        return events.stream()
+                .map(event -> event.getEventType() + " " + event.getOperation() + " " + event.getEntityId())
+                .toList();
+    }
+
+    private List<Long> recommendationIds(long userId, int limit) {
+        return userController.getRecommendations(userId, limit).stream().map(Film::getId).toList();
+    }
+
+    private List<Long> searchIds(String query) {
+        return filmController.search(query, 10).stream().map(Film::getId).toList();
+    }
+
+    private List<Long> popularIds(int count, Integer genreId, Integer year) throws IOException {
+        List<Film> films = objectMapper.readValue(filmController.getPopular(count, genreId, year).getBody(),
+                new TypeReference<>() { });
+        return films.stream().map(Film::getId).toList();
+    }
+
+    private List<Long> suggestions(long id, int limit) {
+        return userController.findFriendSuggestions(id, limit).stream().map(User::getId).toList();
+    }
+
+    private List<Film> popular(int count) throws IOException {
+        return objectMapper.readValue(filmController.getPopular(count, null, null).getBody(), new TypeReference<>() { });
+    }
+
+    private List<Film> films() {
+        return read(filmController.findAll(), Film.class);
+    }
+
+    private List<Film> filmPage(long after, int limit) {
+        return read(filmController.findPage(after, limit), Film.class);
+    }
+
+    private List<User> users() {
+        return read(userController.findAll(), User.class);
+    }
+
+    private List<User> userPage(long after, int limit) {
+        return read(userController.findPage(after, limit), User.class);
+    }
+
+    private <T> List<T> read(ResponseEntity<byte[]> response, Class<T> type) {
+        try {
+            return objectMapper.readValue(response.getBody(),
+                    objectMapper.getTypeFactory().constructCollectionType(List.class, type));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static InputStream stream(String text) {
+        return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+    }
 }
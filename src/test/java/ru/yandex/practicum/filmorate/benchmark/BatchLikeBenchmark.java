@@ -0,0 +1,87 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+import ru.yandex.practicum.filmorate.model.LikeOperation;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.persistence.WriteAheadLog;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * An importer's {@code operations} likes and their removal against storages with an fsyncing journal, one
+ * call per like against one batch call: a single caller pays an fsync per like, a batch pays one in total.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class BatchLikeBenchmark {
+
+    private static final int USERS = 10_000;
+    private static final int FILMS = 1_000;
+
+    @Param({"1000"})
+    private int operations;
+
+    private Path dir;
+    private WriteAheadLog wal;
+    private InMemoryFilmStorage filmStorage;
+    private List<LikeOperation> likes;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("batch-like-benchmark");
+        wal = new WriteAheadLog(dir, true);
+        wal.open(0);
+        InMemoryUserStorage userStorage = new InMemoryUserStorage(wal);
+        filmStorage = new InMemoryFilmStorage(userStorage, wal);
+        BenchmarkData.createUsers(userStorage, USERS);
+        BenchmarkData.createFilms(filmStorage, FILMS);
+
+        Random random = new Random(42);
+        likes = new ArrayList<>(operations);
+        for (int i = 0; i < operations; i++) {
+            likes.add(new LikeOperation(random.nextLong(FILMS) + 1, random.nextLong(USERS) + 1));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        wal.close();
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path path : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    @Benchmark
+    public long oneByOne() {
+        long checksum = 0;
+        for (LikeOperation like : likes) {
+            checksum += filmStorage.addLike(like.getFilmId(), like.getUserId()).getId();
+        }
+        for (LikeOperation like : likes) {
+            checksum += filmStorage.removeLike(like.getFilmId(), like.getUserId()).getId();
+        }
+        return checksum;
+    }
+
+    @Benchmark
+    public List<BatchItemResult> batched() {
+        filmStorage.addLikes(likes);
+        return filmStorage.removeLikes(likes);
+    }
+}
@@ -0,0 +1,91 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.time.LocalDate;
+import java.util.Random;
+
+/**
+ * Synthetic films, users, likes and friendships shared by the benchmarks.
+ */
+final class BenchmarkData {
+
+    private BenchmarkData() {
+    }
+
+    static User newUser(long number) {
+        User user = new User();
+        user.setEmail("user" + number + "@yandex.ru");
+        user.setLogin("user" + number);
+        user.setName("User " + number);
+        user.setBirthday(LocalDate.of(1970, 1, 1).plusDays(number % 15000));
+        return user;
+    }
+
+    static Film newFilm(long number) {
+        Film film = new Film();
+        film.setName("Film " + number);
+        film.setDescription("Synthetic description of film number " + number);
+        film.setReleaseDate(LocalDate.of(1950, 1, 1).plusDays(number % 25000));
+        film.setDuration(60 + number % 120);
+        return film;
+    }
+
+    static void createUsers(UserStorage userStorage, int count) {
+        for (long i = 1; i <= count; i++) {
+            userStorage.create(newUser(i));
+        }
+    }
+
+    static void createFilms(FilmStorage filmStorage, int count) {
+        for (long i = 1; i <= count; i++) {
+            filmStorage.create(newFilm(i));
+        }
+    }
+
+    /**
+     * Gives every film a random number of likes up to {@code maxLikesPerFilm}, skewed towards few likes.
+     */
+    static void addLikes(FilmStorage filmStorage, Random random, int films, int users, int maxLikesPerFilm) {
+        for (long filmId = 1; filmId <= films; filmId++) {
+            int likes = (int) (maxLikesPerFilm * Math.pow(random.nextDouble(), 3));
+            for (int i = 0; i < likes; i++) {
+                filmStorage.addLike(filmId, random.nextInt(users) + 1);
+            }
+        }
+    }
+
+    static void addFriends(UserStorage userStorage, Random random, int users, int friendsPerUser) {
+        for (long userId = 1; userId <= users; userId++) {
+            for (int i = 0; i < friendsPerUser / 2; i++) {
+                long friendId = random.nextInt(users) + 1;
+                if (friendId != userId) {
+                    userStorage.addFriend(userId, friendId);
+                }
+            }
+        }
+    }
+
+    /**
+     * Links every user to {@code linksPerUser} earlier users chosen in proportion to their friend counts
+     * (preferential attachment), which gives the power-law degrees of real social graphs: a few hubs with
+     * thousands of friends and a long tail with a handful.
+     */
+    static void addPowerLawFriends(UserStorage userStorage, Random random, int users, int linksPerUser) {
+        long[] endpoints = new long[2 * users * linksPerUser];
+        int size = 0;
+        for (long userId = 2; userId <= users; userId++) {
+            for (int i = 0; i < linksPerUser; i++) {
+                long friendId = size == 0 ? 1 : endpoints[random.nextInt(size)];
+                if (friendId != userId) {
+                    userStorage.addFriend(userId, friendId);
+                    endpoints[size++] = userId;
+                    endpoints[size++] = friendId;
+                }
+            }
+        }
+    }
+}
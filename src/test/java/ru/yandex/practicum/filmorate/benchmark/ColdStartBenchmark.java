@@ -0,0 +1,103 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.persistence.FilmTable;
+import ru.yandex.practicum.filmorate.storage.persistence.MappedSnapshot;
+import ru.yandex.practicum.filmorate.storage.persistence.Mutation.FilmCreated;
+import ru.yandex.practicum.filmorate.storage.persistence.Mutation.UserCreated;
+import ru.yandex.practicum.filmorate.storage.persistence.SnapshotStore;
+import ru.yandex.practicum.filmorate.storage.persistence.UserTable;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Start from a snapshot of {@code films} films and a tenth as many users: mapping the snapshot and building
+ * only the popularity index, against decoding every row into heap objects as a full load would.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+public class ColdStartBenchmark {
+
+    private static final int MAX_LIKES_PER_FILM = 40;
+    private static final int FRIENDS_PER_USER = 10;
+
+    @Param({"1000000"})
+    private int films;
+
+    private Path dir;
+    private SnapshotStore snapshots;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("snapshot-benchmark");
+        snapshots = new SnapshotStore(dir);
+        int users = films / 10;
+        Random random = new Random(42);
+        snapshots.write(1, sink -> {
+            for (long id = 1; id <= users; id++) {
+                User user = BenchmarkData.newUser(id);
+                sink.accept(new UserCreated(id, user.getEmail(), user.getLogin(), user.getName(),
+                        user.getBirthday(), randomIds(random, users, FRIENDS_PER_USER)));
+            }
+            for (long id = 1; id <= films; id++) {
+                Film film = BenchmarkData.newFilm(id);
+                int likes = (int) (MAX_LIKES_PER_FILM * Math.pow(random.nextDouble(), 3));
+                sink.accept(new FilmCreated(id, film.getName(), film.getDescription(), film.getReleaseDate(),
+                        film.getDuration(), 0, new int[0], randomIds(random, users, likes)));
+            }
+        });
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path path : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    @Benchmark
+    public InMemoryFilmStorage mapped() throws IOException {
+        MappedSnapshot snapshot = snapshots.open(1);
+        InMemoryUserStorage userStorage = new InMemoryUserStorage();
+        InMemoryFilmStorage filmStorage = new InMemoryFilmStorage(userStorage);
+        userStorage.load(snapshot.users());
+        filmStorage.load(snapshot.films());
+        return filmStorage;
+    }
+
+    @Benchmark
+    public InMemoryFilmStorage decoded() throws IOException {
+        MappedSnapshot snapshot = snapshots.open(1);
+        InMemoryUserStorage userStorage = new InMemoryUserStorage();
+        InMemoryFilmStorage filmStorage = new InMemoryFilmStorage(userStorage);
+        UserTable users = snapshot.users();
+        for (int i = 0; i < users.size(); i++) {
+            userStorage.apply(users.row(i));
+        }
+        FilmTable films = snapshot.films();
+        for (int i = 0; i < films.size(); i++) {
+            filmStorage.apply(films.row(i));
+        }
+        return filmStorage;
+    }
+
+    private static long[] randomIds(Random random, int bound, int count) {
+        return random.longs(count, 1, bound + 1).distinct().sorted().toArray();
+    }
+}
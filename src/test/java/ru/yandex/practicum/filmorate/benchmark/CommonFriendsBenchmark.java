@@ -0,0 +1,70 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.storage.util.SortedLongs;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the former nested-loop search of common friends over {@code Set<Long>} with the
+ * intersection of sorted primitive arrays used by {@code InMemoryUserStorage}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CommonFriendsBenchmark {
+
+    @Param({"100", "1000", "5000"})
+    private int friends;
+
+    @Param({"1", "20"})
+    private int sizeRatio;
+
+    private Set<Long> userFriendSet;
+    private Set<Long> otherFriendSet;
+    private long[] userFriendIds;
+    private long[] otherFriendIds;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        userFriendSet = randomIds(random, friends);
+        otherFriendSet = randomIds(random, Math.max(1, friends / sizeRatio));
+        userFriendIds = SortedLongs.of(userFriendSet);
+        otherFriendIds = SortedLongs.of(otherFriendSet);
+
+        if (nestedLoop().size() != sortedIntersection().length) {
+            throw new IllegalStateException("Implementations disagree on common friends");
+        }
+    }
+
+    @Benchmark
+    public List<Long> nestedLoop() {
+        List<Long> common = new ArrayList<>();
+        for (Long userFriendId : userFriendSet) {
+            for (Long otherFriendId : otherFriendSet) {
+                if (userFriendId.equals(otherFriendId)) {
+                    common.add(userFriendId);
+                }
+            }
+        }
+        return common;
+    }
+
+    @Benchmark
+    public long[] sortedIntersection() {
+        return SortedLongs.intersect(userFriendIds, otherFriendIds);
+    }
+
+    private static Set<Long> randomIds(Random random, int count) {
+        Set<Long> ids = new HashSet<>();
+        while (ids.size() < count) {
+            ids.add((long) random.nextInt(count * 4) + 1);
+        }
+        return ids;
+    }
+}
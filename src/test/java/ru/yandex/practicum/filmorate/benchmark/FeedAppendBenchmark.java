@@ -0,0 +1,91 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.model.Event;
+import ru.yandex.practicum.filmorate.model.Event.EventType;
+import ru.yandex.practicum.filmorate.model.Event.Operation;
+import ru.yandex.practicum.filmorate.storage.user.EventLog;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A thread per core recording feed events of 10 000 users: a map of bounded deques of event objects behind
+ * one lock, against the lock-free rings of {@link EventLog}, with and without the spill file, and a page read
+ * of the latest events.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+@Threads(Threads.MAX)
+public class FeedAppendBenchmark {
+
+    private static final int USERS = 10_000;
+    private static final int EVENTS_PER_USER = EventLog.DEFAULT_EVENTS_PER_USER;
+
+    private final Map<Long, Deque<Event>> lockedFeeds = new HashMap<>();
+    private long lockedEventIds;
+    private EventLog eventLog;
+    private EventLog spillingLog;
+    private Path spillFile;
+
+    @Setup
+    public void setUp() throws IOException {
+        eventLog = new EventLog();
+        spillFile = Files.createTempFile("feed", ".segment");
+        spillingLog = new EventLog(EVENTS_PER_USER, spillFile);
+        for (long userId = 1; userId <= USERS; userId++) {
+            for (int i = 0; i < EVENTS_PER_USER; i++) {
+                eventLog.append(userId, EventType.LIKE, Operation.ADD, i);
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        eventLog.close();
+        spillingLog.close();
+        Files.deleteIfExists(spillFile);
+    }
+
+    @Benchmark
+    public void lockedDeques() {
+        long userId = ThreadLocalRandom.current().nextInt(USERS) + 1;
+        synchronized (lockedFeeds) {
+            Deque<Event> feed = lockedFeeds.computeIfAbsent(userId, id -> new ArrayDeque<>());
+            if (feed.size() == EVENTS_PER_USER) {
+                feed.removeLast();
+            }
+            feed.addFirst(new Event(++lockedEventIds, System.currentTimeMillis(), userId, EventType.LIKE,
+                    Operation.ADD, userId));
+        }
+    }
+
+    @Benchmark
+    public void ring() {
+        long userId = ThreadLocalRandom.current().nextInt(USERS) + 1;
+        eventLog.append(userId, EventType.LIKE, Operation.ADD, userId);
+    }
+
+    @Benchmark
+    public void ringWithSpill() {
+        long userId = ThreadLocalRandom.current().nextInt(USERS) + 1;
+        spillingLog.append(userId, EventType.LIKE, Operation.ADD, userId);
+    }
+
+    @Benchmark
+    public List<Event> readPage() {
+        return eventLog.findPage(ThreadLocalRandom.current().nextInt(USERS) + 1, Long.MAX_VALUE, 20);
+    }
+}
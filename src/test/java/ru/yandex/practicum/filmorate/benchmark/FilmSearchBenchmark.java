@@ -0,0 +1,131 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+import ru.yandex.practicum.filmorate.storage.util.TextIndex;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code GET /films/search} over 100 000 films whose names and descriptions are drawn from 20 000 words with
+ * a skewed frequency: lower-casing every film and matching the words as substrings, against the inverted
+ * index. {@code rare} and {@code common} are single words, {@code twoWords} needs both, {@code prefix} is the
+ * first three letters of a frequent word. The setup prints the heap taken by an index of the catalog.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class FilmSearchBenchmark {
+
+    private static final int FILMS = 100_000;
+    private static final int USERS = 10_000;
+    private static final int WORDS = 20_000;
+    private static final int LIMIT = 20;
+
+    @Param({"rare", "common", "twoWords", "prefix"})
+    private String query;
+
+    private FilmStorage filmStorage;
+    private String text;
+    private List<String> queryWords;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        String[] words = new String[WORDS];
+        for (int i = 0; i < WORDS; i++) {
+            StringBuilder word = new StringBuilder();
+            for (int length = 4 + random.nextInt(6); word.length() < length; ) {
+                word.append((char) ('а' + random.nextInt(32)));
+            }
+            words[i] = word.toString();
+        }
+
+        UserStorage userStorage = new InMemoryUserStorage();
+        filmStorage = new InMemoryFilmStorage(userStorage);
+        BenchmarkData.createUsers(userStorage, USERS);
+        String[][] texts = new String[FILMS][];
+        for (int i = 0; i < FILMS; i++) {
+            Film film = BenchmarkData.newFilm(i + 1);
+            film.setName(sentence(random, words, 1 + random.nextInt(4)));
+            film.setDescription(sentence(random, words, 8 + random.nextInt(16)));
+            texts[i] = new String[]{film.getName(), film.getDescription()};
+            filmStorage.create(film);
+        }
+        BenchmarkData.addLikes(filmStorage, random, FILMS, USERS, 200);
+        printIndexSize(texts);
+
+        text = switch (query) {
+            case "rare" -> words[WORDS / 2];
+            case "common" -> words[0];
+            case "twoWords" -> words[3] + " " + words[200];
+            case "prefix" -> words[10].substring(0, 3);
+            default -> throw new IllegalArgumentException(query);
+        };
+        queryWords = TextIndex.tokenize(text);
+        System.out.println("Query '" + text + "' matches " + filmStorage.search(text, FILMS).size() + " films");
+    }
+
+    @Benchmark
+    public List<Long> substringScan() {
+        return scan();
+    }
+
+    @Benchmark
+    public List<Long> index() {
+        return filmStorage.search(text, LIMIT).stream().map(Film::getId).toList();
+    }
+
+    private List<Long> scan() {
+        return filmStorage.findAll().stream()
+                .filter(film -> {
+                    String name = film.getName().toLowerCase(Locale.ROOT);
+                    String description = film.getDescription().toLowerCase(Locale.ROOT);
+                    return queryWords.stream().allMatch(word -> name.contains(word) || description.contains(word));
+                })
+                .sorted(Comparator.<Film>comparingInt(film -> film.getUserLikes().size()).reversed())
+                .limit(LIMIT)
+                .map(Film::getId)
+                .toList();
+    }
+
+    /**
+     * Words are picked with a cubic skew, so the first ones occur in most films and the last ones in a few.
+     */
+    private static String sentence(Random random, String[] words, int length) {
+        StringBuilder sentence = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            if (i > 0) {
+                sentence.append(' ');
+            }
+            sentence.append(words[(int) (words.length * Math.pow(random.nextDouble(), 3))]);
+        }
+        return sentence.toString();
+    }
+
+    private static void printIndexSize(String[][] texts) {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        System.gc();
+        long before = memory.getHeapMemoryUsage().getUsed();
+        TextIndex index = new TextIndex(3, 1);
+        for (int i = 0; i < texts.length; i++) {
+            index.put(i + 1, texts[i]);
+        }
+        System.gc();
+        long after = memory.getHeapMemoryUsage().getUsed();
+        System.out.printf("Index of %d films: %.1f MB%n", index.size(), (after - before) / 1024.0 / 1024.0);
+    }
+}
@@ -0,0 +1,52 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FilmStorageBenchmark {
+
+    private static final int USERS = 10_000;
+
+    @Param({"1000", "10000", "100000"})
+    private int films;
+
+    private FilmStorage filmStorage;
+
+    @Setup
+    public void setUp() {
+        UserStorage userStorage = new InMemoryUserStorage();
+        filmStorage = new InMemoryFilmStorage(userStorage);
+        BenchmarkData.createUsers(userStorage, USERS);
+        BenchmarkData.createFilms(filmStorage, films);
+        BenchmarkData.addLikes(filmStorage, new Random(42), films, USERS, 200);
+    }
+
+    @Benchmark
+    public List<Film> getPopular() {
+        return filmStorage.getPopular(10);
+    }
+
+    @Benchmark
+    public Film addAndRemoveLike() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long filmId = random.nextLong(films) + 1;
+        long userId = random.nextLong(USERS) + 1;
+        filmStorage.addLike(filmId, userId);
+        return filmStorage.removeLike(filmId, userId);
+    }
+}
@@ -0,0 +1,81 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code GET /films/popular?genreId=&year=} over 100 000 films with one to three of six genres and release
+ * years spread over 68 years: scanning every film, filtering and sorting the matches, against reading the
+ * first {@code count} films of the per-genre and per-year rankings.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class FilteredPopularBenchmark {
+
+    private static final int USERS = 10_000;
+    private static final int FILMS = 100_000;
+    private static final int COUNT = 10;
+    private static final int GENRE_ID = 4;
+    private static final int YEAR = 1990;
+
+    @Param({"genre", "year", "genre+year"})
+    private String filter;
+
+    private FilmStorage filmStorage;
+    private Integer genreId;
+    private Integer year;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        UserStorage userStorage = new InMemoryUserStorage();
+        filmStorage = new InMemoryFilmStorage(userStorage);
+        BenchmarkData.createUsers(userStorage, USERS);
+        for (long i = 1; i <= FILMS; i++) {
+            Film film = BenchmarkData.newFilm(i);
+            film.setMpa(new Mpa(random.nextInt(5) + 1, null));
+            film.setGenres(random.ints(random.nextInt(3) + 1, 1, 7).mapToObj(id -> new Genre(id, null)).toList());
+            filmStorage.create(film);
+        }
+        BenchmarkData.addLikes(filmStorage, random, FILMS, USERS, 200);
+
+        genreId = filter.contains("genre") ? GENRE_ID : null;
+        year = filter.contains("year") ? YEAR : null;
+        if (!scanFilterAndSort().equals(index())) {
+            throw new IllegalStateException("Implementations disagree on the popular films of " + filter);
+        }
+    }
+
+    @Benchmark
+    public List<Long> scanFilterAndSort() {
+        return filmStorage.findAll().stream()
+                .filter(film -> year == null || film.getReleaseDate().getYear() == year)
+                .filter(film -> genreId == null
+                        || film.getGenres().stream().anyMatch(genre -> genreId.equals(genre.getId())))
+                .sorted(Comparator.<Film>comparingInt(film -> film.getUserLikes().size()).reversed()
+                        .thenComparing(Film::getId))
+                .limit(COUNT)
+                .map(Film::getId)
+                .toList();
+    }
+
+    @Benchmark
+    public List<Long> index() {
+        return filmStorage.getPopular(COUNT, genreId, year).stream().map(Film::getId).toList();
+    }
+}
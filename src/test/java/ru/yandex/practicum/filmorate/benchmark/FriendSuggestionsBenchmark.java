@@ -0,0 +1,99 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FriendSuggestionsCache;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code GET /users/{id}/friends/suggestions} on a power-law graph of 100 000 users: counting mutual friends
+ * in a {@code HashMap<Long, Integer>} over the users' friend sets and sorting every candidate, against the
+ * storage walk over primitive friend arrays with a top-K heap, and against the cached ranking. {@code typical}
+ * users are picked at random; {@code hub} is the user with the most friends.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class FriendSuggestionsBenchmark {
+
+    private static final int USERS = 100_000;
+    private static final int LINKS_PER_USER = 5;
+    private static final int LIMIT = 100;
+
+    @Param({"typical", "hub"})
+    private String user;
+
+    private UserStorage userStorage;
+    private FriendSuggestionsCache cache;
+    private long[] userIds;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        userStorage = new InMemoryUserStorage();
+        BenchmarkData.createUsers(userStorage, USERS);
+        BenchmarkData.addPowerLawFriends(userStorage, random, USERS, LINKS_PER_USER);
+        cache = new FriendSuggestionsCache(userStorage, new SimpleMeterRegistry());
+
+        if ("hub".equals(user)) {
+            userIds = new long[]{userStorage.findAll().stream()
+                    .max(Comparator.comparingInt(candidate -> candidate.getFriends().size()))
+                    .orElseThrow()
+                    .getId()};
+        } else {
+            userIds = random.longs(1_000, 1, USERS + 1).toArray();
+        }
+        for (long userId : userIds) {
+            if (!Arrays.equals(boxedCountAndSort(userId), userStorage.findFriendSuggestions(userId, LIMIT))) {
+                throw new IllegalStateException("Implementations disagree on the suggestions of user " + userId);
+            }
+        }
+    }
+
+    @Benchmark
+    public long[] boxedCountAndSort() {
+        return boxedCountAndSort(nextUserId());
+    }
+
+    @Benchmark
+    public long[] primitiveWalk() {
+        return userStorage.findFriendSuggestions(nextUserId(), LIMIT);
+    }
+
+    @Benchmark
+    public long[] cached() {
+        return cache.get(nextUserId());
+    }
+
+    private long nextUserId() {
+        next = next + 1 == userIds.length ? 0 : next + 1;
+        return userIds[next];
+    }
+
+    private long[] boxedCountAndSort(long userId) {
+        Set<Long> friends = userStorage.findByIds(new long[]{userId}).getFirst().getFriends();
+        Map<Long, Integer> mutualFriends = new HashMap<>();
+        for (User friend : userStorage.findByIds(friends.stream().mapToLong(Long::longValue).toArray())) {
+            for (Long candidate : friend.getFriends()) {
+                if (candidate != userId && !friends.contains(candidate)) {
+                    mutualFriends.merge(candidate, 1, Integer::sum);
+                }
+            }
+        }
+        return mutualFriends.entrySet().stream()
+                .sorted(Map.Entry.<Long, Integer>comparingByValue().reversed()
+                        .thenComparing(Map.Entry.comparingByKey()))
+                .limit(LIMIT)
+                .mapToLong(Map.Entry::getKey)
+                .toArray();
+    }
+}
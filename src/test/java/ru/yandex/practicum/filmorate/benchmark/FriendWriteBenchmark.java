@@ -0,0 +1,64 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.util.unit.DataSize;
+import ru.yandex.practicum.filmorate.controller.NdjsonWriter;
+import ru.yandex.practicum.filmorate.controller.UserController;
+import ru.yandex.practicum.filmorate.service.FriendSuggestionsCache;
+import ru.yandex.practicum.filmorate.service.UserJsonCache;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Adds and removes a friendship through {@link UserController} and serializes both responses, as the web
+ * layer would. With the compact response the latency should not depend on the number of users.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FriendWriteBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    private int users;
+
+    @Param({"false", "true"})
+    private boolean legacyFriendResponse;
+
+    private ObjectMapper objectMapper;
+    private UserController userController;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        UserStorage userStorage = new InMemoryUserStorage();
+        BenchmarkData.createUsers(userStorage, users);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        userController = new UserController(
+                new UserService(userStorage, new FriendSuggestionsCache(userStorage, meterRegistry),
+                        new UserJsonCache(userStorage, objectMapper, meterRegistry, DataSize.ofMegabytes(64))),
+                new NdjsonWriter(objectMapper),
+                null,
+                legacyFriendResponse);
+    }
+
+    @Benchmark
+    public int addAndRemoveFriend() throws JsonProcessingException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long id = random.nextLong(users) + 1;
+        long friendId = random.nextLong(users) + 1;
+        int added = objectMapper.writeValueAsBytes(userController.addFriend(id, friendId)).length;
+        int removed = objectMapper.writeValueAsBytes(userController.removeFriend(id, friendId)).length;
+        return added + removed;
+    }
+}
@@ -0,0 +1,155 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.yandex.practicum.filmorate.FilmorateApplication;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * {@code GET /films/popular} from 16 busy clients while thousands of keep-alive connections stay open and send
+ * one request every 10 seconds each, the many mostly idle connections case. Tomcat parks an idle connection on
+ * its poller, while Netty only keeps the channel on an event loop. The heap taken per idle connection is
+ * printed after the connections are opened; compare it and the p0.99 lines.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+@Threads(16)
+public class IdleConnectionsBenchmark {
+
+    private static final int USERS = 1_000;
+    private static final int FILMS = 100;
+    private static final long IDLE_REQUEST_PERIOD_SECONDS = 10;
+    private static final String POPULAR_REQUEST = "GET /films/popular?count=10 HTTP/1.1\r\nHost: localhost\r\n\r\n";
+
+    @Param({"platform", "virtual", "reactive"})
+    private String stack;
+
+    @Param({"0", "5000"})
+    private int idleConnections;
+
+    private ConfigurableApplicationContext context;
+    private HttpClient client;
+    private URI popular;
+    private final List<SocketChannel> idle = new ArrayList<>();
+    private ScheduledExecutorService idleRequests;
+    private ScheduledFuture<?> idleRounds;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException, InterruptedException {
+        context = new SpringApplicationBuilder(FilmorateApplication.class).run(
+                "--server.port=0",
+                "--spring.main.web-application-type=" + (stack.equals("reactive") ? "reactive" : "servlet"),
+                "--spring.threads.virtual.enabled=" + stack.equals("virtual"),
+                "--logging.level.root=WARN",
+                "--logging.level.org.zalando.logbook=OFF");
+        UserStorage userStorage = context.getBean(UserStorage.class);
+        FilmStorage filmStorage = context.getBean(FilmStorage.class);
+        IntStream.rangeClosed(1, USERS).forEach(i -> userStorage.create(BenchmarkData.newUser(i)));
+        IntStream.rangeClosed(1, FILMS).forEach(i -> filmStorage.create(BenchmarkData.newFilm(i)));
+        for (long filmId = 1; filmId <= FILMS; filmId++) {
+            filmStorage.addLike(filmId, ThreadLocalRandom.current().nextInt(USERS) + 1);
+        }
+
+        int port = context.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+        popular = URI.create("http://localhost:" + port + "/films/popular?count=10");
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+        long heapBefore = usedHeap();
+        InetSocketAddress address = new InetSocketAddress("localhost", port);
+        for (int i = 0; i < idleConnections; i++) {
+            SocketChannel channel = SocketChannel.open(address);
+            channel.configureBlocking(false);
+            idle.add(channel);
+        }
+        pollIdle();
+        Thread.sleep(2_000);
+        if (idleConnections > 0) {
+            System.out.printf(" %d bytes of heap per idle connection ",
+                    (usedHeap() - heapBefore) / idleConnections);
+        }
+        idleRequests = Executors.newSingleThreadScheduledExecutor();
+        idleRounds = idleRequests.scheduleWithFixedDelay(this::pollIdle, IDLE_REQUEST_PERIOD_SECONDS,
+                IDLE_REQUEST_PERIOD_SECONDS, TimeUnit.SECONDS);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException, InterruptedException, ExecutionException {
+        if (idleRounds.isDone()) {
+            idleRounds.get();
+        }
+        idleRequests.shutdown();
+        idleRequests.awaitTermination(1, TimeUnit.MINUTES);
+        for (SocketChannel channel : idle) {
+            channel.close();
+        }
+        client.close();
+        context.close();
+    }
+
+    @Benchmark
+    public int getPopular() throws IOException, InterruptedException {
+        HttpResponse<Void> response = client.send(HttpRequest.newBuilder(popular).build(),
+                HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("Unexpected status " + response.statusCode());
+        }
+        return response.statusCode();
+    }
+
+    /**
+     * Drops whatever the previous round's responses left in each connection and sends the next request. A
+     * connection the server has closed fails the trial, since the comparison only holds while all stay open.
+     */
+    private void pollIdle() {
+        ByteBuffer drain = ByteBuffer.allocate(64 * 1024);
+        try {
+            for (int i = 0; i < idle.size(); i++) {
+                SocketChannel channel = idle.get(i);
+                int read;
+                do {
+                    read = channel.read(drain.clear());
+                } while (read > 0);
+                if (read < 0) {
+                    throw new IllegalStateException("The server closed idle connection " + i);
+                }
+                ByteBuffer request = StandardCharsets.US_ASCII.encode(POPULAR_REQUEST);
+                while (request.hasRemaining()) {
+                    channel.write(request);
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static long usedHeap() {
+        System.gc();
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+}
@@ -0,0 +1,123 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.module.blackbird.BlackbirdModule;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.util.unit.DataSize;
+import ru.yandex.practicum.filmorate.service.FilmJsonCache;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code GET /films} over 1 000 films: reading and serializing every film per request, with and without the
+ * Blackbird module, against putting the response together from the cached JSON of each film.
+ * {@code cachedAfterLike} likes or unlikes a random film before each response, so one film is read and
+ * serialized again. The heap allocated per response is printed after each iteration, as the benchmark profile
+ * runs without the GC profiler.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class JsonFragmentBenchmark {
+
+    private static final int FILMS = 1_000;
+
+    @Param({"10", "1000"})
+    private int likesPerFilm;
+
+    private FilmStorage filmStorage;
+    private ObjectMapper objectMapper;
+    private ObjectMapper blackbirdMapper;
+    private FilmJsonCache filmJsonCache;
+
+    @State(Scope.Thread)
+    public static class Allocations {
+
+        private static final com.sun.management.ThreadMXBean THREADS =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+        private long allocatedBefore;
+        private long operations;
+
+        @Setup(Level.Iteration)
+        public void start() {
+            operations = 0;
+            allocatedBefore = THREADS.getCurrentThreadAllocatedBytes();
+        }
+
+        @TearDown(Level.Iteration)
+        public void print() {
+            long allocated = THREADS.getCurrentThreadAllocatedBytes() - allocatedBefore;
+            System.out.printf(" %d bytes/op ", allocated / Math.max(operations, 1));
+        }
+    }
+
+    @Setup
+    public void setUp() throws JsonProcessingException {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        blackbirdMapper = Jackson2ObjectMapperBuilder.json().modulesToInstall(new BlackbirdModule()).build();
+
+        UserStorage userStorage = new InMemoryUserStorage();
+        filmStorage = new InMemoryFilmStorage(userStorage);
+        BenchmarkData.createUsers(userStorage, likesPerFilm);
+        BenchmarkData.createFilms(filmStorage, FILMS);
+        for (long filmId = 1; filmId <= FILMS; filmId++) {
+            for (long userId = 1; userId <= likesPerFilm; userId++) {
+                filmStorage.addLike(filmId, userId);
+            }
+        }
+        filmJsonCache = new FilmJsonCache(filmStorage, objectMapper, new SimpleMeterRegistry(),
+                DataSize.ofMegabytes(64));
+
+        if (!Arrays.equals(serialize(new Allocations()), cached(new Allocations()))
+                || !Arrays.equals(serialize(new Allocations()), serializeBlackbird(new Allocations()))) {
+            throw new IllegalStateException("Implementations disagree on the films JSON");
+        }
+    }
+
+    @Benchmark
+    public byte[] serialize(Allocations allocations) throws JsonProcessingException {
+        allocations.operations++;
+        return objectMapper.writeValueAsBytes(filmStorage.findAll());
+    }
+
+    @Benchmark
+    public byte[] serializeBlackbird(Allocations allocations) throws JsonProcessingException {
+        allocations.operations++;
+        return blackbirdMapper.writeValueAsBytes(filmStorage.findAll());
+    }
+
+    @Benchmark
+    public byte[] cached(Allocations allocations) {
+        allocations.operations++;
+        return filmJsonCache.write(filmStorage.findIds(0, Integer.MAX_VALUE));
+    }
+
+    @Benchmark
+    public byte[] cachedAfterLike(Allocations allocations) {
+        allocations.operations++;
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long filmId = random.nextInt(FILMS) + 1;
+        long userId = random.nextInt(likesPerFilm) + 1;
+        if (random.nextBoolean()) {
+            filmStorage.addLike(filmId, userId);
+        } else {
+            filmStorage.removeLike(filmId, userId);
+        }
+        filmJsonCache.changed(filmId);
+        return filmJsonCache.write(filmStorage.findIds(0, Integer.MAX_VALUE));
+    }
+}
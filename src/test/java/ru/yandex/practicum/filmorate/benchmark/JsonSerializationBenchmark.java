@@ -0,0 +1,75 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serializes films and users with an {@link ObjectMapper} configured like the one Spring MVC uses.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JsonSerializationBenchmark {
+
+    private static final int FILMS = 100;
+
+    @Param({"0", "100", "10000"})
+    private int likesPerFilm;
+
+    private ObjectMapper objectMapper;
+    private Film film;
+    private User user;
+    private List<Film> films;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+        int users = Math.max(likesPerFilm, 100);
+        UserStorage userStorage = new InMemoryUserStorage();
+        FilmStorage filmStorage = new InMemoryFilmStorage(userStorage);
+        BenchmarkData.createUsers(userStorage, users);
+        BenchmarkData.createFilms(filmStorage, FILMS);
+        for (long filmId = 1; filmId <= FILMS; filmId++) {
+            for (long userId = 1; userId <= likesPerFilm; userId++) {
+                filmStorage.addLike(filmId, userId);
+            }
+        }
+        for (long friendId = 2; friendId <= 100; friendId++) {
+            userStorage.addFriend(1L, friendId);
+        }
+
+        films = filmStorage.getPopular(FILMS);
+        film = films.getFirst();
+        user = userStorage.findUserFriends(2).iterator().next();
+    }
+
+    @Benchmark
+    public byte[] serializeFilm() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(film);
+    }
+
+    @Benchmark
+    public byte[] serializeUser() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(user);
+    }
+
+    @Benchmark
+    public byte[] serializeFilmList() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(films);
+    }
+}
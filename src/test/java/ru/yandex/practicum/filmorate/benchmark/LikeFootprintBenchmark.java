@@ -0,0 +1,72 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.storage.util.LongHashSet;
+
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Heap cost of a like graph with {@code edges} edges spread over 10 000 films, per representation:
+ * the boxed concurrent key sets likes used to live in, the primitive {@link LongHashSet} they live in now,
+ * and the sorted arrays friends live in. The result of interest is the {@code bytesPerEdge} counter; the
+ * time only tells how long building the graph took. Event counters add up over iterations, hence a single
+ * measured iteration.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 1)
+@Fork(value = 1, jvmArgs = {"-Xmx4g", "-XX:+UseParallelGC"})
+public class LikeFootprintBenchmark {
+
+    private static final int FILMS = 10_000;
+    private static final int USERS = 1_000_000;
+
+    @Param({"10000000"})
+    private int edges;
+
+    @Param({"boxed", "primitive", "sortedArray"})
+    private String representation;
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Footprint {
+        public double bytesPerEdge;
+    }
+
+    @Benchmark
+    public Object build(Footprint footprint) {
+        long before = usedHeap();
+        Object[] graph = new Object[FILMS];
+        Random random = new Random(42);
+        int likesPerFilm = edges / FILMS;
+        for (int film = 0; film < FILMS; film++) {
+            long[] userIds = random.longs(likesPerFilm, 1, USERS + 1).toArray();
+            graph[film] = switch (representation) {
+                case "boxed" -> {
+                    Set<Long> likes = ConcurrentHashMap.newKeySet();
+                    for (long userId : userIds) {
+                        likes.add(userId);
+                    }
+                    yield likes;
+                }
+                case "primitive" -> LongHashSet.of(userIds);
+                default -> random.longs(likesPerFilm, 1, USERS + 1).sorted().toArray();
+            };
+        }
+        footprint.bytesPerEdge = (double) (usedHeap() - before) / edges;
+        return graph;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,101 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.yandex.practicum.filmorate.FilmorateApplication;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Requests per second of the application over HTTP with the default logging, where Logbook writes every
+ * request and response with its body, against the {@code prod} profile: a sampled share of requests, bodies
+ * only for errors, and an asynchronous appender. Each operation creates a film, likes it and reads the
+ * popular films. Log output goes to a file rather than the benchmark console, so writing it costs real I/O.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 4, time = 10)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgs = "-Xmx1g")
+@Threads(8)
+public class LoggingOverheadBenchmark {
+
+    private static final int USERS = 1_000;
+    private static final String FILM = "{\"name\":\"Film\",\"description\":\"" + "d".repeat(150)
+            + "\",\"releaseDate\":\"2000-01-01\",\"duration\":120}";
+
+    @Param({"default", "prod"})
+    private String profile;
+
+    private Path logFile;
+    private PrintStream console;
+    private ConfigurableApplicationContext context;
+    private HttpClient client;
+    private String baseUrl;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        logFile = Files.createTempFile("logging-overhead-benchmark", ".log");
+        console = System.out;
+        System.setOut(new PrintStream(new FileOutputStream(logFile.toFile()), true));
+        context = new SpringApplicationBuilder(FilmorateApplication.class).run(
+                "--server.port=0",
+                "--spring.profiles.active=" + profile);
+        UserStorage userStorage = context.getBean(UserStorage.class);
+        FilmStorage filmStorage = context.getBean(FilmStorage.class);
+        BenchmarkData.createUsers(userStorage, USERS);
+        BenchmarkData.createFilms(filmStorage, 100);
+
+        int port = context.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+        baseUrl = "http://localhost:" + port + "/films";
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        client.close();
+        context.close();
+        System.out.close();
+        System.setOut(console);
+        System.out.println("Log written: " + Files.size(logFile) + " bytes");
+        Files.delete(logFile);
+    }
+
+    @Benchmark
+    public int createLikeAndReadPopular() throws IOException, InterruptedException {
+        HttpResponse<String> created = client.send(HttpRequest.newBuilder(URI.create(baseUrl))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(FILM))
+                .build(), HttpResponse.BodyHandlers.ofString());
+        check(created);
+        String id = created.body().substring(6, created.body().indexOf(','));
+        int userId = ThreadLocalRandom.current().nextInt(USERS) + 1;
+        check(client.send(HttpRequest.newBuilder(URI.create(baseUrl + "/" + id + "/like/" + userId))
+                .PUT(HttpRequest.BodyPublishers.noBody())
+                .build(), HttpResponse.BodyHandlers.discarding()));
+        return check(client.send(HttpRequest.newBuilder(URI.create(baseUrl + "/popular?count=10")).build(),
+                HttpResponse.BodyHandlers.discarding()));
+    }
+
+    private static int check(HttpResponse<?> response) {
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("Unexpected status " + response.statusCode() + " for "
+                    + response.request());
+        }
+        return response.statusCode();
+    }
+}
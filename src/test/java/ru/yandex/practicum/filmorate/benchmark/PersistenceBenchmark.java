@@ -0,0 +1,149 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.persistence.MutationJournal;
+import ru.yandex.practicum.filmorate.storage.persistence.WriteAheadLog;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Cost of durability: like writes against storages without a journal, with a journal that only writes
+ * and with a journal that fsyncs, from one and from several threads. Several threads share fsyncs through
+ * group commit, so their throughput should grow well beyond the single-threaded one.
+ */
+public class PersistenceBenchmark {
+
+    private static final int USERS = 10_000;
+    private static final int FILMS = 1_000;
+
+    @State(Scope.Benchmark)
+    public static class Storages {
+
+        @Param({"none", "write", "fsync"})
+        private String journal;
+
+        private Path dir;
+        private WriteAheadLog wal;
+        private InMemoryFilmStorage filmStorage;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            MutationJournal mutationJournal = MutationJournal.DISABLED;
+            if (!journal.equals("none")) {
+                dir = Files.createTempDirectory("wal-benchmark");
+                wal = new WriteAheadLog(dir, journal.equals("fsync"));
+                wal.open(0);
+                mutationJournal = wal;
+            }
+            InMemoryUserStorage userStorage = new InMemoryUserStorage(mutationJournal);
+            filmStorage = new InMemoryFilmStorage(userStorage, mutationJournal);
+            BenchmarkData.createUsers(userStorage, USERS);
+            BenchmarkData.createFilms(filmStorage, FILMS);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            if (wal != null) {
+                wal.close();
+                deleteRecursively(dir);
+            }
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Recovery {
+
+        @Param({"100000"})
+        private int likes;
+
+        private Path dir;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            dir = Files.createTempDirectory("wal-recovery-benchmark");
+            WriteAheadLog wal = new WriteAheadLog(dir, false);
+            wal.open(0);
+            InMemoryUserStorage userStorage = new InMemoryUserStorage(wal);
+            InMemoryFilmStorage filmStorage = new InMemoryFilmStorage(userStorage, wal);
+            BenchmarkData.createUsers(userStorage, USERS);
+            BenchmarkData.createFilms(filmStorage, FILMS);
+            BenchmarkData.addLikes(filmStorage, new Random(42), FILMS, USERS, 2 * likes / FILMS);
+            wal.close();
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws IOException {
+            deleteRecursively(dir);
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @Warmup(iterations = 2, time = 2)
+    @Measurement(iterations = 3, time = 2)
+    @Fork(1)
+    @Threads(1)
+    public long likeSingleThread(Storages storages) {
+        return like(storages);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @Warmup(iterations = 2, time = 2)
+    @Measurement(iterations = 3, time = 2)
+    @Fork(1)
+    @Threads(8)
+    public long likeEightThreads(Storages storages) {
+        return like(storages);
+    }
+
+    /**
+     * Replays the whole log into fresh storages, as a start without a snapshot would.
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 2)
+    @Measurement(iterations = 5)
+    @Fork(1)
+    public InMemoryFilmStorage recover(Recovery recovery) throws IOException {
+        WriteAheadLog wal = new WriteAheadLog(recovery.dir, false);
+        InMemoryUserStorage userStorage = new InMemoryUserStorage(wal);
+        InMemoryFilmStorage filmStorage = new InMemoryFilmStorage(userStorage, wal);
+        long lastSegment = wal.replay(0, mutation -> {
+            userStorage.apply(mutation);
+            filmStorage.apply(mutation);
+        });
+        if (lastSegment < 0) {
+            throw new IllegalStateException("Nothing to replay");
+        }
+        return filmStorage;
+    }
+
+    private static long like(Storages storages) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long filmId = random.nextLong(FILMS) + 1;
+        long userId = random.nextLong(USERS) + 1;
+        storages.filmStorage.addLike(filmId, userId);
+        return storages.filmStorage.removeLike(filmId, userId).getId();
+    }
+
+    private static void deleteRecursively(Path dir) throws IOException {
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path path : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+}
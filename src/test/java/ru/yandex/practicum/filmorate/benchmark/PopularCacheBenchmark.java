@@ -0,0 +1,77 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.util.unit.DataSize;
+import ru.yandex.practicum.filmorate.service.FilmJsonCache;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.PopularFilmsCache;
+import ru.yandex.practicum.filmorate.service.RecommendationsCache;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The work behind {@code GET /films/popular?count=100}: reading and serializing the top films on every
+ * request versus serving the cached bytes. {@code readWithLikes} mixes in a like of a random film per read,
+ * most of which fall outside the top and leave the cache entry in place.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PopularCacheBenchmark {
+
+    private static final int FILMS = 10_000;
+    private static final int USERS = 1_000;
+    private static final int COUNT = 100;
+
+    private ObjectMapper objectMapper;
+    private FilmStorage filmStorage;
+    private FilmService filmService;
+
+    @Setup
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        UserStorage userStorage = new InMemoryUserStorage();
+        filmStorage = new InMemoryFilmStorage(userStorage);
+        BenchmarkData.createUsers(userStorage, USERS);
+        BenchmarkData.createFilms(filmStorage, FILMS);
+        BenchmarkData.addLikes(filmStorage, new Random(42), FILMS, USERS, 100);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        FilmJsonCache filmJsonCache = new FilmJsonCache(filmStorage, objectMapper, meterRegistry,
+                DataSize.ofMegabytes(64));
+        filmService = new FilmService(filmStorage, new PopularFilmsCache(filmStorage, filmJsonCache, meterRegistry),
+                new RecommendationsCache(filmStorage, meterRegistry), filmJsonCache);
+    }
+
+    @Benchmark
+    public byte[] serializeEveryTime() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(filmStorage.getPopular(COUNT));
+    }
+
+    @Benchmark
+    public byte[] cached() {
+        return filmService.getPopularJson(COUNT, null, null).json();
+    }
+
+    @Benchmark
+    public byte[] readWithLikes() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long filmId = random.nextInt(FILMS) + 1;
+        long userId = random.nextInt(USERS) + 1;
+        filmService.addLike(filmId, userId);
+        filmService.removeLike(filmId, userId);
+        return filmService.getPopularJson(COUNT, null, null).json();
+    }
+}
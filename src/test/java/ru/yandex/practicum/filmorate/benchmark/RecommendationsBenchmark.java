@@ -0,0 +1,117 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.service.RecommendationsCache;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code GET /users/{id}/recommendations} over 100 000 films and 10 000 users with about 5 million likes:
+ * intersecting the likes of the user with the boxed like sets of every other user, against walking the
+ * likers of the user's films in the storage, and against the cached list. {@code typical} is the user with
+ * the median number of likes, {@code heavy} the one with the most, whose likers are counted with fork-join
+ * when the machine has spare cores.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = "-Xmx2g")
+public class RecommendationsBenchmark {
+
+    private static final int USERS = 10_000;
+    private static final int FILMS = 100_000;
+    private static final int NEIGHBOURS = 50;
+    private static final int LIMIT = 10;
+    private static final Comparator<Map.Entry<Long, Integer>> BY_COUNT =
+            Map.Entry.<Long, Integer>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey());
+
+    @Param({"typical", "heavy"})
+    private String user;
+
+    private FilmStorage filmStorage;
+    private RecommendationsCache cache;
+    private Map<Long, Set<Long>> likedFilms;
+    private long userId;
+
+    @Setup
+    public void setUp() {
+        UserStorage userStorage = new InMemoryUserStorage();
+        filmStorage = new InMemoryFilmStorage(userStorage);
+        BenchmarkData.createUsers(userStorage, USERS);
+        BenchmarkData.createFilms(filmStorage, FILMS);
+        BenchmarkData.addLikes(filmStorage, new Random(42), FILMS, USERS, 200);
+        cache = new RecommendationsCache(filmStorage, new SimpleMeterRegistry());
+
+        likedFilms = new HashMap<>();
+        for (Film film : filmStorage.findAll()) {
+            for (long likerId : film.getUserLikes()) {
+                likedFilms.computeIfAbsent(likerId, id -> new HashSet<>()).add(film.getId());
+            }
+        }
+        List<Long> byLikes = likedFilms.keySet().stream()
+                .sorted(Comparator.comparingInt(id -> likedFilms.get(id).size()))
+                .toList();
+        userId = user.equals("heavy") ? byLikes.getLast() : byLikes.get(byLikes.size() / 2);
+        System.out.println("User " + userId + " liked " + likedFilms.get(userId).size() + " films");
+
+        if (!intersectEveryUser().equals(reverseIndex())) {
+            throw new IllegalStateException("Implementations disagree on the recommendations of " + user);
+        }
+    }
+
+    @Benchmark
+    public List<Long> intersectEveryUser() {
+        Set<Long> userFilms = likedFilms.get(userId);
+        Map<Long, Integer> commonLikes = new HashMap<>();
+        for (Map.Entry<Long, Set<Long>> other : likedFilms.entrySet()) {
+            if (other.getKey() == userId) {
+                continue;
+            }
+            int common = 0;
+            for (Long filmId : userFilms) {
+                if (other.getValue().contains(filmId)) {
+                    common++;
+                }
+            }
+            if (common > 0) {
+                commonLikes.put(other.getKey(), common);
+            }
+        }
+
+        Map<Long, Integer> scores = new HashMap<>();
+        commonLikes.entrySet().stream()
+                .sorted(BY_COUNT)
+                .limit(NEIGHBOURS)
+                .forEach(neighbour -> {
+                    for (Long filmId : likedFilms.get(neighbour.getKey())) {
+                        if (!userFilms.contains(filmId)) {
+                            scores.merge(filmId, neighbour.getValue(), Integer::sum);
+                        }
+                    }
+                });
+        return scores.entrySet().stream()
+                .sorted(BY_COUNT)
+                .limit(LIMIT)
+                .map(Map.Entry::getKey)
+                .toList();
+    }
+
+    @Benchmark
+    public List<Long> reverseIndex() {
+        return Arrays.stream(filmStorage.findRecommendations(userId, LIMIT)).boxed().toList();
+    }
+
+    @Benchmark
+    public long[] cached() {
+        return cache.get(userId);
+    }
+}
@@ -0,0 +1,50 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures batches of creates into storages already holding {@code size} records. Storages are rebuilt
+ * before every iteration, so they do not keep growing over the run.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, batchSize = StorageCreateBenchmark.BATCH)
+@Measurement(iterations = 10, batchSize = StorageCreateBenchmark.BATCH)
+@Fork(1)
+public class StorageCreateBenchmark {
+
+    static final int BATCH = 10_000;
+
+    @Param({"1000", "10000", "100000"})
+    private int size;
+
+    private UserStorage userStorage;
+    private FilmStorage filmStorage;
+    private long created;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        userStorage = new InMemoryUserStorage();
+        filmStorage = new InMemoryFilmStorage(userStorage);
+        BenchmarkData.createUsers(userStorage, size);
+        BenchmarkData.createFilms(filmStorage, size);
+        created = size;
+    }
+
+    @Benchmark
+    public Object createUser() {
+        return userStorage.create(BenchmarkData.newUser(++created));
+    }
+
+    @Benchmark
+    public Object createFilm() {
+        return filmStorage.create(BenchmarkData.newFilm(++created));
+    }
+}
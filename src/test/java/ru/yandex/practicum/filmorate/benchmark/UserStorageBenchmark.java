@@ -0,0 +1,49 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.util.Collection;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UserStorageBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    private int users;
+
+    @Param({"50"})
+    private int friendsPerUser;
+
+    private UserStorage userStorage;
+
+    @Setup
+    public void setUp() {
+        userStorage = new InMemoryUserStorage();
+        BenchmarkData.createUsers(userStorage, users);
+        BenchmarkData.addFriends(userStorage, new Random(42), users, friendsPerUser);
+    }
+
+    @Benchmark
+    public Collection<User> findUserFriends() {
+        return userStorage.findUserFriends(randomUserId());
+    }
+
+    @Benchmark
+    public Collection<User> findCommonFriends() {
+        return userStorage.findCommonFriends(randomUserId(), randomUserId());
+    }
+
+    private long randomUserId() {
+        return ThreadLocalRandom.current().nextLong(users) + 1;
+    }
+}
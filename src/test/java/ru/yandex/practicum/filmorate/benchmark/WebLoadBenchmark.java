@@ -0,0 +1,103 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.yandex.practicum.filmorate.FilmorateApplication;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Like and unlike over HTTP from 800 concurrent clients against the application with the write-ahead log
+ * fsyncing every write, the blocking I/O case: request threads wait for their fsync in
+ * {@code awaitDurable}. Platform threads are capped by the 200-thread Tomcat pool, so the remaining clients
+ * queue; virtual threads all wait at once and share larger group commits. The reactive stack serves every
+ * connection from a few Netty event loops and waits for storage on the storage scheduler. Compare the p0.99
+ * lines.
+ * <p>
+ * The JVM runs with {@code -Djdk.tracePinnedThreads=short}, so a virtual thread pinned while blocking
+ * would print its stack to the benchmark output.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(value = 1, jvmArgs = {"-Xmx2g", "-Djdk.tracePinnedThreads=short"})
+@Threads(800)
+public class WebLoadBenchmark {
+
+    private static final int USERS = 1_000;
+    private static final int FILMS = 100;
+
+    @Param({"platform", "virtual", "reactive"})
+    private String stack;
+
+    private Path dir;
+    private ConfigurableApplicationContext context;
+    private HttpClient client;
+    private String baseUrl;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("web-load-benchmark");
+        context = new SpringApplicationBuilder(FilmorateApplication.class).run(
+                "--server.port=0",
+                "--spring.main.web-application-type=" + (stack.equals("reactive") ? "reactive" : "servlet"),
+                "--spring.threads.virtual.enabled=" + stack.equals("virtual"),
+                "--filmorate.persistence.enabled=true",
+                "--filmorate.persistence.fsync=true",
+                "--filmorate.persistence.dir=" + dir,
+                "--logging.level.root=WARN",
+                "--logging.level.org.zalando.logbook=OFF");
+        UserStorage userStorage = context.getBean(UserStorage.class);
+        FilmStorage filmStorage = context.getBean(FilmStorage.class);
+        IntStream.rangeClosed(1, USERS).parallel().forEach(i -> userStorage.create(BenchmarkData.newUser(i)));
+        IntStream.rangeClosed(1, FILMS).parallel().forEach(i -> filmStorage.create(BenchmarkData.newFilm(i)));
+
+        int port = context.getEnvironment().getRequiredProperty("local.server.port", Integer.class);
+        baseUrl = "http://localhost:" + port + "/films/";
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        client.close();
+        context.close();
+        try (Stream<Path> files = Files.walk(dir)) {
+            for (Path path : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+
+    @Benchmark
+    public int likeAndUnlike() throws IOException, InterruptedException {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        URI like = URI.create(baseUrl + (random.nextInt(FILMS) + 1) + "/like/" + (random.nextInt(USERS) + 1));
+        int liked = send(HttpRequest.newBuilder(like).PUT(HttpRequest.BodyPublishers.noBody()).build());
+        int unliked = send(HttpRequest.newBuilder(like).DELETE().build());
+        return liked + unliked;
+    }
+
+    private int send(HttpRequest request) throws IOException, InterruptedException {
+        HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("Unexpected status " + response.statusCode() + " for " + request);
+        }
+        return response.statusCode();
+    }
+}
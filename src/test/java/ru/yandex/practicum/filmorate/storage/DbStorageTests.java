@@ -0,0 +1,241 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ActiveProfiles;
+import ru.yandex.practicum.filmorate.exceptions.NotFoundException;
+import ru.yandex.practicum.filmorate.model.BatchItemResult;
+import ru.yandex.practicum.filmorate.model.Event;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FriendOperation;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.LikeOperation;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.FilmDbStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserDbStorage;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@JdbcTest
+@ActiveProfiles("db")
+@Import({FilmDbStorage.class, UserDbStorage.class})
+class DbStorageTests {
+
+    @Autowired
+    private FilmDbStorage filmStorage;
+
+    @Autowired
+    private UserDbStorage userStorage;
+
+    @Test
+    void shouldCreateAndUpdateUser() {
+        User user = userStorage.create(newUser(1));
+        assertNotNull(user.getId(), "Хранилище не присвоило пользователю id");
+        assertEquals("user1", user.getName(), "В качестве имени должен быть использован логин, т.к. имя пустое");
+
+        User update = newUser(1);
+        update.setId(user.getId());
+        update.setName("New name");
+        assertEquals("New name", userStorage.update(update).getName(), "Хранилище не обновило пользователя");
+
+        User other = userStorage.create(newUser(2));
+        assertEquals(List.of(other.getId(), user.getId()),
+                idsOf(userStorage.findByIds(new long[]{other.getId(), other.getId() + 100, user.getId()})),
+                "Хранилище должно вернуть пользователей в порядке запрошенных id без неизвестных");
+        assertArrayEquals(new long[]{other.getId()}, userStorage.findIds(user.getId(), 10),
+                "Хранилище должно вернуть id страницы после курсора");
+
+        update.setId(user.getId() + 100);
+        assertThrows(NotFoundException.class, () -> userStorage.update(update));
+    }
+
+    @Test
+    void shouldAddRemoveAndIntersectFriends() {
+        long[] ids = new long[4];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = userStorage.create(newUser(i)).getId();
+        }
+
+        userStorage.addFriend(ids[0], ids[2]);
+        userStorage.addFriend(ids[0], ids[3]);
+        userStorage.addFriend(ids[1], ids[3]);
+        userStorage.addFriend(ids[1], ids[2]);
+        userStorage.removeFriend(ids[2], ids[1]);
+
+        List<User> friends = List.copyOf(userStorage.findUserFriends(ids[0]));
+        assertEquals(List.of(ids[2], ids[3]), idsOf(friends), "Хранилище неверно вернуло друзей пользователя");
+        assertEquals(Set.of(ids[0], ids[1]), friends.get(1).getFriends(), "Дружба должна быть взаимной");
+        assertEquals(List.of(ids[3]), idsOf(userStorage.findCommonFriends(ids[0], ids[1])),
+                "Хранилище неверно определило общих друзей");
+        assertArrayEquals(new long[]{ids[1]}, userStorage.findFriendSuggestions(ids[0], 10),
+                "Хранилище неверно подобрало друзей друзей");
+        assertArrayEquals(new long[]{ids[3]}, userStorage.findFriendSuggestions(ids[2], 10),
+                "Хранилище неверно подобрало друзей друзей");
+    }
+
+    @Test
+    void shouldReturnPopularFilmsOrderedByLikes() {
+        long[] userIds = new long[3];
+        long[] filmIds = new long[3];
+        for (int i = 0; i < 3; i++) {
+            userIds[i] = userStorage.create(newUser(i)).getId();
+            Film film = newFilm(i);
+            film.setMpa(new Mpa(i + 1, null));
+            film.setGenres(i == 0 ? List.of() : List.of(new Genre(3, null), new Genre(i, null), new Genre(3, null)));
+            filmIds[i] = filmStorage.create(film).getId();
+        }
+
+        filmStorage.addLike(filmIds[1], userIds[0]);
+        filmStorage.addLike(filmIds[1], userIds[1]);
+        filmStorage.addLike(filmIds[2], userIds[0]);
+        filmStorage.addLike(filmIds[2], userIds[2]);
+        Film unliked = filmStorage.removeLike(filmIds[2], userIds[2]);
+
+        assertEquals(Set.of(userIds[0]), unliked.getUserLikes(), "Хранилище не удалило лайк");
+        assertEquals(List.of(filmIds[1], filmIds[2], filmIds[0]),
+                filmStorage.getPopular(10).stream().map(Film::getId).toList(),
+                "Популярные фильмы должны быть отсортированы по убыванию числа лайков");
+        assertEquals(1, filmStorage.getPopular(1).size(), "Хранилище вернуло больше фильмов, чем count");
+        assertEquals(List.of(filmIds[1], filmIds[2]),
+                filmStorage.getPopular(10, 3, null).stream().map(Film::getId).toList(),
+                "Хранилище неверно отобрало популярные фильмы жанра");
+        Film top = filmStorage.getPopular(1, 2, newFilm(2).getReleaseDate().getYear()).getFirst();
+        assertEquals(new Mpa(3, "PG-13"), top.getMpa(), "Хранилище не вернуло рейтинг фильма");
+        assertEquals(List.of(new Genre(2, "Драма"), new Genre(3, "Мультфильм")), top.getGenres(),
+                "Хранилище не вернуло жанры фильма");
+        assertEquals(List.of(filmIds[1], filmIds[2]),
+                filmStorage.search("FILM", 10).stream().map(Film::getId).limit(2).toList(),
+                "Поиск в хранилище должен ставить выше фильмы с большим числом лайков");
+        assertEquals(List.of(filmIds[0]), filmStorage.search("film 0", 10).stream().map(Film::getId).toList(),
+                "Поиск в хранилище должен требовать все слова запроса");
+        assertArrayEquals(new long[]{filmIds[2]}, filmStorage.findRecommendations(userIds[1], 10),
+                "Хранилище должно рекомендовать фильмы пользователей с общими лайками");
+        assertArrayEquals(new long[0], filmStorage.findRecommendations(userIds[2], 10),
+                "Пользователю без лайков рекомендовать нечего");
+        Film unknownGenre = newFilm(3);
+        unknownGenre.setGenres(List.of(new Genre(99, null)));
+        assertThrows(NotFoundException.class, () -> filmStorage.create(unknownGenre));
+        assertThrows(NotFoundException.class, () -> filmStorage.addLike(filmIds[0], userIds[2] + 100));
+    }
+
+    @Test
+    void shouldApplyBatchesAndReportMissingEntitiesPerItem() {
+        long[] userIds = new long[3];
+        for (int i = 0; i < userIds.length; i++) {
+            userIds[i] = userStorage.create(newUser(i)).getId();
+        }
+        long filmId = filmStorage.create(newFilm(0)).getId();
+        long missingId = userIds[2] + 100;
+
+        List<BatchItemResult> likeResults = filmStorage.addLikes(List.of(
+                new LikeOperation(filmId, userIds[0]),
+                new LikeOperation(filmId + 100, userIds[0]),
+                new LikeOperation(filmId, userIds[1]),
+                new LikeOperation(filmId, missingId)));
+        assertEquals(List.of(200, 404, 200, 404), likeResults.stream().map(BatchItemResult::getStatus).toList(),
+                "Хранилище должно применить операции с существующими фильмами и пользователями");
+        assertEquals("Пользователь с id = " + missingId + " не найден", likeResults.get(3).getError());
+        filmStorage.removeLikes(List.of(new LikeOperation(filmId, userIds[1])));
+        assertEquals(Set.of(userIds[0]), filmStorage.getPopular(1).getFirst().getUserLikes(),
+                "Хранилище неверно применило пакет лайков");
+
+        List<BatchItemResult> friendResults = userStorage.addFriends(List.of(
+                new FriendOperation(userIds[0], userIds[1]),
+                new FriendOperation(userIds[0], missingId),
+                new FriendOperation(userIds[2], userIds[1])));
+        assertEquals(List.of(200, 404, 200), friendResults.stream().map(BatchItemResult::getStatus).toList(),
+                "Хранилище должно применить операции с существующими пользователями");
+        userStorage.removeFriends(List.of(new FriendOperation(userIds[1], userIds[2])));
+        assertEquals(List.of(userIds[0]), idsOf(userStorage.findUserFriends(userIds[1])),
+                "Хранилище неверно применило пакет операций с друзьями");
+
+        userStorage.addFriend(userIds[1], userIds[0]);
+        filmStorage.addLike(filmId, userIds[0]);
+        filmStorage.removeLike(filmId, userIds[0]);
+        assertEquals(List.of("FRIEND REMOVE " + userIds[2], "LIKE REMOVE " + filmId, "LIKE ADD " + filmId),
+                describe(userStorage.findFeed(userIds[1], Long.MAX_VALUE, 10)),
+                "Лента должна содержать только изменения, от новых к старым");
+        List<Event> feed = userStorage.findFeed(userIds[0], Long.MAX_VALUE, 1);
+        assertEquals(List.of("LIKE REMOVE " + filmId), describe(feed), "Хранилище вернуло больше событий, чем limit");
+        assertEquals(List.of("FRIEND ADD " + userIds[1], "LIKE ADD " + filmId),
+                describe(userStorage.findFeed(userIds[0], feed.getFirst().getEventId(), 10)),
+                "Страница ленты должна начинаться с события старше before");
+    }
+
+    @Test
+    @DirtiesContext(methodMode = DirtiesContext.MethodMode.AFTER_METHOD)
+    void shouldImportRecordsKeepingTheirIds() {
+        long firstId = userStorage.create(newUser(0)).getId();
+        List<User> users = new ArrayList<>();
+        for (int i = 1; i <= 3; i++) {
+            User user = newUser(i);
+            user.setId(firstId + 10 * i);
+            users.add(user);
+        }
+        users.get(0).setFriends(Set.of(firstId + 20, firstId + 30, firstId + 999));
+        BulkImport<User> userImport = userStorage.importUsers();
+        userImport.add(users);
+        userImport.finish();
+
+        assertEquals(List.of(firstId + 20, firstId + 30), idsOf(userStorage.findUserFriends(firstId + 10)),
+                "Несуществующие друзья должны быть отброшены");
+        assertEquals(List.of(firstId + 10), idsOf(userStorage.findUserFriends(firstId + 30)),
+                "После импорта дружба должна быть взаимной");
+        assertEquals(firstId + 31, userStorage.create(newUser(4)).getId(),
+                "Новый пользователь должен получить id после импортированных");
+
+        long firstFilmId = filmStorage.create(newFilm(0)).getId();
+        Film film = newFilm(1);
+        film.setId(firstFilmId + 10);
+        film.setUserLikes(Set.of(firstId + 10, firstId + 999));
+        BulkImport<Film> filmImport = filmStorage.importFilms();
+        filmImport.add(List.of(film, newFilm(2)));
+        filmImport.finish();
+
+        assertEquals(Set.of(firstId + 10), filmStorage.findByIds(new long[]{firstFilmId + 10}).getFirst().getUserLikes(),
+                "Лайки несуществующих пользователей должны быть отброшены");
+        assertEquals(1, filmStorage.findByIds(new long[]{firstFilmId + 11}).size(),
+                "Фильм без id должен получить новый id");
+        assertEquals(firstFilmId + 12, filmStorage.create(newFilm(3)).getId(),
+                "Новый фильм должен получить id после импортированных");
+        assertEquals(List.of(4L, 1L, 5L, 4L), List.of(filmStorage.count(), filmStorage.countLikes(),
+                userStorage.count(), userStorage.countFriendLinks()), "Хранилище неверно посчитало записи");
+    }
+
+    private static List<String> describe(List<Event> events) {
+        return events.stream()
+                .map(event -> event.getEventType() + " " + event.getOperation() + " " + event.getEntityId())
+                .toList();
+    }
+
+    private static List<Long> idsOf(Collection<User> users) {
+        return users.stream().map(User::getId).toList();
+    }
+
+    private static User newUser(int number) {
+        User user = new User();
+        user.setEmail("user" + number + "@yandex.ru");
+        user.setLogin("user" + number);
+        user.setBirthday(LocalDate.of(1990, 1, 1));
+        return user;
+    }
+
+    private static Film newFilm(int number) {
+        Film film = new Film();
+        film.setName("Film " + number);
+        film.setDescription("Description");
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setDuration(100L);
+        return film;
+    }
+}
@@ -0,0 +1,215 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.yandex.practicum.filmorate.model.Event;
+import ru.yandex.practicum.filmorate.model.Event.EventType;
+import ru.yandex.practicum.filmorate.model.Event.Operation;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.user.EventLog;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+import ru.yandex.practicum.filmorate.storage.user.UserStorage;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InMemoryStorageConcurrencyTests {
+
+    private static final int THREADS = 8;
+    private static final int USERS = 400;
+    private static final int FILMS = 20;
+
+    private final UserStorage userStorage = new InMemoryUserStorage();
+    private final FilmStorage filmStorage = new InMemoryFilmStorage(userStorage);
+
+    @Test
+    void shouldNotLoseLikesUnderConcurrentWrites() throws Exception {
+        createUsers();
+        createFilms();
+
+        runConcurrently(thread -> {
+            for (long userId = thread + 1; userId <= USERS; userId += THREADS) {
+                for (long filmId = 1; filmId <= FILMS; filmId++) {
+                    filmStorage.addLike(filmId, userId);
+                    filmStorage.removeLike(filmId, userId);
+                    if (userId % filmId == 0) {
+                        filmStorage.addLike(filmId, userId);
+                    }
+                }
+            }
+        });
+
+        List<Film> popular = filmStorage.getPopular(FILMS);
+        assertEquals(FILMS, popular.size(), "Индекс популярности потерял фильмы");
+        for (int i = 0; i < popular.size(); i++) {
+            Film film = popular.get(i);
+            assertEquals(USERS / film.getId(), film.getUserLikes().size(),
+                    "Потеряны лайки фильма с id = " + film.getId());
+            if (i > 0) {
+                assertTrue(popular.get(i - 1).getUserLikes().size() >= film.getUserLikes().size(),
+                        "Индекс популярности не соответствует числу лайков");
+            }
+        }
+    }
+
+    @Test
+    void shouldKeepFriendshipsSymmetricUnderConcurrentWrites() throws Exception {
+        createUsers();
+
+        runConcurrently(thread -> {
+            for (long id = 1; id <= USERS; id++) {
+                for (long friendId = id + 1; friendId <= USERS; friendId++) {
+                    if ((id + friendId) % THREADS != thread) {
+                        continue;
+                    }
+                    userStorage.addFriend(id, friendId);
+                    if (id % 2 == 1 && friendId % 2 == 1) {
+                        userStorage.removeFriend(friendId, id);
+                    }
+                }
+            }
+        });
+
+        for (long id = 1; id <= USERS; id++) {
+            int expectedFriends = id % 2 == 0 ? USERS - 1 : USERS / 2;
+            assertEquals(expectedFriends, userStorage.findUserFriends(id).size(),
+                    "Потеряны друзья пользователя с id = " + id);
+            for (User friend : userStorage.findUserFriends(id)) {
+                assertTrue(friend.getFriends().contains(id), "Дружба пользователей " + id + " и "
+                        + friend.getId() + " несимметрична");
+            }
+        }
+    }
+
+    @Test
+    void shouldNotLoseFeedEventsUnderConcurrentAppends(@TempDir Path dir) throws Exception {
+        int eventsPerThread = 1000;
+        try (EventLog feed = new EventLog(8, dir.resolve("feed.segment"))) {
+            runConcurrently(thread -> {
+                for (long i = 1; i <= eventsPerThread; i++) {
+                    feed.append(thread % 2 + 1, EventType.LIKE, Operation.ADD, thread * eventsPerThread + i);
+                }
+            });
+
+            for (long userId = 1; userId <= 2; userId++) {
+                List<Event> events = feed.findPage(userId, Long.MAX_VALUE, THREADS * eventsPerThread);
+                assertEquals(THREADS / 2 * eventsPerThread, events.size(),
+                        "Потеряны события пользователя с id = " + userId);
+                assertEquals(events.size(), events.stream().map(Event::getEntityId).distinct().count(),
+                        "События пользователя с id = " + userId + " повторяются");
+                for (int i = 1; i < events.size(); i++) {
+                    assertTrue(events.get(i - 1).getEventId() > events.get(i).getEventId(),
+                            "Лента должна идти от новых событий к старым");
+                }
+            }
+        }
+    }
+
+    @Test
+    void shouldNotExposeHalfUpdatedUsers() throws Exception {
+        createUsers();
+
+        runConcurrently(thread -> {
+            for (int i = 0; i < 2_000; i++) {
+                if (thread % 2 == 0) {
+                    User user = new User();
+                    user.setId(1L);
+                    user.setEmail("v" + thread + "-" + i + "@yandex.ru");
+                    user.setLogin("v" + thread + "-" + i);
+                    user.setName("v" + thread + "-" + i);
+                    user.setBirthday(LocalDate.of(1990, 1, 1));
+                    userStorage.update(user);
+                } else {
+                    User user = userStorage.findByIds(new long[]{1}).getFirst();
+                    assertEquals(user.getLogin(), user.getName(), "Прочитан частично обновлённый пользователь");
+                    assertEquals(user.getLogin() + "@yandex.ru", user.getEmail(),
+                            "Прочитан частично обновлённый пользователь");
+                    user.setLogin("changed");
+                }
+            }
+        });
+
+        User user = userStorage.findByIds(new long[]{1}).getFirst();
+        assertNotEquals("changed", user.getLogin(), "Изменение прочитанного объекта не должно менять хранилище");
+    }
+
+    @Test
+    void shouldAllocateUniqueIdsUnderConcurrentCreates() throws Exception {
+        runConcurrently(thread -> {
+            for (int i = 0; i < USERS; i++) {
+                User user = new User();
+                user.setEmail("user" + thread + "-" + i + "@yandex.ru");
+                user.setLogin("user" + thread + "-" + i);
+                user.setBirthday(LocalDate.of(1990, 1, 1));
+                userStorage.create(user);
+            }
+        });
+
+        Set<Long> ids = userStorage.findAll().stream()
+                .map(User::getId)
+                .collect(Collectors.toSet());
+        assertEquals(THREADS * USERS, ids.size(), "Выданы повторяющиеся id");
+        assertEquals(THREADS * USERS, Collections.max(ids), "Последовательность id содержит пропуски");
+    }
+
+    private void createUsers() {
+        for (int i = 1; i <= USERS; i++) {
+            User user = new User();
+            user.setEmail("user" + i + "@yandex.ru");
+            user.setLogin("user" + i);
+            user.setBirthday(LocalDate.of(1990, 1, 1));
+            userStorage.create(user);
+        }
+    }
+
+    private void createFilms() {
+        for (int i = 1; i <= FILMS; i++) {
+            Film film = new Film();
+            film.setName("Film " + i);
+            film.setDescription("Description");
+            film.setReleaseDate(LocalDate.of(2000, 1, 1));
+            film.setDuration(100L);
+            filmStorage.create(film);
+        }
+    }
+
+    private static void runConcurrently(ThreadTask task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < THREADS; i++) {
+                int thread = i;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    task.run(thread);
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private interface ThreadTask {
+        void run(int thread);
+    }
+}
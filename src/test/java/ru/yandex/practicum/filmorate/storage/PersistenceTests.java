@@ -0,0 +1,261 @@
+package ru.yandex.practicum.filmorate.storage;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Genre;
+import ru.yandex.practicum.filmorate.model.Mpa;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.film.InMemoryFilmStorage;
+import ru.yandex.practicum.filmorate.storage.persistence.Mutation;
+import ru.yandex.practicum.filmorate.storage.persistence.MutationJournal;
+import ru.yandex.practicum.filmorate.storage.persistence.PersistenceManager;
+import ru.yandex.practicum.filmorate.storage.persistence.SnapshotStore;
+import ru.yandex.practicum.filmorate.storage.persistence.WriteAheadLog;
+import ru.yandex.practicum.filmorate.storage.user.InMemoryUserStorage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PersistenceTests {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void shouldRecoverStateFromSnapshotAndLog() throws IOException {
+        Instance first = Instance.open(dir);
+        for (int i = 1; i <= 3; i++) {
+            first.users.create(user(i));
+        }
+        first.films.create(film("Первый"));
+        first.users.addFriend(1L, 2L);
+        first.films.addLike(1, 1);
+        first.manager.snapshot();
+
+        first.users.addFriend(1L, 3L);
+        first.users.removeFriend(1L, 2L);
+        first.films.create(film("Второй"));
+        first.films.addLike(2, 2);
+        first.films.addLike(2, 3);
+        first.films.removeLike(1, 1);
+        first.wal.close();
+
+        Instance second = Instance.open(dir);
+        assertEquals(3, second.users.findAll().size(), "Восстановлены не все пользователи");
+        assertEquals(Set.of(3L), second.users.findUserFriends(1L).stream().map(User::getId)
+                .collect(Collectors.toSet()), "Неверно восстановлены друзья");
+        List<Film> popular = second.films.getPopular(10);
+        assertEquals(2L, popular.getFirst().getId(), "Неверно восстановлен рейтинг фильмов");
+        assertEquals(Set.of(2L, 3L), popular.getFirst().getUserLikes(), "Неверно восстановлены лайки");
+        assertTrue(popular.get(1).getUserLikes().isEmpty(), "Неверно восстановлены лайки");
+        assertEquals(4L, second.users.create(user(4)).getId(), "Счётчик id не восстановлен");
+        second.manager.close();
+    }
+
+    @Test
+    void shouldServeAndChangeEntitiesOfMappedSnapshot() throws IOException {
+        Instance first = Instance.open(dir);
+        for (int i = 1; i <= 3; i++) {
+            first.users.create(user(i));
+            Film film = film("Фильм " + i);
+            film.setGenres(List.of(new Genre(i, null)));
+            first.films.create(film);
+        }
+        first.users.addFriend(1L, 2L);
+        first.films.addLike(2, 1);
+        first.films.addLike(2, 2);
+        first.films.addLike(3, 1);
+        first.manager.close();
+
+        Instance second = Instance.open(dir);
+        assertEquals(List.of(2L, 3L, 1L), second.films.getPopular(3).stream().map(Film::getId).toList(),
+                "Рейтинг из снимка построен неверно");
+        assertEquals(3, second.users.findAll().size(), "Не все пользователи прочитаны из снимка");
+        assertEquals("user2", second.users.findPage(1, 1).getFirst().getLogin(), "Неверная страница из снимка");
+        assertEquals(List.of(3L, 3L, 3L, 2L), List.of(second.films.count(), second.films.countLikes(),
+                second.users.count(), second.users.countFriendLinks()), "Счётчики из снимка посчитаны неверно");
+
+        assertEquals(List.of(2L), second.films.getPopular(3, 2, null).stream().map(Film::getId).toList(),
+                "Жанры из снимка прочитаны неверно");
+        assertArrayEquals(new long[]{3L}, second.films.findRecommendations(2, 10),
+                "Рекомендации должны учитывать лайки из снимка");
+
+        Film changed = film("Изменённый");
+        changed.setId(3L);
+        changed.setMpa(new Mpa(4, null));
+        changed.setGenres(List.of(new Genre(2, null)));
+        second.films.update(changed);
+        second.films.addLike(3, 2);
+        second.films.addLike(3, 3);
+        second.users.addFriend(2L, 3L);
+        assertEquals(List.of(2L, 1L), second.films.search("фильм", 10).stream().map(Film::getId).toList(),
+                "Поиск должен видеть фильмы снимка с изменениями поверх него");
+        assertEquals(List.of(3L), second.films.search("изменен", 10).stream().map(Film::getId).toList(),
+                "Поиск должен находить изменённое название по началу слова");
+        assertEquals(List.of(2L), second.users.findCommonFriends(1L, 3L).stream().map(User::getId).toList(),
+                "Общие друзья пользователей из снимка найдены неверно");
+        second.manager.close();
+
+        Instance third = Instance.open(dir);
+        Film top = third.films.getPopular(1).getFirst();
+        assertEquals(3L, top.getId(), "Лайки фильма из снимка не сохранены");
+        assertEquals("Изменённый", top.getName(), "Изменение фильма из снимка не сохранено");
+        assertEquals(new Mpa(4, "R"), top.getMpa(), "Рейтинг фильма не сохранён в журнале");
+        assertEquals(List.of(3L, 2L), third.films.getPopular(3, 2, null).stream().map(Film::getId).toList(),
+                "Индекс жанра после восстановления из журнала построен неверно");
+        assertEquals(Set.of(1L, 3L), third.users.findPage(1, 1).getFirst().getFriends(),
+                "Друзья пользователя из снимка не сохранены");
+        assertEquals(List.of(3L, 5L, 3L, 4L), List.of(third.films.count(), third.films.countLikes(),
+                third.users.count(), third.users.countFriendLinks()), "Счётчики после изменений посчитаны неверно");
+        third.wal.close();
+    }
+
+    @Test
+    void shouldIgnoreTornLogTail() throws IOException {
+        Instance first = Instance.open(dir);
+        first.users.create(user(1));
+        first.users.create(user(2));
+        first.wal.close();
+
+        Path segment;
+        try (Stream<Path> files = Files.list(dir)) {
+            segment = files.filter(path -> path.getFileName().toString().startsWith("wal-")).findFirst().orElseThrow();
+        }
+        try (FileChannel file = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            file.truncate(file.size() - 3);
+        }
+
+        Instance second = Instance.open(dir);
+        assertEquals(1, second.users.findAll().size(), "Оборванная запись журнала должна быть отброшена");
+        second.users.create(user(3));
+        second.manager.close();
+
+        Instance third = Instance.open(dir);
+        assertEquals(2, third.users.findAll().size(), "Записи после оборванной потеряны");
+        third.wal.close();
+    }
+
+    @Test
+    void shouldRefuseToRecoverFromCorruptedEarlierSegment() throws IOException {
+        Instance first = Instance.open(dir);
+        first.users.create(user(1));
+        first.users.create(user(2));
+        first.wal.rotate();
+        first.users.create(user(3));
+        first.wal.close();
+
+        Path segment;
+        try (Stream<Path> files = Files.list(dir)) {
+            segment = files.filter(path -> path.getFileName().toString().startsWith("wal-")).sorted().findFirst()
+                    .orElseThrow();
+        }
+        long size = Files.size(segment);
+        try (FileChannel file = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            file.write(ByteBuffer.wrap(new byte[]{(byte) 0xFF}), 10);
+        }
+
+        assertThrows(IOException.class, () -> Instance.open(dir),
+                "Повреждённый сегмент, за которым идут другие, не должен молча обрезаться");
+        assertEquals(size, Files.size(segment), "Повреждённый сегмент не должен обрезаться");
+    }
+
+    /**
+     * Every create starts a snapshot right after logging the record and gives it time to finish before storing
+     * the record, the widest window a snapshot can hit.
+     */
+    @Test
+    void shouldKeepRecordsCreatedWhileSnapshotsAreTaken() throws Exception {
+        WriteAheadLog wal = new WriteAheadLog(dir, false);
+        ExecutorService snapshotter = Executors.newSingleThreadExecutor();
+        AtomicReference<PersistenceManager> manager = new AtomicReference<>();
+        MutationJournal snapshotAfterAppend = new MutationJournal() {
+            @Override
+            public long append(Mutation mutation) {
+                long position = wal.append(mutation);
+                Future<?> snapshot = snapshotter.submit(() -> {
+                    manager.get().snapshot();
+                    return null;
+                });
+                try {
+                    snapshot.get(200, TimeUnit.MILLISECONDS);
+                } catch (TimeoutException e) {
+                    // the snapshot waits for the lock of the record being created
+                } catch (InterruptedException | ExecutionException e) {
+                    throw new IllegalStateException(e);
+                }
+                return position;
+            }
+
+            @Override
+            public void awaitDurable(long position) {
+                wal.awaitDurable(position);
+            }
+        };
+        InMemoryUserStorage users = new InMemoryUserStorage(snapshotAfterAppend);
+        InMemoryFilmStorage films = new InMemoryFilmStorage(users, snapshotAfterAppend);
+        manager.set(new PersistenceManager(users, films, wal, new SnapshotStore(dir)));
+        manager.get().recover();
+
+        for (int i = 1; i <= 3; i++) {
+            users.create(user(i));
+            films.create(film("Фильм " + i));
+        }
+        snapshotter.shutdown();
+        assertTrue(snapshotter.awaitTermination(1, TimeUnit.MINUTES), "Снимок не завершился");
+        wal.close();
+
+        Instance second = Instance.open(dir);
+        assertEquals(3, second.users.findAll().size(), "Пользователи, созданные во время снимка, потеряны");
+        assertEquals(3, second.films.findAll().size(), "Фильмы, созданные во время снимка, потеряны");
+    }
+
+    private static User user(int i) {
+        User user = new User();
+        user.setEmail("user" + i + "@mail.ru");
+        user.setLogin("user" + i);
+        user.setName("Пользователь " + i);
+        user.setBirthday(LocalDate.of(1990, 1, i));
+        return user;
+    }
+
+    private static Film film(String name) {
+        Film film = new Film();
+        film.setName(name);
+        film.setDescription("Описание");
+        film.setReleaseDate(LocalDate.of(2000, 1, 1));
+        film.setDuration(100L);
+        return film;
+    }
+
+    private record Instance(InMemoryUserStorage users, InMemoryFilmStorage films, WriteAheadLog wal,
+                            PersistenceManager manager) {
+
+        static Instance open(Path dir) throws IOException {
+            WriteAheadLog wal = new WriteAheadLog(dir, false);
+            InMemoryUserStorage users = new InMemoryUserStorage(wal);
+            InMemoryFilmStorage films = new InMemoryFilmStorage(users, wal);
+            PersistenceManager manager = new PersistenceManager(users, films, wal, new SnapshotStore(dir));
+            manager.recover();
+            return new Instance(users, films, wal, manager);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package ru.yandex.practicum.filmorate.storage.user;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.yandex.practicum.filmorate.model.Event;
+import ru.yandex.practicum.filmorate.model.Event.EventType;
+import ru.yandex.practicum.filmorate.model.Event.Operation;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EventLogTests {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void shouldKeepTheLatestEventsOfEveryUser() throws IOException {
+        try (EventLog log = new EventLog(4, null)) {
+            for (long filmId = 1; filmId <= 6; filmId++) {
+                log.append(1, EventType.LIKE, filmId % 2 == 0 ? Operation.REMOVE : Operation.ADD, filmId);
+                log.append(2, EventType.FRIEND, Operation.ADD, filmId);
+            }
+
+            List<Event> feed = log.findPage(1, Long.MAX_VALUE, 10);
+            assertEquals(List.of(6L, 5L, 4L, 3L), entityIds(feed), "Кольцо должно хранить последние события");
+            assertEquals(new Event(9L, feed.get(1).getTimestamp(), 1L, EventType.LIKE, Operation.ADD, 5L),
+                    feed.get(1), "Событие прочитано неверно");
+            assertEquals(List.of(4L, 3L), entityIds(log.findPage(1, feed.get(1).getEventId(), 2)),
+                    "Страница должна начинаться с события старше before");
+            assertEquals(List.of(), log.findPage(3, Long.MAX_VALUE, 10), "У пользователя без событий лента пуста");
+        }
+    }
+
+    @Test
+    void shouldPageSpilledEventsAfterTheRing() throws IOException {
+        try (EventLog log = new EventLog(4, dir.resolve("feed.segment"))) {
+            for (long filmId = 1; filmId <= 10; filmId++) {
+                log.append(1, EventType.LIKE, Operation.ADD, filmId);
+                log.append(2, EventType.LIKE, Operation.REMOVE, filmId);
+            }
+
+            assertEquals(LongStream.rangeClosed(1, 10).map(id -> 11 - id).boxed().toList(),
+                    entityIds(log.findPage(1, Long.MAX_VALUE, 100)), "Вытесненные события должны читаться из файла");
+            List<Event> page = log.findPage(2, Long.MAX_VALUE, 6);
+            assertEquals(List.of(10L, 9L, 8L, 7L, 6L, 5L), entityIds(page), "Страница должна продолжаться в файле");
+            List<Event> next = log.findPage(2, page.getLast().getEventId(), 6);
+            assertEquals(List.of(4L, 3L, 2L, 1L), entityIds(next), "Следующая страница должна читаться из файла");
+            assertEquals(Operation.REMOVE, next.getFirst().getOperation(), "Событие из файла прочитано неверно");
+
+            List<Long> paged = new ArrayList<>();
+            List<Event> small = log.findPage(1, Long.MAX_VALUE, 3);
+            while (!small.isEmpty()) {
+                paged.addAll(entityIds(small));
+                small = log.findPage(1, small.getLast().getEventId(), 3);
+            }
+            assertEquals(LongStream.rangeClosed(1, 10).map(id -> 11 - id).boxed().toList(), paged,
+                    "Постраничное чтение должно пройти всю ленту");
+        }
+    }
+
+    @Test
+    void shouldKeepEventsWrittenWhileTheRingGrows() throws IOException, InterruptedException {
+        int writers = 4;
+        int eventsPerWriter = 16;
+        int events = writers * eventsPerWriter;
+        try (EventLog log = new EventLog(events, null)) {
+            Thread[] threads = new Thread[writers];
+            for (int t = 0; t < writers; t++) {
+                long firstFilmId = (long) t * eventsPerWriter + 1;
+                threads[t] = new Thread(() -> {
+                    for (long filmId = firstFilmId; filmId < firstFilmId + eventsPerWriter; filmId++) {
+                        log.append(1, EventType.LIKE, Operation.ADD, filmId);
+                    }
+                });
+                threads[t].start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+
+            List<Event> feed = log.findPage(1, Long.MAX_VALUE, 100);
+            assertEquals(events, feed.size(), "Рост кольца не должен терять события");
+            assertEquals(LongStream.rangeClosed(1, events).boxed().toList(), entityIds(feed).stream().sorted().toList(),
+                    "В ленте должны быть все записанные события");
+            assertEquals(LongStream.rangeClosed(1, events).map(id -> events + 1 - id).boxed().toList(),
+                    feed.stream().map(Event::getEventId).toList(), "Лента должна идти от новых");
+        }
+    }
+
+    private static List<Long> entityIds(List<Event> events) {
+        return events.stream().map(Event::getEntityId).toList();
+    }
+}
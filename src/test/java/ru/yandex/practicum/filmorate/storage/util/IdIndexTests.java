@@ -0,0 +1,24 @@
+package ru.yandex.practicum.filmorate.storage.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IdIndexTests {
+
+    @Test
+    void shouldMergeAddedIdsWithSnapshotRows() {
+        long[] rows = {1, 2, 5, 9};
+        IdIndex index = new IdIndex();
+        for (long id : new long[]{7, 3, 5, 12}) {
+            index.add(id);
+        }
+
+        assertArrayEquals(new long[]{1, 2, 3, 5, 7, 9, 12}, index.after(0, 100, 0, rows.length, row -> rows[row]),
+                "Id должны идти по возрастанию без повторов");
+        assertArrayEquals(new long[]{7, 9}, index.after(5, 2, 3, rows.length, row -> rows[row]),
+                "Страница должна начинаться после указанного id");
+        assertArrayEquals(new long[0], index.after(12, 100, rows.length, rows.length, row -> rows[row]),
+                "После последнего id страница пуста");
+    }
+}
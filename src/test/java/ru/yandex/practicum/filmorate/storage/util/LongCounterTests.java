@@ -0,0 +1,45 @@
+package ru.yandex.practicum.filmorate.storage.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LongCounterTests {
+
+    @Test
+    void shouldReturnTheSameTopAsSortingAllCounts() {
+        Random random = new Random(7);
+        LongCounter counter = new LongCounter(0);
+        Map<Long, Integer> expected = new HashMap<>();
+
+        for (int i = 0; i < 100_000; i++) {
+            long key = random.nextInt(5_000) + 1;
+            counter.increment(key);
+            expected.merge(key, 1, Integer::sum);
+        }
+        assertEquals(expected.size(), counter.size(), "Размер счётчика разошёлся с эталоном");
+
+        for (int k : new int[]{1, 10, 100, 5_000, 10_000}) {
+            long[] top = expected.entrySet().stream()
+                    .sorted(Map.Entry.<Long, Integer>comparingByValue().reversed()
+                            .thenComparing(Map.Entry.comparingByKey(Comparator.naturalOrder())))
+                    .limit(k)
+                    .mapToLong(Map.Entry::getKey)
+                    .toArray();
+            assertArrayEquals(top, counter.top(k), "Неверная выборка " + k + " лучших ключей");
+        }
+        assertEquals(0, new LongCounter(10).top(10).length, "У пустого счётчика не должно быть лучших ключей");
+
+        LongCounter merged = new LongCounter(0);
+        merged.add(1, 5);
+        merged.addAll(counter);
+        assertEquals(expected.getOrDefault(1L, 0) + 5, merged.get(1), "Слияние должно складывать счётчики");
+        assertEquals(expected.get(2L), merged.get(2), "Слияние должно переносить счётчики");
+        assertEquals(0, merged.get(5_001), "Счётчик ключа, которого не было, должен быть равен нулю");
+    }
+}
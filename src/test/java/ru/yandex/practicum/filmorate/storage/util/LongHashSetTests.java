@@ -0,0 +1,39 @@
+package ru.yandex.practicum.filmorate.storage.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LongHashSetTests {
+
+    @Test
+    void shouldBehaveLikeHashSetUnderRandomAddsAndRemoves() {
+        Random random = new Random(7);
+        LongHashSet set = new LongHashSet();
+        Set<Long> expected = new HashSet<>();
+
+        for (int i = 0; i < 200_000; i++) {
+            long value = random.nextInt(5_000);
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.remove(value), set.remove(value), "Неверный результат удаления " + value);
+            } else {
+                assertEquals(expected.add(value), set.add(value), "Неверный результат добавления " + value);
+            }
+            assertEquals(expected.size(), set.size(), "Размер множества разошёлся с эталоном");
+        }
+
+        for (long value = 0; value < 5_000; value++) {
+            assertEquals(expected.contains(value), set.contains(value), "Неверный результат поиска " + value);
+        }
+        assertArrayEquals(expected.stream().mapToLong(Long::longValue).sorted().toArray(), set.toSortedArray(),
+                "Неверное содержимое множества");
+        LongStream.Builder visited = LongStream.builder();
+        set.forEach(visited::add);
+        assertArrayEquals(set.toSortedArray(), visited.build().sorted().toArray(), "Обход должен пройти все значения");
+    }
+}
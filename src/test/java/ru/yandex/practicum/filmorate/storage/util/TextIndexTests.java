@@ -0,0 +1,72 @@
+package ru.yandex.practicum.filmorate.storage.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TextIndexTests {
+
+    @Test
+    void shouldRankTextsMatchingEveryWordOfTheQuery() {
+        TextIndex index = new TextIndex(3, 1);
+        index.put(1, "Звёздные войны", "Космическая опера о войне за галактику");
+        index.put(2, "Война и мир", "Экранизация романа");
+        index.put(3, "Звездочёт", "Фильм о звёздах и о войне");
+        index.put(4, "Мир Юрского периода", "Динозавры");
+        index.put(5, "Парк", "Динозавры в заповеднике Юрского периода");
+
+        assertArrayEquals(new long[]{4, 2}, index.search("мир", 10, id -> 0),
+                "Короткий текст должен быть выше длинного");
+        assertArrayEquals(new long[]{2, 4}, index.search("мир", 10, id -> id == 2 ? 1_000 : 0),
+                "Популярность должна поднимать текст при близкой релевантности");
+        assertArrayEquals(new long[]{4, 5}, index.search("юрского ", 10, id -> 0),
+                "Совпадение в названии должно весить больше, чем в описании");
+        assertArrayEquals(new long[]{1, 3}, sorted(index.search("звёзд", 10, id -> 0)),
+                "Последнее слово должно искаться как начало слова, ё — как е");
+        assertArrayEquals(new long[]{1}, index.search("звездные ", 10, id -> 0),
+                "Слово, за которым идёт пробел, не должно искаться как начало слова");
+        assertArrayEquals(new long[]{1, 3}, sorted(index.search("войне звезд", 10, id -> 0)),
+                "Должны найтись тексты со всеми словами");
+        assertArrayEquals(new long[0], index.search("войне динозавры", 10, id -> 0),
+                "Текстов со всеми словами нет");
+        assertArrayEquals(new long[]{4}, index.search("мир", 1, id -> 0), "Выдача должна обрезаться по limit");
+
+        index.put(2, "Анна Каренина", "Экранизация романа");
+        assertArrayEquals(new long[]{4}, index.search("мир", 10, id -> 0), "Старые слова текста должны удаляться");
+        index.remove(4);
+        assertArrayEquals(new long[0], index.search("мир", 10, id -> 0), "Удалённый текст не должен находиться");
+        assertEquals(4, index.size(), "Неверное число текстов в индексе");
+    }
+
+    @Test
+    void shouldMergeQueuedChangesInAnyOrderOfIds() {
+        TextIndex index = new TextIndex(1);
+        for (int i = 1; i <= 100; i += 2) {
+            index.put(i, "фильм нечётный");
+        }
+        index.tryApply();
+        for (int i = 100; i >= 2; i -= 2) {
+            index.put(i, "фильм чётный");
+        }
+        index.put(1, "первый");
+        index.put(1, "фильм первый");
+        index.remove(3);
+        index.put(5, "фильм");
+        index.remove(101);
+
+        assertEquals(99, index.search("фильм", 100, id -> 0).length, "Должны найтись все тексты, кроме удалённого");
+        assertArrayEquals(new long[]{1}, index.search("первый", 10, id -> 0),
+                "Должна остаться последняя версия текста");
+        assertEquals(47, index.search("нечётный", 100, id -> 0).length, "Изменённые тексты не должны находиться");
+        assertEquals(50, index.search("чётный", 100, id -> 0).length, "Вставки между id должны сохраниться");
+        assertEquals(99, index.size(), "Неверное число текстов в индексе");
+    }
+
+    private static long[] sorted(long[] ids) {
+        long[] copy = ids.clone();
+        Arrays.sort(copy);
+        return copy;
+    }
+}